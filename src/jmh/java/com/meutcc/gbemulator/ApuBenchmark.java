@@ -0,0 +1,64 @@
+package com.meutcc.gbemulator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * APU.update com os 4 canais tocando; uma operação é um quadro (70224 ciclos) de áudio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ApuBenchmark {
+
+    private static final int CYCLES_PER_FRAME = 70224;
+
+    @Param({"4", "456", "70224"})
+    public int cyclesPerUpdate;
+
+    @Param({"false", "true"})
+    public boolean bandLimited;
+
+    private APU apu;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Sem linha de áudio; o sink descarta as amostras mas mantém a geração ativa
+        apu = new APU(false);
+        apu.setSampleSink((pcm, offset, length) -> { });
+        apu.setBandLimitedEnabled(bandLimited);
+
+        write(0xFF26, 0x80);
+        write(0xFF24, 0x77);
+        write(0xFF25, 0xFF);
+
+        write(0xFF10, 0x15); write(0xFF11, 0x80); write(0xFF12, 0xF0); write(0xFF13, 0x83); write(0xFF14, 0x87);
+        write(0xFF16, 0x40); write(0xFF17, 0xF0); write(0xFF18, 0xC1); write(0xFF19, 0x87);
+        for (int i = 0; i < 16; i++) {
+            write(0xFF30 + i, (i * 0x11) ^ 0x5A);
+        }
+        write(0xFF1A, 0x80); write(0xFF1B, 0x00); write(0xFF1C, 0x20); write(0xFF1D, 0xD6); write(0xFF1E, 0x86);
+        write(0xFF20, 0x00); write(0xFF21, 0xF0); write(0xFF22, 0x51); write(0xFF23, 0x80);
+    }
+
+    private void write(int address, int value) {
+        apu.writeRegister(address, (byte) value);
+    }
+
+    /**
+     * Um quadro de áudio fatiado em chamadas de cyclesPerUpdate ciclos (4 = após cada instrução curta).
+     */
+    @Benchmark
+    public void updateFrame() {
+        int remaining = CYCLES_PER_FRAME;
+        while (remaining > 0) {
+            int cycles = Math.min(cyclesPerUpdate, remaining);
+            apu.update(cycles);
+            remaining -= cycles;
+        }
+    }
+}
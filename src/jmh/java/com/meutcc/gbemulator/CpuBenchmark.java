@@ -0,0 +1,55 @@
+package com.meutcc.gbemulator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU.step isolado (sem PPU/APU/timers) sobre laços sintéticos; o resultado é ns por instrução.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CpuBenchmark {
+
+    private static final int INSTRUCTIONS_PER_INVOCATION = 1000;
+
+    @Param({"ALU", "LOAD_STORE", "BRANCH", "CB_PREFIX"})
+    public SyntheticRom.InstructionMix mix;
+
+    @Param({"SWITCH", "TABLE"})
+    public CPU.DispatchMode dispatchMode;
+
+    @Param({"false", "true"})
+    public boolean flagTableAlu;
+
+    private CPU cpu;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path rom = SyntheticRom.writeTemp(SyntheticRom.instructionLoop(mix));
+        GameBoy gameBoy = new GameBoy(dispatchMode, false);
+        gameBoy.loadROM(rom.toString());
+        gameBoy.reset();
+        cpu = gameBoy.getCpu();
+        cpu.setFlagTableAluEnabled(flagTableAlu);
+        // Passa da inicialização para dentro do laço
+        for (int i = 0; i < 16; i++) {
+            cpu.step();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS_PER_INVOCATION)
+    public int step() {
+        int cycles = 0;
+        for (int i = 0; i < INSTRUCTIONS_PER_INVOCATION; i++) {
+            cycles += cpu.step();
+        }
+        return cycles;
+    }
+}
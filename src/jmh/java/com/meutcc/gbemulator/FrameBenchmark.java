@@ -0,0 +1,69 @@
+package com.meutcc.gbemulator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quadros completos de GameBoy.step sobre a demo homebrew sintética; o resultado é quadros por segundo.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameBenchmark {
+
+    private static final int CYCLES_PER_FRAME = 70224;
+
+    @Param({"false", "true"})
+    public boolean fastPaths;
+
+    @Param({"false", "true"})
+    public boolean audio;
+
+    @Param({"false", "true"})
+    public boolean flagTableAlu;
+
+    private GameBoy gameBoy;
+    private long cycles;
+    private long frames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path rom = SyntheticRom.writeTemp(SyntheticRom.homebrewDemo());
+        gameBoy = new GameBoy(CPU.DispatchMode.SWITCH, false);
+        gameBoy.loadROM(rom.toString());
+        gameBoy.reset();
+        if (audio) {
+            gameBoy.getApu().setSampleSink((pcm, offset, length) -> { });
+            gameBoy.setEmulatorSoundGloballyEnabled(true);
+        }
+        if (fastPaths) {
+            gameBoy.setEventSchedulingEnabled(true);
+            gameBoy.getMmu().setLazyTimersEnabled(true);
+            gameBoy.getMmu().setPageTableEnabled(true);
+            gameBoy.setHaltSkipEnabled(true);
+            gameBoy.setIdleLoopSkipEnabled(true);
+            gameBoy.getPpu().setCatchUpEnabled(true);
+            gameBoy.getPpu().setTileCacheEnabled(true);
+        }
+        gameBoy.getCpu().setFlagTableAluEnabled(flagTableAlu);
+        cycles = 0;
+        frames = 0;
+    }
+
+    @Benchmark
+    public int frame() {
+        frames++;
+        long frameEnd = frames * CYCLES_PER_FRAME;
+        int steps = 0;
+        while (cycles < frameEnd) {
+            cycles += gameBoy.step();
+            steps++;
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,84 @@
+package com.meutcc.gbemulator;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MMU.readByte/writeByte por região de memória; o resultado é ns por acesso.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MmuBenchmark {
+
+    private static final int ACCESSES = 256;
+
+    // Registradores de I/O sem efeito colateral na escrita (scroll, janela, paletas)
+    private static final int[] SAFE_IO_REGISTERS = {0xFF42, 0xFF43, 0xFF47, 0xFF48, 0xFF49, 0xFF4A, 0xFF4B};
+
+    public enum Region {
+        ROM0(0x0000, 0x4000), ROMX(0x4000, 0x4000), VRAM(0x8000, 0x2000), EXTERNAL_RAM(0xA000, 0x2000),
+        WRAM(0xC000, 0x2000), ECHO(0xE000, 0x1E00), OAM(0xFE00, 0xA0), IO(0xFF00, 0), HRAM(0xFF80, 0x7F);
+
+        final int base;
+        final int size;
+
+        Region(int base, int size) {
+            this.base = base;
+            this.size = size;
+        }
+    }
+
+    @Param({"ROM0", "ROMX", "VRAM", "EXTERNAL_RAM", "WRAM", "ECHO", "OAM", "IO", "HRAM"})
+    public Region region;
+
+    @Param({"false", "true"})
+    public boolean pageTable;
+
+    private MMU mmu;
+    private final int[] addresses = new int[ACCESSES];
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path rom = SyntheticRom.writeTemp(SyntheticRom.instructionLoop(SyntheticRom.InstructionMix.ALU));
+        GameBoy gameBoy = new GameBoy(CPU.DispatchMode.SWITCH, false);
+        gameBoy.loadROM(rom.toString());
+        gameBoy.reset();
+        mmu = gameBoy.getMmu();
+        mmu.setPageTableEnabled(pageTable);
+        // LCD desligado: VRAM e OAM sempre acessíveis, sem depender do modo do PPU
+        mmu.writeByte(MMU.REG_LCDC, 0x00);
+        // Habilita a RAM externa
+        mmu.writeByte(0x0000, 0x0A);
+
+        for (int i = 0; i < ACCESSES; i++) {
+            addresses[i] = region == Region.IO
+                    ? SAFE_IO_REGISTERS[i % SAFE_IO_REGISTERS.length]
+                    : region.base + (i * 37) % region.size;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void readByte(Blackhole blackhole) {
+        for (int address : addresses) {
+            blackhole.consume(mmu.readByte(address));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void writeByte() {
+        // Escrita na região de ROM vai para o registrador de banco do MBC
+        boolean romRegion = region == Region.ROM0 || region == Region.ROMX;
+        for (int i = 0; i < ACCESSES; i++) {
+            mmu.writeByte(romRegion ? 0x2000 : addresses[i], romRegion ? 0x01 : i & 0xFF);
+        }
+    }
+}
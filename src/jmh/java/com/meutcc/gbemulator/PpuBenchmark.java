@@ -0,0 +1,73 @@
+package com.meutcc.gbemulator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PPU.renderScanline com 0 a 10 sprites na linha e o custo de um quadro completo de PPU.update.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PpuBenchmark {
+
+    private static final int CYCLES_PER_FRAME = 70224;
+
+    @Param({"0", "5", "10"})
+    public int spritesPerLine;
+
+    @Param({"false", "true"})
+    public boolean tileCache;
+
+    @Param({"false", "true"})
+    public boolean catchUp;
+
+    private PPU ppu;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // PPU isolado, sem MMU: não gera interrupções nem escreve em STAT/LY
+        ppu = new PPU();
+        ppu.setTileCacheEnabled(tileCache);
+        ppu.setCatchUpEnabled(catchUp);
+
+        Random random = new Random(42);
+        for (int address = 0x8000; address < 0xA000; address++) {
+            ppu.writeVRAM(address - 0x8000, (byte) random.nextInt(256));
+        }
+
+        ppu.setLcdc(0x00);
+        // Sprites alinhados em cada faixa de 8 linhas, espalhados na horizontal
+        for (int i = 0; i < 40; i++) {
+            int band = i / 10;
+            int slot = i % 10;
+            boolean visible = slot < spritesPerLine;
+            ppu.writeOAM(i * 4, (byte) (visible ? 16 + band * 40 : 0));
+            ppu.writeOAM(i * 4 + 1, (byte) (8 + slot * 15));
+            ppu.writeOAM(i * 4 + 2, (byte) random.nextInt(256));
+            ppu.writeOAM(i * 4 + 3, (byte) (random.nextBoolean() ? 0x80 : 0x20));
+        }
+        // LCD, fundo, janela e sprites ligados
+        ppu.setLcdc(0xB3);
+        ppu.setWx(87);
+        ppu.setWy(72);
+    }
+
+    /**
+     * Linha 0: todos os sprites com slot < spritesPerLine estão nela.
+     */
+    @Benchmark
+    public void renderScanline() {
+        ppu.renderScanline();
+    }
+
+    @Benchmark
+    public void updateFrame() {
+        ppu.update(CYCLES_PER_FRAME);
+    }
+}
@@ -1,7 +1,9 @@
 package com.meutcc.gbemulator;
 
 import javax.sound.sampled.*;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
 
 public class APU {
   
@@ -15,17 +17,42 @@ public class APU {
     
     private static final int AUDIO_OUTPUT_BUFFER_SAMPLES = 8192;  
     private static final int INTERNAL_SAMPLE_BUFFER_SIZE = 2048;  
+    private static final int FRAME_BYTES = CHANNELS * (SAMPLE_SIZE_BITS / 8);
+    // Thread de áudio: ~340 ms de folga no buffer circular, escritas de ~10 ms na linha
+    private static final int AUDIO_RING_BYTES = 16384 * FRAME_BYTES;
+    private static final int AUDIO_THREAD_CHUNK_BYTES = 512 * FRAME_BYTES;
     
     private static final int FRAME_SEQUENCER_PERIOD_TCYCLES = 8192;
-    private static final long SAMPLE_PHASE_INCREMENT = ((long)SAMPLE_RATE << 16) / CPU_CLOCK_SPEED;
+    private static final int MAX_UPDATE_SLICE_TCYCLES = 32;
+    // Amostras por ciclo em ponto fixo 32.32; a precisão permite ajustes finos de taxa
+    private static final long SAMPLE_PHASE_INCREMENT = ((long)SAMPLE_RATE << 32) / CPU_CLOCK_SPEED;
+    // Controle dinâmico de taxa: desvio máximo da taxa de amostras (±0,5%, inaudível)
+    private static final double RATE_CONTROL_MAX_DEVIATION = 0.005;
     
     private static final float HIGHPASS_CHARGE = 0.999f;
     
     private static final float LOWPASS_ALPHA = 0.25f;
 
+    // Síntese band-limited: fatias limitadas para não estourar o limite de iterações dos canais
+    private static final int BLIP_MAX_SLICE_TCYCLES = 128;
+    // Ciclos por bloco entregue à saída (~187 amostras)
+    private static final int BLIP_FRAME_TCYCLES = 16384;
+    // 4 canais * nível 15 * volume 8 = 480 por lado; 480 * 64 cabe em 16 bits
+    private static final int BLIP_AMPLITUDE_SCALE = 64;
+
     
     private SourceDataLine sourceDataLine;
     private boolean javaSoundInitialized = false;
+    // Destino alternativo para o PCM gerado (modo headless, gravação em arquivo)
+    private SampleSink sampleSink = null;
+    private AudioRingBuffer audioRing;
+    private Thread audioThread;
+    private volatile boolean audioThreadRunning = false;
+    private volatile boolean audioFlushRequested = false;
+    // underruns: escrito só pela thread de áudio; overruns: só pela thread de emulação
+    private volatile long audioUnderruns = 0;
+    private volatile long audioOverruns = 0;
+    private volatile long audioDroppedFrames = 0;
     private final byte[] outputByteBuffer;
     private final float[] internalSampleBuffer;
     private int internalBufferPos = 0;
@@ -36,6 +63,18 @@ public class APU {
     private float lowpassLeft = 0.0f;
     private float lowpassRight = 0.0f;
 
+    private boolean bandLimitedEnabled = false;
+    // Run-ahead: quadros descartados avançam o APU sem produzir áudio
+    private boolean outputSuppressed = false;
+    private final BlipBuffer blipLeft;
+    private final BlipBuffer blipRight;
+    private final short[] blipSamples;
+    // Ciclos desde o início do bloco atual dos BlipBuffers
+    private int blipTime = 0;
+    // Última amplitude de cada canal em cada lado, para emitir só as variações
+    private final int[] blipLevelLeft = new int[4];
+    private final int[] blipLevelRight = new int[4];
+
     
     private boolean masterSoundEnable = false;
     
@@ -46,6 +85,9 @@ public class APU {
     private int frameSequencerStep = 0;
     
     private long samplePhaseAccumulator = 0;
+    private long samplePhaseIncrement = SAMPLE_PHASE_INCREMENT;
+    private double rateRatio = 1.0;
+    private boolean blipRateChanged = false;
     
     private volatile boolean emulatorSoundGloballyEnabled = true;
     
@@ -65,28 +107,219 @@ public class APU {
     
     final byte[] audioRegisters = new byte[0x30];
     final byte[] wavePatternRam = new byte[16];
+    private final byte[] loadedRegisters = new byte[0x30];
+
+    /**
+     * Recebe blocos de PCM 16 bits little-endian estéreo a SAMPLE_RATE Hz.
+     */
+    public interface SampleSink {
+        void writeSamples(byte[] pcm, int offset, int length);
+    }
 
     public APU() {
+        this(true);
+    }
+
+    /**
+     * @param openAudioLine false para não inicializar o Java Sound (execução headless)
+     */
+    public APU(boolean openAudioLine) {
         outputByteBuffer = new byte[INTERNAL_SAMPLE_BUFFER_SIZE * (SAMPLE_SIZE_BITS / 8) * CHANNELS];
         internalSampleBuffer = new float[INTERNAL_SAMPLE_BUFFER_SIZE * CHANNELS];
+        blipLeft = new BlipBuffer(CPU_CLOCK_SPEED, SAMPLE_RATE, INTERNAL_SAMPLE_BUFFER_SIZE);
+        blipRight = new BlipBuffer(CPU_CLOCK_SPEED, SAMPLE_RATE, INTERNAL_SAMPLE_BUFFER_SIZE);
+        blipSamples = new short[INTERNAL_SAMPLE_BUFFER_SIZE * CHANNELS];
 
         channel1 = new PulseChannel(this, true);  
         channel2 = new PulseChannel(this, false); 
         channel3 = new WaveChannel(this);
         channel4 = new NoiseChannel(this);
 
-        initializeSoundAPI();
+        if (openAudioLine) {
+            initializeSoundAPI();
+        }
         reset();
     }
     
     public void setEmulatorSoundGloballyEnabled(boolean enabled) {
         this.emulatorSoundGloballyEnabled = enabled;
         if (!enabled && javaSoundInitialized && sourceDataLine != null) {
-            sourceDataLine.flush();
+            if (audioThreadRunning) {
+                // A linha pertence à thread de áudio; ela descarta o buffer e faz o flush
+                audioFlushRequested = true;
+            } else {
+                sourceDataLine.flush();
+            }
             System.out.println("APU: Sound " + (enabled ? "ENABLED" : "DISABLED"));
         }
     }
     
+    public void setSampleSink(SampleSink sink) {
+        this.sampleSink = sink;
+    }
+
+    /**
+     * Entrega o PCM a uma thread dedicada por um buffer circular lock-free, em vez de escrever
+     * na SourceDataLine a partir da thread de emulação. Só tem efeito com a linha de áudio aberta.
+     */
+    public void setAudioThreadEnabled(boolean enable) {
+        if (enable && !audioThreadRunning && javaSoundInitialized) {
+            audioRing = new AudioRingBuffer(AUDIO_RING_BYTES, FRAME_BYTES);
+            audioThreadRunning = true;
+            audioThread = new Thread(this::audioThreadLoop, "APU-Audio");
+            audioThread.setDaemon(true);
+            audioThread.setPriority(Thread.MAX_PRIORITY);
+            audioThread.start();
+            System.out.println("Thread de áudio habilitada");
+        } else if (!enable && audioThreadRunning) {
+            stopAudioThread();
+            System.out.println("Thread de áudio desabilitada");
+        }
+    }
+
+    public boolean isAudioThreadEnabled() {
+        return audioThreadRunning;
+    }
+
+    private void stopAudioThread() {
+        audioThreadRunning = false;
+        try {
+            audioThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        audioThread = null;
+    }
+
+    private void audioThreadLoop() {
+        byte[] chunk = new byte[AUDIO_THREAD_CHUNK_BYTES];
+        int lineBufferBytes = sourceDataLine.getBufferSize();
+        boolean starving = false;
+
+        while (audioThreadRunning) {
+            if (audioFlushRequested) {
+                audioFlushRequested = false;
+                audioRing.discard();
+                sourceDataLine.flush();
+            }
+
+            int read = audioRing.read(chunk, 0, chunk.length);
+            if (read == 0) {
+                // Buffer circular vazio e linha quase sem dados: a placa vai tocar silêncio
+                int queued = lineBufferBytes - sourceDataLine.available();
+                if (queued < AUDIO_THREAD_CHUNK_BYTES && !starving && emulatorSoundGloballyEnabled) {
+                    audioUnderruns++;
+                    starving = true;
+                }
+                LockSupport.parkNanos(1_000_000L);
+                continue;
+            }
+            starving = false;
+            // Bloqueia até haver espaço na linha: é isso que dá o ritmo desta thread
+            sourceDataLine.write(chunk, 0, read);
+        }
+    }
+
+    /**
+     * Quadros PCM aguardando a thread de áudio, ou -1 se ela não estiver ativa.
+     */
+    public int getBufferedAudioFrames() {
+        return audioThreadRunning ? audioRing.available() / FRAME_BYTES : -1;
+    }
+
+    /**
+     * Multiplica a quantidade de amostras geradas por ciclo emulado. Acima de 1 o buffer de áudio
+     * enche mais rápido, abaixo de 1 esvazia; limitado a ±RATE_CONTROL_MAX_DEVIATION.
+     */
+    public void setRateRatio(double ratio) {
+        ratio = Math.max(1.0 - RATE_CONTROL_MAX_DEVIATION, Math.min(1.0 + RATE_CONTROL_MAX_DEVIATION, ratio));
+        if (ratio == rateRatio) return;
+        rateRatio = ratio;
+        samplePhaseIncrement = Math.round(SAMPLE_PHASE_INCREMENT * ratio);
+        // Os BlipBuffers só mudam de fator no fim do bloco, para não deslocar deltas já emitidos
+        blipRateChanged = true;
+    }
+
+    public double getRateRatio() {
+        return rateRatio;
+    }
+
+    /**
+     * Controle dinâmico de taxa (como no RetroArch): ajusta a taxa conforme o preenchimento do
+     * buffer, que tende a targetFrames. Chamar uma vez por quadro emulado.
+     */
+    public void updateRateControl(int targetFrames) {
+        int buffered = getBufferedAudioFrames();
+        if (buffered < 0) return;
+        double fill = Math.min(1.0, buffered / (2.0 * targetFrames));
+        setRateRatio(1.0 + RATE_CONTROL_MAX_DEVIATION * (1.0 - 2.0 * fill));
+    }
+
+    public void resetAudioStatistics() {
+        audioUnderruns = 0;
+        audioOverruns = 0;
+        audioDroppedFrames = 0;
+    }
+
+    public String getAudioStatistics() {
+        if (!audioThreadRunning) {
+            return "Áudio: thread desativada";
+        }
+        int buffered = audioRing.available() / FRAME_BYTES;
+        return String.format("Áudio: %d/%d quadros no buffer (%.1f ms), %d underruns, %d overruns (%d quadros descartados), taxa %.4f",
+                buffered, audioRing.capacity() / FRAME_BYTES, buffered * 1000.0 / SAMPLE_RATE,
+                audioUnderruns, audioOverruns, audioDroppedFrames, rateRatio);
+    }
+
+    /**
+     * Síntese band-limited: os canais emitem deltas de amplitude no ciclo exato em BlipBuffers,
+     * integrados uma vez por bloco, em vez de gerar e filtrar uma amostra por vez.
+     */
+    public void setBandLimitedEnabled(boolean enable) {
+        this.bandLimitedEnabled = enable;
+        clearBandLimitedState();
+        System.out.println("Síntese band-limited " + (enable ? "habilitada" : "desabilitada"));
+    }
+
+    public boolean isBandLimitedEnabled() {
+        return bandLimitedEnabled;
+    }
+
+    /**
+     * Enquanto ativo, o APU continua emulando mas não gera amostras (quadros escondidos do run-ahead).
+     */
+    public void setOutputSuppressed(boolean suppressed) {
+        this.outputSuppressed = suppressed;
+    }
+
+    public boolean isOutputSuppressed() {
+        return outputSuppressed;
+    }
+
+    private void clearBandLimitedState() {
+        blipLeft.clear();
+        blipRight.clear();
+        blipTime = 0;
+        Arrays.fill(blipLevelLeft, 0);
+        Arrays.fill(blipLevelRight, 0);
+    }
+
+    /**
+     * Se o APU está sendo emulado (som habilitado e alguma saída configurada). Desligado, ele fica
+     * parado, e o que a CPU lê de NR52 muda; os movies gravam esse modo para reproduzi-lo igual.
+     */
+    public boolean isEmulating() {
+        return emulatorSoundGloballyEnabled && hasAudioOutput();
+    }
+
+    public SampleSink getSampleSink() {
+        return sampleSink;
+    }
+
+    private boolean hasAudioOutput() {
+        return javaSoundInitialized || sampleSink != null;
+    }
+
     public void setDebugTiming(boolean enabled) {
         this.debugTiming = enabled;
         if (enabled) {
@@ -110,11 +343,11 @@ public class APU {
             "  Frame Sequencer ticks: %d\n" +
             "  Sample rate: %d Hz\n" +
             "  CPU clock: %d Hz\n" +
-            "  Phase increment (16.16): 0x%04X (%.6f samples/cycle)",
+            "  Phase increment (32.32): 0x%09X (%.6f samples/cycle, ratio %.5f)",
             apuTotalCycles, samplesGenerated, expectedSamples, 
             drift, Math.abs(driftPercent), frameSequencerTicks,
             SAMPLE_RATE, CPU_CLOCK_SPEED, 
-            SAMPLE_PHASE_INCREMENT, (SAMPLE_PHASE_INCREMENT / 65536.0)
+            samplePhaseIncrement, (samplePhaseIncrement / 4294967296.0), rateRatio
         );
     }
 
@@ -136,6 +369,8 @@ public class APU {
         lowpassLeft = 0.0f;
         lowpassRight = 0.0f;
 
+        clearBandLimitedState();
+
         Arrays.fill(audioRegisters, (byte) 0);
         Arrays.fill(wavePatternRam, (byte) 0);
 
@@ -152,10 +387,47 @@ public class APU {
     }
 
     public void update(int cpuCycles) {
-        if (!emulatorSoundGloballyEnabled || !javaSoundInitialized) {
+        if (!emulatorSoundGloballyEnabled || !hasAudioOutput()) {
+            return;
+        }
+
+        if (outputSuppressed) {
+            while (cpuCycles > MAX_UPDATE_SLICE_TCYCLES) {
+                updateSliceSilent(MAX_UPDATE_SLICE_TCYCLES);
+                cpuCycles -= MAX_UPDATE_SLICE_TCYCLES;
+            }
+            updateSliceSilent(cpuCycles);
             return;
         }
 
+        if (bandLimitedEnabled) {
+            while (cpuCycles > BLIP_MAX_SLICE_TCYCLES) {
+                updateSliceBandLimited(BLIP_MAX_SLICE_TCYCLES);
+                cpuCycles -= BLIP_MAX_SLICE_TCYCLES;
+            }
+            updateSliceBandLimited(cpuCycles);
+            return;
+        }
+
+        // Lotes grandes (agendador de eventos) são fatiados para manter a resolução das amostras
+        while (cpuCycles > MAX_UPDATE_SLICE_TCYCLES) {
+            updateSlice(MAX_UPDATE_SLICE_TCYCLES);
+            cpuCycles -= MAX_UPDATE_SLICE_TCYCLES;
+        }
+        updateSlice(cpuCycles);
+    }
+
+    /**
+     * Ciclos até o próximo passo do frame sequencer, ou Integer.MAX_VALUE se o som não estiver ativo.
+     */
+    public int cyclesUntilFrameSequencerTick() {
+        if (!emulatorSoundGloballyEnabled || !hasAudioOutput()) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(1, FRAME_SEQUENCER_PERIOD_TCYCLES - frameSequencerCycleCounter);
+    }
+
+    private void updateSlice(int cpuCycles) {
         apuTotalCycles += cpuCycles;
 
         frameSequencerCycleCounter += cpuCycles;
@@ -183,11 +455,11 @@ public class APU {
             channel4.step(cpuCycles);
         }
 
-        samplePhaseAccumulator += cpuCycles * SAMPLE_PHASE_INCREMENT;
+        samplePhaseAccumulator += cpuCycles * samplePhaseIncrement;
         
-        int samplesToGenerate = (int)(samplePhaseAccumulator >> 16);
+        int samplesToGenerate = (int)(samplePhaseAccumulator >>> 32);
         
-        samplePhaseAccumulator &= 0xFFFF;
+        samplePhaseAccumulator &= 0xFFFFFFFFL;
         
         for (int i = 0; i < samplesToGenerate; i++) {
             generateAndBufferSample();
@@ -195,9 +467,117 @@ public class APU {
         }
     }
 
+    /**
+     * Avança canais e frame sequencer sem gerar amostras nem mexer nos filtros e no blip buffer,
+     * que não fazem parte do save state e seriam corrompidos pelos quadros descartados.
+     */
+    private void updateSliceSilent(int cpuCycles) {
+        frameSequencerCycleCounter += cpuCycles;
+        while (frameSequencerCycleCounter >= FRAME_SEQUENCER_PERIOD_TCYCLES) {
+            frameSequencerCycleCounter -= FRAME_SEQUENCER_PERIOD_TCYCLES;
+            if (masterSoundEnable) {
+                clockFrameSequencer();
+            }
+        }
+
+        if (masterSoundEnable) {
+            channel1.step(cpuCycles);
+            channel2.step(cpuCycles);
+            channel3.step(cpuCycles);
+            channel4.step(cpuCycles);
+        }
+    }
+
+    private void updateSliceBandLimited(int cpuCycles) {
+        apuTotalCycles += cpuCycles;
+
+        frameSequencerCycleCounter += cpuCycles;
+        while (frameSequencerCycleCounter >= FRAME_SEQUENCER_PERIOD_TCYCLES) {
+            frameSequencerCycleCounter -= FRAME_SEQUENCER_PERIOD_TCYCLES;
+            if (masterSoundEnable) {
+                clockFrameSequencer();
+                frameSequencerTicks++;
+                updateBandLimitedLevels(blipTime);
+            }
+        }
+
+        // Os canais chamam channelOutputChanged com o deslocamento de cada transição na fatia
+        if (masterSoundEnable) {
+            channel1.step(cpuCycles);
+            channel2.step(cpuCycles);
+            channel3.step(cpuCycles);
+            channel4.step(cpuCycles);
+        }
+
+        blipTime += cpuCycles;
+        if (blipTime >= BLIP_FRAME_TCYCLES) {
+            endBandLimitedFrame();
+        }
+    }
+
+    /**
+     * Chamado pelos canais quando a forma de onda avança, offset ciclos após o início da fatia atual.
+     */
+    void channelOutputChanged(SoundChannel channel, int offset) {
+        if (!bandLimitedEnabled || outputSuppressed) return;
+
+        int index = channel == channel1 ? 0 : channel == channel2 ? 1 : channel == channel3 ? 2 : 3;
+        updateBandLimitedLevel(index, channel, blipTime + Math.max(0, offset));
+    }
+
+    private void updateBandLimitedLevels(int time) {
+        updateBandLimitedLevel(0, channel1, time);
+        updateBandLimitedLevel(1, channel2, time);
+        updateBandLimitedLevel(2, channel3, time);
+        updateBandLimitedLevel(3, channel4, time);
+    }
+
+    private void updateBandLimitedLevel(int index, SoundChannel channel, int time) {
+        int level = masterSoundEnable ? (int) channel.getOutputSample() * BLIP_AMPLITUDE_SCALE : 0;
+
+        int left = (nr51_panning & (0x10 << index)) != 0 ? level * (((nr50_master_volume >> 4) & 0x07) + 1) : 0;
+        int right = (nr51_panning & (0x01 << index)) != 0 ? level * ((nr50_master_volume & 0x07) + 1) : 0;
+
+        if (left != blipLevelLeft[index]) {
+            blipLeft.addDelta(time, left - blipLevelLeft[index]);
+            blipLevelLeft[index] = left;
+        }
+        if (right != blipLevelRight[index]) {
+            blipRight.addDelta(time, right - blipLevelRight[index]);
+            blipLevelRight[index] = right;
+        }
+    }
+
+    private void endBandLimitedFrame() {
+        blipLeft.endFrame(blipTime);
+        blipRight.endFrame(blipTime);
+        blipTime = 0;
+        if (blipRateChanged) {
+            blipRateChanged = false;
+            blipLeft.setClockRate(CPU_CLOCK_SPEED / rateRatio);
+            blipRight.setClockRate(CPU_CLOCK_SPEED / rateRatio);
+        }
+
+        int count = blipLeft.readSamples(blipSamples, 0, INTERNAL_SAMPLE_BUFFER_SIZE, 2);
+        blipRight.readSamples(blipSamples, 1, count, 2);
+        samplesGenerated += count;
+
+        for (int i = 0; i < count * 2; i++) {
+            outputByteBuffer[i * 2] = (byte) (blipSamples[i] & 0xFF);
+            outputByteBuffer[i * 2 + 1] = (byte) ((blipSamples[i] >> 8) & 0xFF);
+        }
+        writeOutputBuffer(count * 2 * (SAMPLE_SIZE_BITS / 8));
+    }
+
     public void close() {
+        if (sampleSink != null) {
+            flushPendingSamples();
+        }
         if (javaSoundInitialized && sourceDataLine != null) {
-            flushInternalBufferToSoundCard();
+            flushPendingSamples();
+            if (audioThreadRunning) {
+                stopAudioThread();
+            }
             sourceDataLine.drain();
             sourceDataLine.stop();
             sourceDataLine.close();
@@ -276,6 +656,14 @@ public class APU {
     }
 
     public void writeRegister(int address, byte value) {
+        applyRegisterWrite(address, value);
+        if (bandLimitedEnabled && !outputSuppressed) {
+            // Trigger, DAC, volume e panning alteram a amplitude imediatamente
+            updateBandLimitedLevels(blipTime);
+        }
+    }
+
+    private void applyRegisterWrite(int address, byte value) {
         if (address == 0xFF26) {
             boolean newMasterEnable = (value & 0x80) != 0;
             
@@ -536,7 +924,7 @@ public class APU {
     }
 
     private void flushInternalBufferToSoundCard() {
-        if (!javaSoundInitialized || internalBufferPos == 0) return;
+        if (!hasAudioOutput() || internalBufferPos == 0) return;
 
         for (int i = 0; i < internalBufferPos * 2; i++) {
             float sample = internalSampleBuffer[i];
@@ -551,15 +939,46 @@ public class APU {
         }
 
         int bytesToWrite = internalBufferPos * 2 * (SAMPLE_SIZE_BITS / 8);
+        internalBufferPos = 0;
+        writeOutputBuffer(bytesToWrite);
+    }
+
+    private void flushPendingSamples() {
+        if (bandLimitedEnabled) {
+            if (blipTime > 0) {
+                endBandLimitedFrame();
+            }
+        } else {
+            flushInternalBufferToSoundCard();
+        }
+    }
+
+    private void writeOutputBuffer(int bytesToWrite) {
+        if (bytesToWrite == 0) return;
+
+        if (sampleSink != null) {
+            sampleSink.writeSamples(outputByteBuffer, 0, bytesToWrite);
+        }
+        if (!javaSoundInitialized) {
+            return;
+        }
+
+        if (audioThreadRunning) {
+            int written = audioRing.write(outputByteBuffer, 0, bytesToWrite);
+            if (written < bytesToWrite) {
+                // Emulação à frente da placa de som: o excedente é descartado
+                audioOverruns++;
+                audioDroppedFrames += (bytesToWrite - written) / FRAME_BYTES;
+            }
+            return;
+        }
         
         int available = sourceDataLine.available();
         if (available < bytesToWrite) {
-            internalBufferPos = 0;
             return;
         }
         
         sourceDataLine.write(outputByteBuffer, 0, bytesToWrite);
-        internalBufferPos = 0;
     }
     
     abstract static class SoundChannel {
@@ -625,6 +1044,31 @@ public class APU {
         protected boolean checkDACEnabled(byte nrx2) {
             return (nrx2 & 0xF8) != 0;
         }
+
+        // Estado interno (timers, envelope, posição da onda), que não dá para reconstruir pelos registradores
+        void saveState(ByteBuffer buffer) {
+            SaveStateFormat.putBoolean(buffer, enabled);
+            buffer.putInt(lengthCounter);
+            SaveStateFormat.putBoolean(buffer, lengthEnabled);
+            buffer.putInt(volume);
+            buffer.putInt(initialVolume);
+            SaveStateFormat.putBoolean(buffer, envelopeIncrease);
+            buffer.putInt(envelopePeriod);
+            buffer.putInt(envelopeCounter);
+            SaveStateFormat.putBoolean(buffer, dacEnabled);
+        }
+
+        void loadState(ByteBuffer buffer) {
+            enabled = SaveStateFormat.getBoolean(buffer);
+            lengthCounter = buffer.getInt();
+            lengthEnabled = SaveStateFormat.getBoolean(buffer);
+            volume = buffer.getInt();
+            initialVolume = buffer.getInt();
+            envelopeIncrease = SaveStateFormat.getBoolean(buffer);
+            envelopePeriod = buffer.getInt();
+            envelopeCounter = buffer.getInt();
+            dacEnabled = SaveStateFormat.getBoolean(buffer);
+        }
     }
     static class PulseChannel extends SoundChannel {
         private final boolean hasSweep;
@@ -650,6 +1094,38 @@ public class APU {
         private boolean sweepEnabled;  
         private boolean sweepNegateUsed; 
 
+        @Override
+        void saveState(ByteBuffer buffer) {
+            super.saveState(buffer);
+            buffer.putInt(frequencyValue);
+            buffer.putInt(frequencyTimer);
+            buffer.putInt(dutyPattern);
+            buffer.putInt(dutyStep);
+            buffer.putInt(sweepPeriod);
+            SaveStateFormat.putBoolean(buffer, sweepDecrease);
+            buffer.putInt(sweepShift);
+            buffer.putInt(sweepCounter);
+            buffer.putInt(shadowFrequency);
+            SaveStateFormat.putBoolean(buffer, sweepEnabled);
+            SaveStateFormat.putBoolean(buffer, sweepNegateUsed);
+        }
+
+        @Override
+        void loadState(ByteBuffer buffer) {
+            super.loadState(buffer);
+            frequencyValue = buffer.getInt();
+            frequencyTimer = buffer.getInt();
+            dutyPattern = buffer.getInt();
+            dutyStep = buffer.getInt();
+            sweepPeriod = buffer.getInt();
+            sweepDecrease = SaveStateFormat.getBoolean(buffer);
+            sweepShift = buffer.getInt();
+            sweepCounter = buffer.getInt();
+            shadowFrequency = buffer.getInt();
+            sweepEnabled = SaveStateFormat.getBoolean(buffer);
+            sweepNegateUsed = SaveStateFormat.getBoolean(buffer);
+        }
+
         public PulseChannel(APU apu, boolean hasSweep) {
             super(apu);
             this.hasSweep = hasSweep;
@@ -811,8 +1287,10 @@ public class APU {
             int iterations = 0;
             
             while (frequencyTimer <= 0 && iterations < maxIterations) {
+                int offset = cycles + frequencyTimer;
                 frequencyTimer += (2048 - frequencyValue) * 4;
                 dutyStep = (dutyStep + 1) % 8;
+                apu.channelOutputChanged(this, offset);
                 iterations++;
             }
             
@@ -841,6 +1319,26 @@ public class APU {
         private int volumeShift;       
         private int sampleBuffer;      
 
+        @Override
+        void saveState(ByteBuffer buffer) {
+            super.saveState(buffer);
+            buffer.putInt(frequencyValue);
+            buffer.putInt(frequencyTimer);
+            buffer.putInt(wavePosition);
+            buffer.putInt(volumeShift);
+            buffer.putInt(sampleBuffer);
+        }
+
+        @Override
+        void loadState(ByteBuffer buffer) {
+            super.loadState(buffer);
+            frequencyValue = buffer.getInt();
+            frequencyTimer = buffer.getInt();
+            wavePosition = buffer.getInt();
+            volumeShift = buffer.getInt();
+            sampleBuffer = buffer.getInt();
+        }
+
         public WaveChannel(APU apu) {
             super(apu);
             reset();
@@ -923,11 +1421,13 @@ public class APU {
             int iterations = 0;
             
             while (frequencyTimer <= 0 && iterations < maxIterations) {
+                int offset = cycles + frequencyTimer;
                 frequencyTimer += (2048 - frequencyValue) * 2;
                 
                 wavePosition = (wavePosition + 1) % 32;
                 
                 readSampleToBuffer();
+                apu.channelOutputChanged(this, offset);
                 iterations++;
             }
             
@@ -984,6 +1484,26 @@ public class APU {
         
         private static final int[] DIVISORS = {8, 16, 32, 48, 64, 80, 96, 112};
 
+        @Override
+        void saveState(ByteBuffer buffer) {
+            super.saveState(buffer);
+            buffer.putInt(lfsr);
+            SaveStateFormat.putBoolean(buffer, lfsrWidth7);
+            buffer.putInt(clockShift);
+            buffer.putInt(divisorCode);
+            buffer.putInt(frequencyTimer);
+        }
+
+        @Override
+        void loadState(ByteBuffer buffer) {
+            super.loadState(buffer);
+            lfsr = buffer.getInt();
+            lfsrWidth7 = SaveStateFormat.getBoolean(buffer);
+            clockShift = buffer.getInt();
+            divisorCode = buffer.getInt();
+            frequencyTimer = buffer.getInt();
+        }
+
         public NoiseChannel(APU apu) {
             super(apu);
             reset();
@@ -1075,9 +1595,11 @@ public class APU {
             int iterations = 0;
             
             while (frequencyTimer <= 0 && iterations < maxIterations) {
+                int offset = cycles + frequencyTimer;
                 frequencyTimer += DIVISORS[divisorCode] << clockShift;
                 
                 clockLFSR();
+                apu.channelOutputChanged(this, offset);
                 iterations++;
             }
             
@@ -1129,6 +1651,54 @@ public class APU {
         dos.writeInt(frameSequencerStep);
     }
 
+    /**
+     * Bloco APU do save state v3. Os registradores são reaplicados na carga, como no formato antigo,
+     * e o estado interno dos canais é restaurado por cima, desfazendo os triggers que a reaplicação
+     * dispara.
+     */
+    public void saveState(ByteBuffer buffer) {
+        buffer.put(audioRegisters);
+        buffer.put(wavePatternRam);
+        SaveStateFormat.putBoolean(buffer, masterSoundEnable);
+        buffer.putInt(frameSequencerStep);
+        buffer.putInt(frameSequencerCycleCounter);
+        buffer.put((byte) nr50_master_volume);
+        buffer.put((byte) nr51_panning);
+        channel1.saveState(buffer);
+        channel2.saveState(buffer);
+        channel3.saveState(buffer);
+        channel4.saveState(buffer);
+    }
+
+    public void loadState(ByteBuffer buffer, int version) {
+        buffer.get(audioRegisters);
+        buffer.get(wavePatternRam);
+        masterSoundEnable = SaveStateFormat.getBoolean(buffer);
+        frameSequencerStep = buffer.getInt();
+        int cycleCounter = buffer.getInt();
+        reapplyRegisters();
+        frameSequencerCycleCounter = cycleCounter;
+        nr50_master_volume = buffer.get() & 0xFF;
+        nr51_panning = buffer.get() & 0xFF;
+        channel1.loadState(buffer);
+        channel2.loadState(buffer);
+        channel3.loadState(buffer);
+        channel4.loadState(buffer);
+        if (bandLimitedEnabled && !outputSuppressed) {
+            updateBandLimitedLevels(blipTime);
+        }
+    }
+
+    private void reapplyRegisters() {
+        // Só FF10-FF2F: de FF30 em diante é a wave RAM, que já foi restaurada
+        System.arraycopy(audioRegisters, 0, loadedRegisters, 0, loadedRegisters.length);
+        for (int i = 0; i < 0x20; i++) {
+            writeRegister(0xFF10 + i, loadedRegisters[i]);
+        }
+        // As escritas acima mascaram alguns bits (NR52 com o som desligado); mantém os valores salvos
+        System.arraycopy(loadedRegisters, 0, audioRegisters, 0, loadedRegisters.length);
+    }
+
     public void loadState(java.io.DataInputStream dis) throws java.io.IOException {
         for (int i = 0; i < audioRegisters.length; i++) {
             audioRegisters[i] = dis.readByte();
@@ -1139,8 +1709,6 @@ public class APU {
         masterSoundEnable = dis.readBoolean();
         frameSequencerStep = dis.readInt();
         
-        for (int i = 0; i < audioRegisters.length; i++) {
-            writeRegister(0xFF10 + i, audioRegisters[i]);
-        }
+        reapplyRegisters();
     }
 }
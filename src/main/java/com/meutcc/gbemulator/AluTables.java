@@ -0,0 +1,53 @@
+package com.meutcc.gbemulator;
+
+/**
+ * Tabelas pré-calculadas para as operações de 8 bits da ALU.
+ * Cada entrada guarda (resultado << 8) | F e é gerada chamando os próprios helpers do CPU
+ * (o caminho flag a flag), então as duas implementações não têm como divergir.
+ */
+final class AluTables {
+
+    enum Operation { ADD, ADC, SUB, SBC, CP, INC, DEC, DAA }
+
+    private static final int CARRY_FLAG = 0x10;
+
+    // Índice: (carry << 16) | (a << 8) | operando
+    static final char[] ADD = new char[0x20000];
+    static final char[] SUB = new char[0x20000];
+
+    // Índice: valor; o carry do F original é preservado pelo chamador
+    static final char[] INC = new char[0x100];
+    static final char[] DEC = new char[0x100];
+
+    // Índice: (a << 4) | (f >> 4)
+    static final char[] DAA = new char[0x1000];
+
+    static {
+        // CPU avulso, sem MMU e com as tabelas desligadas: só os helpers de referência
+        CPU reference = new CPU(null);
+        for (int carry = 0; carry <= 1; carry++) {
+            for (int a = 0; a < 0x100; a++) {
+                for (int val = 0; val < 0x100; val++) {
+                    int index = (carry << 16) | (a << 8) | val;
+                    // ADC/SBC com carry 0 são ADD/SUB
+                    ADD[index] = (char) reference.alu(Operation.ADC, a, carry != 0 ? CARRY_FLAG : 0, val);
+                    SUB[index] = (char) reference.alu(Operation.SBC, a, carry != 0 ? CARRY_FLAG : 0, val);
+                }
+            }
+        }
+
+        for (int val = 0; val < 0x100; val++) {
+            INC[val] = (char) reference.alu(Operation.INC, 0, 0, val);
+            DEC[val] = (char) reference.alu(Operation.DEC, 0, 0, val);
+        }
+
+        for (int a = 0; a < 0x100; a++) {
+            for (int flags = 0; flags < 0x10; flags++) {
+                DAA[(a << 4) | flags] = (char) reference.alu(Operation.DAA, a, flags << 4, 0);
+            }
+        }
+    }
+
+    private AluTables() {
+    }
+}
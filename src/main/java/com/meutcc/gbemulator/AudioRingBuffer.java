@@ -0,0 +1,91 @@
+package com.meutcc.gbemulator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffer circular lock-free de PCM para um produtor (thread de emulação) e um consumidor
+ * (thread de áudio). As posições só crescem; o índice no array é a posição & mask.
+ */
+public class AudioRingBuffer {
+
+    private final byte[] data;
+    private final int mask;
+    private final int frameBytes;
+
+    // Escrito apenas pelo produtor
+    private final AtomicLong writePosition = new AtomicLong();
+    // Escrito apenas pelo consumidor
+    private final AtomicLong readPosition = new AtomicLong();
+
+    /**
+     * @param capacityBytes arredondado para a próxima potência de 2
+     * @param frameBytes bytes por quadro PCM; leituras e escritas nunca quebram um quadro
+     */
+    public AudioRingBuffer(int capacityBytes, int frameBytes) {
+        int capacity = Integer.highestOneBit(Math.max(capacityBytes, frameBytes) - 1) << 1;
+        this.data = new byte[capacity];
+        this.mask = capacity - 1;
+        this.frameBytes = frameBytes;
+    }
+
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * Bytes prontos para leitura. Aproximado se chamado fora das duas threads.
+     */
+    public int available() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    public int free() {
+        return data.length - available();
+    }
+
+    /**
+     * Produtor: copia até length bytes, em quadros inteiros.
+     *
+     * @return bytes escritos; o restante não coube
+     */
+    public int write(byte[] src, int offset, int length) {
+        long write = writePosition.get();
+        int count = Math.min(length, data.length - (int) (write - readPosition.get()));
+        count -= count % frameBytes;
+        if (count <= 0) return 0;
+
+        int index = (int) write & mask;
+        int first = Math.min(count, data.length - index);
+        System.arraycopy(src, offset, data, index, first);
+        System.arraycopy(src, offset + first, data, 0, count - first);
+        // lazySet publica os dados copiados antes da nova posição
+        writePosition.lazySet(write + count);
+        return count;
+    }
+
+    /**
+     * Consumidor: copia até length bytes, em quadros inteiros.
+     *
+     * @return bytes lidos
+     */
+    public int read(byte[] dst, int offset, int length) {
+        long read = readPosition.get();
+        int count = Math.min(length, (int) (writePosition.get() - read));
+        count -= count % frameBytes;
+        if (count <= 0) return 0;
+
+        int index = (int) read & mask;
+        int first = Math.min(count, data.length - index);
+        System.arraycopy(data, index, dst, offset, first);
+        System.arraycopy(data, 0, dst, offset + first, count - first);
+        readPosition.lazySet(read + count);
+        return count;
+    }
+
+    /**
+     * Consumidor: descarta tudo o que já foi escrito.
+     */
+    public void discard() {
+        readPosition.lazySet(writePosition.get());
+    }
+}
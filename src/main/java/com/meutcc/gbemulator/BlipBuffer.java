@@ -0,0 +1,148 @@
+package com.meutcc.gbemulator;
+
+import java.util.Arrays;
+
+/**
+ * Buffer de síntese band-limited no estilo do blip_buf: os canais registram apenas as variações de
+ * amplitude (deltas) no ciclo exato em que acontecem, e cada delta é espalhado por um degrau
+ * limitado em banda (sinc janelado). A leitura integra os deltas já na taxa de saída, sem
+ * amostragem pontual e portanto sem aliasing.
+ */
+public final class BlipBuffer {
+
+    // Taps do kernel: o degrau ocupa KERNEL_WIDTH amostras de saída
+    private static final int HALF_WIDTH = 8;
+    private static final int KERNEL_WIDTH = HALF_WIDTH * 2;
+    // Posições fracionárias do degrau entre duas amostras
+    private static final int PHASE_BITS = 6;
+    private static final int PHASE_COUNT = 1 << PHASE_BITS;
+    // Soma de cada fase do kernel; a integração desfaz o fator com >> KERNEL_BITS
+    private static final int KERNEL_BITS = 12;
+    // Filtro passa-altas do integrador (remove o nível DC, ~15 Hz a 48 kHz)
+    private static final int BASS_SHIFT = 9;
+    // Tempo em ponto fixo 32.32 (amostras de saída)
+    private static final int FRACTION_BITS = 32;
+    private static final double CUTOFF = 0.9;
+
+    private static final int[][] KERNELS = buildKernels();
+
+    private final int sampleRate;
+    private long factor;
+    private final int[] buffer;
+    private final int capacity;
+    private long offset;
+    private int integrator;
+
+    /**
+     * @param clockRate frequência dos timestamps passados em addDelta (ciclos da CPU)
+     * @param sampleRate frequência de saída
+     * @param capacity máximo de amostras acumuladas entre leituras
+     */
+    public BlipBuffer(int clockRate, int sampleRate, int capacity) {
+        this.sampleRate = sampleRate;
+        setClockRate(clockRate);
+        this.capacity = capacity;
+        this.buffer = new int[capacity + KERNEL_WIDTH];
+        clear();
+    }
+
+    /**
+     * Muda a relação clock/amostra (controle dinâmico de taxa). Deve ser chamado logo após endFrame.
+     */
+    public void setClockRate(double clockRate) {
+        this.factor = (long) Math.ceil(sampleRate / clockRate * (1L << FRACTION_BITS));
+    }
+
+    public void clear() {
+        Arrays.fill(buffer, 0);
+        offset = 0;
+        integrator = 0;
+    }
+
+    /**
+     * Soma uma variação de amplitude no instante time (em ciclos desde o último endFrame).
+     */
+    public void addDelta(int time, int delta) {
+        long fixed = offset + time * factor;
+        int position = (int) (fixed >>> FRACTION_BITS);
+        int[] kernel = KERNELS[(int) (fixed >>> (FRACTION_BITS - PHASE_BITS)) & (PHASE_COUNT - 1)];
+        for (int i = 0; i < KERNEL_WIDTH; i++) {
+            buffer[position + i] += kernel[i] * delta;
+        }
+    }
+
+    /**
+     * Fecha o bloco atual de clocks ciclos; as amostras correspondentes ficam disponíveis para leitura.
+     */
+    public void endFrame(int clocks) {
+        offset += clocks * factor;
+        if (samplesAvailable() > capacity) {
+            throw new IllegalStateException("BlipBuffer cheio: " + samplesAvailable() + " > " + capacity);
+        }
+    }
+
+    public int samplesAvailable() {
+        return (int) (offset >>> FRACTION_BITS);
+    }
+
+    /**
+     * Integra até count amostras em out[outOffset], out[outOffset + stride], ... e as remove do buffer.
+     *
+     * @return número de amostras lidas
+     */
+    public int readSamples(short[] out, int outOffset, int count, int stride) {
+        count = Math.min(count, samplesAvailable());
+        int sum = integrator;
+        int index = outOffset;
+        for (int i = 0; i < count; i++) {
+            int sample = sum >> KERNEL_BITS;
+            if (sample > Short.MAX_VALUE) sample = Short.MAX_VALUE;
+            if (sample < Short.MIN_VALUE) sample = Short.MIN_VALUE;
+            out[index] = (short) sample;
+            index += stride;
+
+            sum += buffer[i];
+            sum -= (sum >> KERNEL_BITS) << (KERNEL_BITS - BASS_SHIFT);
+        }
+        integrator = sum;
+        removeSamples(count);
+        return count;
+    }
+
+    private void removeSamples(int count) {
+        int remaining = samplesAvailable() - count + KERNEL_WIDTH;
+        System.arraycopy(buffer, count, buffer, 0, remaining);
+        Arrays.fill(buffer, remaining, remaining + count, 0);
+        offset -= (long) count << FRACTION_BITS;
+    }
+
+    /**
+     * Degrau limitado em banda: para cada fase, a resposta ao impulso (sinc janelado por Blackman)
+     * amostrada nas KERNEL_WIDTH posições, normalizada para somar 1 << KERNEL_BITS.
+     */
+    private static int[][] buildKernels() {
+        int[][] kernels = new int[PHASE_COUNT][KERNEL_WIDTH];
+        double[] taps = new double[KERNEL_WIDTH];
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            double fraction = (double) phase / PHASE_COUNT;
+            double total = 0;
+            for (int i = 0; i < KERNEL_WIDTH; i++) {
+                double t = i - (HALF_WIDTH - 1) - fraction;
+                double x = Math.PI * CUTOFF * t;
+                double sinc = x == 0 ? 1.0 : Math.sin(x) / x;
+                double w = (t + HALF_WIDTH) / KERNEL_WIDTH;
+                double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * w) + 0.08 * Math.cos(4 * Math.PI * w);
+                taps[i] = sinc * Math.max(0, window);
+                total += taps[i];
+            }
+            int sum = 0;
+            for (int i = 0; i < KERNEL_WIDTH; i++) {
+                kernels[phase][i] = (int) Math.round(taps[i] / total * (1 << KERNEL_BITS));
+                sum += kernels[phase][i];
+            }
+            // Erro de arredondamento vai para o tap central, mantendo o ganho DC exato
+            kernels[phase][HALF_WIDTH - 1] += (1 << KERNEL_BITS) - sum;
+        }
+        return kernels;
+    }
+}
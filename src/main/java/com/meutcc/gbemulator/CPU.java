@@ -2,7 +2,21 @@ package com.meutcc.gbemulator;
 
 public class CPU {
 
+    public enum DispatchMode {
+        SWITCH,
+        TABLE
+    }
+
+    @FunctionalInterface
+    interface Instruction {
+        int execute(CPU cpu);
+    }
+
+    private static final Instruction[] OPCODE_TABLE = buildOpcodeTable();
+    private static final Instruction[] CB_OPCODE_TABLE = buildCbOpcodeTable();
+
     private final MMU mmu;
+    private final DispatchMode dispatchMode;
 
     private int a, f, b, c, d, e, h, l;
     private int sp;
@@ -19,6 +33,8 @@ public class CPU {
 
     private boolean debugUndocumentedOpcodes = false;
 
+    private boolean flagTableAlu = false;
+
     private boolean haltBugTriggered = false;
 
     private boolean eiDelayed = false;
@@ -26,10 +42,19 @@ public class CPU {
     private boolean stopped = false;
 
     public CPU(MMU mmu) {
+        this(mmu, DispatchMode.SWITCH);
+    }
+
+    public CPU(MMU mmu, DispatchMode dispatchMode) {
         this.mmu = mmu;
+        this.dispatchMode = dispatchMode;
         reset();
     }
 
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
     public void reset() {
         a = 0x01; f = 0xB0;
         b = 0x00; c = 0x13;
@@ -48,6 +73,14 @@ public class CPU {
     public void setDebugUndocumentedOpcodes(boolean enable) {
         this.debugUndocumentedOpcodes = enable;
     }
+
+    public void setFlagTableAluEnabled(boolean enable) {
+        this.flagTableAlu = enable;
+    }
+
+    public boolean isFlagTableAluEnabled() {
+        return flagTableAlu;
+    }
     
     private void executeHalt() {
         byte IE = (byte) mmu.readByte(0xFFFF);
@@ -90,13 +123,29 @@ public class CPU {
                 haltBugTriggered = false;
             }
 
-            decodeAndExecute(opcode);
-            executedCyclesThisStep = this.cycles;
+            if (dispatchMode == DispatchMode.TABLE) {
+                executedCyclesThisStep = OPCODE_TABLE[opcode].execute(this);
+            } else {
+                decodeAndExecute(opcode);
+                executedCyclesThisStep = this.cycles;
+            }
         }
 
         return executedCyclesThisStep;
     }
 
+    /**
+     * Verdadeiro se o próximo step() apenas consumiria 4 ciclos parado em HALT:
+     * sem EI atrasado e sem interrupção solicitada e habilitada.
+     */
+    public boolean canSkipHalt() {
+        return halted && !stopped && !eiDelayed && !isInterruptPending();
+    }
+
+    boolean isInterruptPending() {
+        return (mmu.readByte(0xFFFF) & mmu.readByte(0xFF0F) & 0x1F) != 0;
+    }
+
     private int fetch() {
         int opcode = mmu.readByte(pc);
         pc = (pc + 1) & 0xFFFF;
@@ -365,9 +414,7 @@ public class CPU {
             case 0xD1: setDE(popWord()); cycles = 12; break;
             case 0xD2: if (!getCarryFlag()) { jp_unconditional(); cycles = 16; } else { fetchWord(); cycles = 12; } break;
             case 0xD3:
-                if (debugUndocumentedOpcodes) {
-                    System.out.println(String.format("Executed undocumented opcode 0xD3 at PC: 0x%04X", (pc-1)&0xFFFF));
-                }
+                logUndocumentedOpcode(0xD3);
                 fetch(); // Consome o byte imediato, mas não faz nada com ele
                 cycles = 8; 
                 break;
@@ -381,9 +428,7 @@ public class CPU {
             case 0xDA: if (getCarryFlag()) { jp_unconditional(); cycles = 16; } else { fetchWord(); cycles = 12; } break;
 
             case 0xDB:
-                if (debugUndocumentedOpcodes) {
-                    System.out.println(String.format("Executed undocumented opcode 0xDB at PC: 0x%04X", (pc-1)&0xFFFF));
-                }
+                logUndocumentedOpcode(0xDB);
                 fetch(); // Consome o byte imediato, mas não faz nada com ele
                 cycles = 8; 
                 break;
@@ -622,6 +667,583 @@ public class CPU {
         }
     }
 
+    private void logUndocumentedOpcode(int opcode) {
+        if (debugUndocumentedOpcodes) {
+            System.out.println(String.format("Executed undocumented opcode 0x%02X at PC: 0x%04X", opcode, (pc-1)&0xFFFF));
+        }
+    }
+
+    // Mesma semântica do switch em decodeAndExecute/decodeCB; cada handler retorna os ciclos gastos.
+    private static Instruction[] buildOpcodeTable() {
+        Instruction[] table = new Instruction[256];
+        table[0x00] = cpu -> { return 4; };
+        table[0x01] = cpu -> { cpu.setBC(cpu.fetchWord()); return 12; };
+        table[0x02] = cpu -> { cpu.mmu.writeByte(cpu.getBC(), cpu.a); return 8; };
+        table[0x03] = cpu -> { cpu.setBC(cpu.getBC() + 1); return 8; };
+        table[0x04] = cpu -> { cpu.b = cpu.inc8(cpu.b); return 4; };
+        table[0x05] = cpu -> { cpu.b = cpu.dec8(cpu.b); return 4; };
+        table[0x06] = cpu -> { cpu.b = cpu.fetch(); return 8; };
+        table[0x07] = cpu -> { cpu.rlca(); return 4; };
+        table[0x08] = cpu -> { int addr = cpu.fetchWord(); cpu.mmu.writeByte(addr, cpu.sp & 0xFF); cpu.mmu.writeByte((addr + 1) & 0xFFFF, (cpu.sp >> 8) & 0xFF); return 20; };
+        table[0x09] = cpu -> { cpu.addHL(cpu.getBC()); return 8; };
+        table[0x0A] = cpu -> { cpu.a = cpu.mmu.readByte(cpu.getBC()); return 8; };
+        table[0x0B] = cpu -> { cpu.setBC(cpu.getBC() - 1); return 8; };
+        table[0x0C] = cpu -> { cpu.c = cpu.inc8(cpu.c); return 4; };
+        table[0x0D] = cpu -> { cpu.c = cpu.dec8(cpu.c); return 4; };
+        table[0x0E] = cpu -> { cpu.c = cpu.fetch(); return 8; };
+        table[0x0F] = cpu -> { cpu.rrca(); return 4; };
+
+        table[0x10] = cpu -> { cpu.fetch(); cpu.stopped = true; cpu.halted = false; return 4; };
+        table[0x11] = cpu -> { cpu.setDE(cpu.fetchWord()); return 12; };
+        table[0x12] = cpu -> { cpu.mmu.writeByte(cpu.getDE(), cpu.a); return 8; };
+        table[0x13] = cpu -> { cpu.setDE(cpu.getDE() + 1); return 8; };
+        table[0x14] = cpu -> { cpu.d = cpu.inc8(cpu.d); return 4; };
+        table[0x15] = cpu -> { cpu.d = cpu.dec8(cpu.d); return 4; };
+        table[0x16] = cpu -> { cpu.d = cpu.fetch(); return 8; };
+        table[0x17] = cpu -> { cpu.rla(); return 4; };
+        table[0x18] = cpu -> { cpu.jr_unconditional(); return 12; };
+        table[0x19] = cpu -> { cpu.addHL(cpu.getDE()); return 8; };
+        table[0x1A] = cpu -> { cpu.a = cpu.mmu.readByte(cpu.getDE()); return 8; };
+        table[0x1B] = cpu -> { cpu.setDE(cpu.getDE() - 1); return 8; };
+        table[0x1C] = cpu -> { cpu.e = cpu.inc8(cpu.e); return 4; };
+        table[0x1D] = cpu -> { cpu.e = cpu.dec8(cpu.e); return 4; };
+        table[0x1E] = cpu -> { cpu.e = cpu.fetch(); return 8; };
+        table[0x1F] = cpu -> { cpu.rra(); return 4; };
+
+        table[0x20] = cpu -> { if (!cpu.getZeroFlag()) { cpu.jr_unconditional(); return 12; } cpu.fetch(); return 8; };
+        table[0x21] = cpu -> { cpu.setHL(cpu.fetchWord()); return 12; };
+        table[0x22] = cpu -> { cpu.mmu.writeByte(cpu.getHL(), cpu.a); cpu.setHL(cpu.getHL() + 1); return 8; };
+        table[0x23] = cpu -> { cpu.setHL(cpu.getHL() + 1); return 8; };
+        table[0x24] = cpu -> { cpu.h = cpu.inc8(cpu.h); return 4; };
+        table[0x25] = cpu -> { cpu.h = cpu.dec8(cpu.h); return 4; };
+        table[0x26] = cpu -> { cpu.h = cpu.fetch(); return 8; };
+        table[0x27] = cpu -> { cpu.daa(); return 4; };
+        table[0x28] = cpu -> { if (cpu.getZeroFlag()) { cpu.jr_unconditional(); return 12; } cpu.fetch(); return 8; };
+        table[0x29] = cpu -> { cpu.addHL(cpu.getHL()); return 8; };
+        table[0x2A] = cpu -> { cpu.a = cpu.mmu.readByte(cpu.getHL()); cpu.setHL(cpu.getHL() + 1); return 8; };
+        table[0x2B] = cpu -> { cpu.setHL(cpu.getHL() - 1); return 8; };
+        table[0x2C] = cpu -> { cpu.l = cpu.inc8(cpu.l); return 4; };
+        table[0x2D] = cpu -> { cpu.l = cpu.dec8(cpu.l); return 4; };
+        table[0x2E] = cpu -> { cpu.l = cpu.fetch(); return 8; };
+        table[0x2F] = cpu -> { cpu.cpl(); return 4; };
+
+        table[0x30] = cpu -> { if (!cpu.getCarryFlag()) { cpu.jr_unconditional(); return 12; } cpu.fetch(); return 8; };
+        table[0x31] = cpu -> { cpu.sp = cpu.fetchWord(); return 12; };
+        table[0x32] = cpu -> { cpu.mmu.writeByte(cpu.getHL(), cpu.a); cpu.setHL(cpu.getHL() - 1); return 8; };
+        table[0x33] = cpu -> { cpu.sp = (cpu.sp + 1) & 0xFFFF; return 8; };
+        table[0x34] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.inc8(cpu.mmu.readByte(hl))); return 12; };
+        table[0x35] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.dec8(cpu.mmu.readByte(hl))); return 12; };
+        table[0x36] = cpu -> { cpu.mmu.writeByte(cpu.getHL(), cpu.fetch()); return 12; };
+        table[0x37] = cpu -> { cpu.scf(); return 4; };
+        table[0x38] = cpu -> { if (cpu.getCarryFlag()) { cpu.jr_unconditional(); return 12; } cpu.fetch(); return 8; };
+        table[0x39] = cpu -> { cpu.addHL(cpu.sp); return 8; };
+        table[0x3A] = cpu -> { cpu.a = cpu.mmu.readByte(cpu.getHL()); cpu.setHL(cpu.getHL() - 1); return 8; };
+        table[0x3B] = cpu -> { cpu.sp = (cpu.sp - 1) & 0xFFFF; return 8; };
+        table[0x3C] = cpu -> { cpu.a = cpu.inc8(cpu.a); return 4; };
+        table[0x3D] = cpu -> { cpu.a = cpu.dec8(cpu.a); return 4; };
+        table[0x3E] = cpu -> { cpu.a = cpu.fetch(); return 8; };
+        table[0x3F] = cpu -> { cpu.ccf(); return 4; };
+
+        table[0x40] = cpu -> { return 4; };
+        table[0x41] = cpu -> { cpu.b = cpu.c; return 4; };
+        table[0x42] = cpu -> { cpu.b = cpu.d; return 4; };
+        table[0x43] = cpu -> { cpu.b = cpu.e; return 4; };
+        table[0x44] = cpu -> { cpu.b = cpu.h; return 4; };
+        table[0x45] = cpu -> { cpu.b = cpu.l; return 4; };
+        table[0x46] = cpu -> { cpu.b = cpu.mmu.readByte(cpu.getHL()); return 8; };
+        table[0x47] = cpu -> { cpu.b = cpu.a; return 4; };
+        table[0x48] = cpu -> { cpu.c = cpu.b; return 4; };
+        table[0x49] = cpu -> { return 4; };
+        table[0x4A] = cpu -> { cpu.c = cpu.d; return 4; };
+        table[0x4B] = cpu -> { cpu.c = cpu.e; return 4; };
+        table[0x4C] = cpu -> { cpu.c = cpu.h; return 4; };
+        table[0x4D] = cpu -> { cpu.c = cpu.l; return 4; };
+        table[0x4E] = cpu -> { cpu.c = cpu.mmu.readByte(cpu.getHL()); return 8; };
+        table[0x4F] = cpu -> { cpu.c = cpu.a; return 4; };
+
+        table[0x50] = cpu -> { cpu.d = cpu.b; return 4; };
+        table[0x51] = cpu -> { cpu.d = cpu.c; return 4; };
+        table[0x52] = cpu -> { return 4; };
+        table[0x53] = cpu -> { cpu.d = cpu.e; return 4; };
+        table[0x54] = cpu -> { cpu.d = cpu.h; return 4; };
+        table[0x55] = cpu -> { cpu.d = cpu.l; return 4; };
+        table[0x56] = cpu -> { cpu.d = cpu.mmu.readByte(cpu.getHL()); return 8; };
+        table[0x57] = cpu -> { cpu.d = cpu.a; return 4; };
+        table[0x58] = cpu -> { cpu.e = cpu.b; return 4; };
+        table[0x59] = cpu -> { cpu.e = cpu.c; return 4; };
+        table[0x5A] = cpu -> { cpu.e = cpu.d; return 4; };
+        table[0x5B] = cpu -> { return 4; };
+        table[0x5C] = cpu -> { cpu.e = cpu.h; return 4; };
+        table[0x5D] = cpu -> { cpu.e = cpu.l; return 4; };
+        table[0x5E] = cpu -> { cpu.e = cpu.mmu.readByte(cpu.getHL()); return 8; };
+        table[0x5F] = cpu -> { cpu.e = cpu.a; return 4; };
+
+        table[0x60] = cpu -> { cpu.h = cpu.b; return 4; };
+        table[0x61] = cpu -> { cpu.h = cpu.c; return 4; };
+        table[0x62] = cpu -> { cpu.h = cpu.d; return 4; };
+        table[0x63] = cpu -> { cpu.h = cpu.e; return 4; };
+        table[0x64] = cpu -> { return 4; };
+        table[0x65] = cpu -> { cpu.h = cpu.l; return 4; };
+        table[0x66] = cpu -> { cpu.h = cpu.mmu.readByte(cpu.getHL()); return 8; };
+        table[0x67] = cpu -> { cpu.h = cpu.a; return 4; };
+        table[0x68] = cpu -> { cpu.l = cpu.b; return 4; };
+        table[0x69] = cpu -> { cpu.l = cpu.c; return 4; };
+        table[0x6A] = cpu -> { cpu.l = cpu.d; return 4; };
+        table[0x6B] = cpu -> { cpu.l = cpu.e; return 4; };
+        table[0x6C] = cpu -> { cpu.l = cpu.h; return 4; };
+        table[0x6D] = cpu -> { return 4; };
+        table[0x6E] = cpu -> { cpu.l = cpu.mmu.readByte(cpu.getHL()); return 8; };
+        table[0x6F] = cpu -> { cpu.l = cpu.a; return 4; };
+
+        table[0x70] = cpu -> { cpu.mmu.writeByte(cpu.getHL(), cpu.b); return 8; };
+        table[0x71] = cpu -> { cpu.mmu.writeByte(cpu.getHL(), cpu.c); return 8; };
+        table[0x72] = cpu -> { cpu.mmu.writeByte(cpu.getHL(), cpu.d); return 8; };
+        table[0x73] = cpu -> { cpu.mmu.writeByte(cpu.getHL(), cpu.e); return 8; };
+        table[0x74] = cpu -> { cpu.mmu.writeByte(cpu.getHL(), cpu.h); return 8; };
+        table[0x75] = cpu -> { cpu.mmu.writeByte(cpu.getHL(), cpu.l); return 8; };
+        table[0x76] = cpu -> { cpu.executeHalt(); return 4; };
+        table[0x77] = cpu -> { cpu.mmu.writeByte(cpu.getHL(), cpu.a); return 8; };
+        table[0x78] = cpu -> { cpu.a = cpu.b; return 4; };
+        table[0x79] = cpu -> { cpu.a = cpu.c; return 4; };
+        table[0x7A] = cpu -> { cpu.a = cpu.d; return 4; };
+        table[0x7B] = cpu -> { cpu.a = cpu.e; return 4; };
+        table[0x7C] = cpu -> { cpu.a = cpu.h; return 4; };
+        table[0x7D] = cpu -> { cpu.a = cpu.l; return 4; };
+        table[0x7E] = cpu -> { cpu.a = cpu.mmu.readByte(cpu.getHL()); return 8; };
+        table[0x7F] = cpu -> { return 4; };
+
+        table[0x80] = cpu -> { cpu.addA(cpu.b); return 4; };
+        table[0x81] = cpu -> { cpu.addA(cpu.c); return 4; };
+        table[0x82] = cpu -> { cpu.addA(cpu.d); return 4; };
+        table[0x83] = cpu -> { cpu.addA(cpu.e); return 4; };
+        table[0x84] = cpu -> { cpu.addA(cpu.h); return 4; };
+        table[0x85] = cpu -> { cpu.addA(cpu.l); return 4; };
+        table[0x86] = cpu -> { cpu.addA(cpu.mmu.readByte(cpu.getHL())); return 8; };
+        table[0x87] = cpu -> { cpu.addA(cpu.a); return 4; };
+        table[0x88] = cpu -> { cpu.adcA(cpu.b); return 4; };
+        table[0x89] = cpu -> { cpu.adcA(cpu.c); return 4; };
+        table[0x8A] = cpu -> { cpu.adcA(cpu.d); return 4; };
+        table[0x8B] = cpu -> { cpu.adcA(cpu.e); return 4; };
+        table[0x8C] = cpu -> { cpu.adcA(cpu.h); return 4; };
+        table[0x8D] = cpu -> { cpu.adcA(cpu.l); return 4; };
+        table[0x8E] = cpu -> { cpu.adcA(cpu.mmu.readByte(cpu.getHL())); return 8; };
+        table[0x8F] = cpu -> { cpu.adcA(cpu.a); return 4; };
+
+        table[0x90] = cpu -> { cpu.subA(cpu.b); return 4; };
+        table[0x91] = cpu -> { cpu.subA(cpu.c); return 4; };
+        table[0x92] = cpu -> { cpu.subA(cpu.d); return 4; };
+        table[0x93] = cpu -> { cpu.subA(cpu.e); return 4; };
+        table[0x94] = cpu -> { cpu.subA(cpu.h); return 4; };
+        table[0x95] = cpu -> { cpu.subA(cpu.l); return 4; };
+        table[0x96] = cpu -> { cpu.subA(cpu.mmu.readByte(cpu.getHL())); return 8; };
+        table[0x97] = cpu -> { cpu.subA(cpu.a); return 4; };
+        table[0x98] = cpu -> { cpu.sbcA(cpu.b); return 4; };
+        table[0x99] = cpu -> { cpu.sbcA(cpu.c); return 4; };
+        table[0x9A] = cpu -> { cpu.sbcA(cpu.d); return 4; };
+        table[0x9B] = cpu -> { cpu.sbcA(cpu.e); return 4; };
+        table[0x9C] = cpu -> { cpu.sbcA(cpu.h); return 4; };
+        table[0x9D] = cpu -> { cpu.sbcA(cpu.l); return 4; };
+        table[0x9E] = cpu -> { cpu.sbcA(cpu.mmu.readByte(cpu.getHL())); return 8; };
+        table[0x9F] = cpu -> { cpu.sbcA(cpu.a); return 4; };
+
+        table[0xA0] = cpu -> { cpu.andA(cpu.b); return 4; };
+        table[0xA1] = cpu -> { cpu.andA(cpu.c); return 4; };
+        table[0xA2] = cpu -> { cpu.andA(cpu.d); return 4; };
+        table[0xA3] = cpu -> { cpu.andA(cpu.e); return 4; };
+        table[0xA4] = cpu -> { cpu.andA(cpu.h); return 4; };
+        table[0xA5] = cpu -> { cpu.andA(cpu.l); return 4; };
+        table[0xA6] = cpu -> { cpu.andA(cpu.mmu.readByte(cpu.getHL())); return 8; };
+        table[0xA7] = cpu -> { cpu.andA(cpu.a); return 4; };
+        table[0xA8] = cpu -> { cpu.xorA(cpu.b); return 4; };
+        table[0xA9] = cpu -> { cpu.xorA(cpu.c); return 4; };
+        table[0xAA] = cpu -> { cpu.xorA(cpu.d); return 4; };
+        table[0xAB] = cpu -> { cpu.xorA(cpu.e); return 4; };
+        table[0xAC] = cpu -> { cpu.xorA(cpu.h); return 4; };
+        table[0xAD] = cpu -> { cpu.xorA(cpu.l); return 4; };
+        table[0xAE] = cpu -> { cpu.xorA(cpu.mmu.readByte(cpu.getHL())); return 8; };
+        table[0xAF] = cpu -> { cpu.xorA(cpu.a); return 4; };
+
+        table[0xB0] = cpu -> { cpu.orA(cpu.b); return 4; };
+        table[0xB1] = cpu -> { cpu.orA(cpu.c); return 4; };
+        table[0xB2] = cpu -> { cpu.orA(cpu.d); return 4; };
+        table[0xB3] = cpu -> { cpu.orA(cpu.e); return 4; };
+        table[0xB4] = cpu -> { cpu.orA(cpu.h); return 4; };
+        table[0xB5] = cpu -> { cpu.orA(cpu.l); return 4; };
+        table[0xB6] = cpu -> { cpu.orA(cpu.mmu.readByte(cpu.getHL())); return 8; };
+        table[0xB7] = cpu -> { cpu.orA(cpu.a); return 4; };
+        table[0xB8] = cpu -> { cpu.cpA(cpu.b); return 4; };
+        table[0xB9] = cpu -> { cpu.cpA(cpu.c); return 4; };
+        table[0xBA] = cpu -> { cpu.cpA(cpu.d); return 4; };
+        table[0xBB] = cpu -> { cpu.cpA(cpu.e); return 4; };
+        table[0xBC] = cpu -> { cpu.cpA(cpu.h); return 4; };
+        table[0xBD] = cpu -> { cpu.cpA(cpu.l); return 4; };
+        table[0xBE] = cpu -> { cpu.cpA(cpu.mmu.readByte(cpu.getHL())); return 8; };
+        table[0xBF] = cpu -> { cpu.cpA(cpu.a); return 4; };
+
+        table[0xC0] = cpu -> { if (!cpu.getZeroFlag()) { cpu.ret(); return 20; } return 8; };
+        table[0xC1] = cpu -> { cpu.setBC(cpu.popWord()); return 12; };
+        table[0xC2] = cpu -> { if (!cpu.getZeroFlag()) { cpu.jp_unconditional(); return 16; } cpu.fetchWord(); return 12; };
+        table[0xC3] = cpu -> { cpu.jp_unconditional(); return 16; };
+        table[0xC4] = cpu -> { if (!cpu.getZeroFlag()) { cpu.call_unconditional(); return 24; } cpu.fetchWord(); return 12; };
+        table[0xC5] = cpu -> { cpu.pushWord(cpu.getBC()); return 16; };
+        table[0xC6] = cpu -> { cpu.addA(cpu.fetch()); return 8; };
+        table[0xC7] = cpu -> { cpu.rst(0x00); return 16; };
+        table[0xC8] = cpu -> { if (cpu.getZeroFlag()) { cpu.ret(); return 20; } return 8; };
+        table[0xC9] = cpu -> { cpu.ret(); return 16; };
+        table[0xCA] = cpu -> { if (cpu.getZeroFlag()) { cpu.jp_unconditional(); return 16; } cpu.fetchWord(); return 12; };
+        table[0xCB] = cpu -> { return CB_OPCODE_TABLE[cpu.fetch()].execute(cpu); };
+        table[0xCC] = cpu -> { if (cpu.getZeroFlag()) { cpu.call_unconditional(); return 24; } cpu.fetchWord(); return 12; };
+        table[0xCD] = cpu -> { cpu.call_unconditional(); return 24; };
+        table[0xCE] = cpu -> { cpu.adcA(cpu.fetch()); return 8; };
+        table[0xCF] = cpu -> { cpu.rst(0x08); return 16; };
+
+        table[0xD0] = cpu -> { if (!cpu.getCarryFlag()) { cpu.ret(); return 20; } return 8; };
+        table[0xD1] = cpu -> { cpu.setDE(cpu.popWord()); return 12; };
+        table[0xD2] = cpu -> { if (!cpu.getCarryFlag()) { cpu.jp_unconditional(); return 16; } cpu.fetchWord(); return 12; };
+        table[0xD3] = cpu -> { cpu.logUndocumentedOpcode(0xD3); cpu.fetch(); return 8; };
+        table[0xD4] = cpu -> { if (!cpu.getCarryFlag()) { cpu.call_unconditional(); return 24; } cpu.fetchWord(); return 12; };
+        table[0xD5] = cpu -> { cpu.pushWord(cpu.getDE()); return 16; };
+        table[0xD6] = cpu -> { cpu.subA(cpu.fetch()); return 8; };
+        table[0xD7] = cpu -> { cpu.rst(0x10); return 16; };
+        table[0xD8] = cpu -> { if (cpu.getCarryFlag()) { cpu.ret(); return 20; } return 8; };
+        table[0xD9] = cpu -> { cpu.ret(); cpu.ime = true; return 16; };
+        table[0xDA] = cpu -> { if (cpu.getCarryFlag()) { cpu.jp_unconditional(); return 16; } cpu.fetchWord(); return 12; };
+        table[0xDB] = cpu -> { cpu.logUndocumentedOpcode(0xDB); cpu.fetch(); return 8; };
+        table[0xDC] = cpu -> { if (cpu.getCarryFlag()) { cpu.call_unconditional(); return 24; } cpu.fetchWord(); return 12; };
+        table[0xDD] = cpu -> { return 8; };
+        table[0xDE] = cpu -> { cpu.sbcA(cpu.fetch()); return 8; };
+        table[0xDF] = cpu -> { cpu.rst(0x18); return 16; };
+
+        table[0xE0] = cpu -> { cpu.mmu.writeByte(0xFF00 + cpu.fetch(), cpu.a); return 12; };
+        table[0xE1] = cpu -> { cpu.setHL(cpu.popWord()); return 12; };
+        table[0xE2] = cpu -> { cpu.mmu.writeByte(0xFF00 + (cpu.c & 0xFF), cpu.a); return 8; };
+        table[0xE3] = cpu -> { return 8; };
+        table[0xE4] = cpu -> { cpu.fetch(); return 8; };
+        table[0xE5] = cpu -> { cpu.pushWord(cpu.getHL()); return 16; };
+        table[0xE6] = cpu -> { cpu.andA(cpu.fetch()); return 8; };
+        table[0xE7] = cpu -> { cpu.rst(0x20); return 16; };
+        table[0xE8] = cpu -> { cpu.addSP_r8(); return 16; };
+        table[0xE9] = cpu -> { cpu.pc = cpu.getHL(); return 4; };
+        table[0xEA] = cpu -> { cpu.mmu.writeByte(cpu.fetchWord(), cpu.a); return 16; };
+        table[0xEB] = cpu -> { return 8; };
+        table[0xEC] = cpu -> { cpu.fetchWord(); return 12; };
+        table[0xED] = cpu -> { return 8; };
+        table[0xEE] = cpu -> { cpu.xorA(cpu.fetch()); return 8; };
+        table[0xEF] = cpu -> { cpu.rst(0x28); return 16; };
+
+        table[0xF0] = cpu -> { cpu.a = cpu.mmu.readByte(0xFF00 + cpu.fetch()); return 12; };
+        table[0xF1] = cpu -> { cpu.setAF(cpu.popWord()); return 12; };
+        table[0xF2] = cpu -> { cpu.a = cpu.mmu.readByte(0xFF00 + (cpu.c & 0xFF)); return 8; };
+        table[0xF3] = cpu -> { cpu.ime = false; return 4; };
+        table[0xF4] = cpu -> { cpu.fetchWord(); return 12; };
+        table[0xF5] = cpu -> { cpu.pushWord(cpu.getAF()); return 16; };
+        table[0xF6] = cpu -> { cpu.orA(cpu.fetch()); return 8; };
+        table[0xF7] = cpu -> { cpu.rst(0x30); return 16; };
+        table[0xF8] = cpu -> { cpu.ldHL_SP_r8(); return 12; };
+        table[0xF9] = cpu -> { cpu.sp = cpu.getHL(); return 8; };
+        table[0xFA] = cpu -> { cpu.a = cpu.mmu.readByte(cpu.fetchWord()); return 16; };
+        table[0xFB] = cpu -> { cpu.eiDelayed = true; return 4; };
+        table[0xFC] = cpu -> { cpu.fetchWord(); return 12; };
+        table[0xFD] = cpu -> { return 8; };
+        table[0xFE] = cpu -> { cpu.cpA(cpu.fetch()); return 8; };
+        table[0xFF] = cpu -> { cpu.rst(0x38); return 16; };
+
+        return table;
+    }
+
+    private static Instruction[] buildCbOpcodeTable() {
+        Instruction[] table = new Instruction[256];
+        table[0x00] = cpu -> { cpu.b = cpu.rlc(cpu.b); return 8; };
+        table[0x01] = cpu -> { cpu.c = cpu.rlc(cpu.c); return 8; };
+        table[0x02] = cpu -> { cpu.d = cpu.rlc(cpu.d); return 8; };
+        table[0x03] = cpu -> { cpu.e = cpu.rlc(cpu.e); return 8; };
+        table[0x04] = cpu -> { cpu.h = cpu.rlc(cpu.h); return 8; };
+        table[0x05] = cpu -> { cpu.l = cpu.rlc(cpu.l); return 8; };
+        table[0x06] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.rlc(cpu.mmu.readByte(hl))); return 16; };
+        table[0x07] = cpu -> { cpu.a = cpu.rlc(cpu.a); return 8; };
+
+        table[0x08] = cpu -> { cpu.b = cpu.rrc(cpu.b); return 8; };
+        table[0x09] = cpu -> { cpu.c = cpu.rrc(cpu.c); return 8; };
+        table[0x0A] = cpu -> { cpu.d = cpu.rrc(cpu.d); return 8; };
+        table[0x0B] = cpu -> { cpu.e = cpu.rrc(cpu.e); return 8; };
+        table[0x0C] = cpu -> { cpu.h = cpu.rrc(cpu.h); return 8; };
+        table[0x0D] = cpu -> { cpu.l = cpu.rrc(cpu.l); return 8; };
+        table[0x0E] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.rrc(cpu.mmu.readByte(hl))); return 16; };
+        table[0x0F] = cpu -> { cpu.a = cpu.rrc(cpu.a); return 8; };
+
+        table[0x10] = cpu -> { cpu.b = cpu.rl(cpu.b); return 8; };
+        table[0x11] = cpu -> { cpu.c = cpu.rl(cpu.c); return 8; };
+        table[0x12] = cpu -> { cpu.d = cpu.rl(cpu.d); return 8; };
+        table[0x13] = cpu -> { cpu.e = cpu.rl(cpu.e); return 8; };
+        table[0x14] = cpu -> { cpu.h = cpu.rl(cpu.h); return 8; };
+        table[0x15] = cpu -> { cpu.l = cpu.rl(cpu.l); return 8; };
+        table[0x16] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.rl(cpu.mmu.readByte(hl))); return 16; };
+        table[0x17] = cpu -> { cpu.a = cpu.rl(cpu.a); return 8; };
+
+        table[0x18] = cpu -> { cpu.b = cpu.rr(cpu.b); return 8; };
+        table[0x19] = cpu -> { cpu.c = cpu.rr(cpu.c); return 8; };
+        table[0x1A] = cpu -> { cpu.d = cpu.rr(cpu.d); return 8; };
+        table[0x1B] = cpu -> { cpu.e = cpu.rr(cpu.e); return 8; };
+        table[0x1C] = cpu -> { cpu.h = cpu.rr(cpu.h); return 8; };
+        table[0x1D] = cpu -> { cpu.l = cpu.rr(cpu.l); return 8; };
+        table[0x1E] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.rr(cpu.mmu.readByte(hl))); return 16; };
+        table[0x1F] = cpu -> { cpu.a = cpu.rr(cpu.a); return 8; };
+
+        table[0x20] = cpu -> { cpu.b = cpu.sla(cpu.b); return 8; };
+        table[0x21] = cpu -> { cpu.c = cpu.sla(cpu.c); return 8; };
+        table[0x22] = cpu -> { cpu.d = cpu.sla(cpu.d); return 8; };
+        table[0x23] = cpu -> { cpu.e = cpu.sla(cpu.e); return 8; };
+        table[0x24] = cpu -> { cpu.h = cpu.sla(cpu.h); return 8; };
+        table[0x25] = cpu -> { cpu.l = cpu.sla(cpu.l); return 8; };
+        table[0x26] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.sla(cpu.mmu.readByte(hl))); return 16; };
+        table[0x27] = cpu -> { cpu.a = cpu.sla(cpu.a); return 8; };
+
+        table[0x28] = cpu -> { cpu.b = cpu.sra(cpu.b); return 8; };
+        table[0x29] = cpu -> { cpu.c = cpu.sra(cpu.c); return 8; };
+        table[0x2A] = cpu -> { cpu.d = cpu.sra(cpu.d); return 8; };
+        table[0x2B] = cpu -> { cpu.e = cpu.sra(cpu.e); return 8; };
+        table[0x2C] = cpu -> { cpu.h = cpu.sra(cpu.h); return 8; };
+        table[0x2D] = cpu -> { cpu.l = cpu.sra(cpu.l); return 8; };
+        table[0x2E] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.sra(cpu.mmu.readByte(hl))); return 16; };
+        table[0x2F] = cpu -> { cpu.a = cpu.sra(cpu.a); return 8; };
+
+        table[0x30] = cpu -> { cpu.b = cpu.swap(cpu.b); return 8; };
+        table[0x31] = cpu -> { cpu.c = cpu.swap(cpu.c); return 8; };
+        table[0x32] = cpu -> { cpu.d = cpu.swap(cpu.d); return 8; };
+        table[0x33] = cpu -> { cpu.e = cpu.swap(cpu.e); return 8; };
+        table[0x34] = cpu -> { cpu.h = cpu.swap(cpu.h); return 8; };
+        table[0x35] = cpu -> { cpu.l = cpu.swap(cpu.l); return 8; };
+        table[0x36] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.swap(cpu.mmu.readByte(hl))); return 16; };
+        table[0x37] = cpu -> { cpu.a = cpu.swap(cpu.a); return 8; };
+
+        table[0x38] = cpu -> { cpu.b = cpu.srl(cpu.b); return 8; };
+        table[0x39] = cpu -> { cpu.c = cpu.srl(cpu.c); return 8; };
+        table[0x3A] = cpu -> { cpu.d = cpu.srl(cpu.d); return 8; };
+        table[0x3B] = cpu -> { cpu.e = cpu.srl(cpu.e); return 8; };
+        table[0x3C] = cpu -> { cpu.h = cpu.srl(cpu.h); return 8; };
+        table[0x3D] = cpu -> { cpu.l = cpu.srl(cpu.l); return 8; };
+        table[0x3E] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.srl(cpu.mmu.readByte(hl))); return 16; };
+        table[0x3F] = cpu -> { cpu.a = cpu.srl(cpu.a); return 8; };
+
+        table[0x40] = cpu -> { cpu.bitTest(cpu.b, 0); return 8; };
+        table[0x41] = cpu -> { cpu.bitTest(cpu.c, 0); return 8; };
+        table[0x42] = cpu -> { cpu.bitTest(cpu.d, 0); return 8; };
+        table[0x43] = cpu -> { cpu.bitTest(cpu.e, 0); return 8; };
+        table[0x44] = cpu -> { cpu.bitTest(cpu.h, 0); return 8; };
+        table[0x45] = cpu -> { cpu.bitTest(cpu.l, 0); return 8; };
+        table[0x46] = cpu -> { cpu.bitTest(cpu.mmu.readByte(cpu.getHL()), 0); return 12; };
+        table[0x47] = cpu -> { cpu.bitTest(cpu.a, 0); return 8; };
+
+        table[0x48] = cpu -> { cpu.bitTest(cpu.b, 1); return 8; };
+        table[0x49] = cpu -> { cpu.bitTest(cpu.c, 1); return 8; };
+        table[0x4A] = cpu -> { cpu.bitTest(cpu.d, 1); return 8; };
+        table[0x4B] = cpu -> { cpu.bitTest(cpu.e, 1); return 8; };
+        table[0x4C] = cpu -> { cpu.bitTest(cpu.h, 1); return 8; };
+        table[0x4D] = cpu -> { cpu.bitTest(cpu.l, 1); return 8; };
+        table[0x4E] = cpu -> { cpu.bitTest(cpu.mmu.readByte(cpu.getHL()), 1); return 12; };
+        table[0x4F] = cpu -> { cpu.bitTest(cpu.a, 1); return 8; };
+
+        table[0x50] = cpu -> { cpu.bitTest(cpu.b, 2); return 8; };
+        table[0x51] = cpu -> { cpu.bitTest(cpu.c, 2); return 8; };
+        table[0x52] = cpu -> { cpu.bitTest(cpu.d, 2); return 8; };
+        table[0x53] = cpu -> { cpu.bitTest(cpu.e, 2); return 8; };
+        table[0x54] = cpu -> { cpu.bitTest(cpu.h, 2); return 8; };
+        table[0x55] = cpu -> { cpu.bitTest(cpu.l, 2); return 8; };
+        table[0x56] = cpu -> { cpu.bitTest(cpu.mmu.readByte(cpu.getHL()), 2); return 12; };
+        table[0x57] = cpu -> { cpu.bitTest(cpu.a, 2); return 8; };
+
+        table[0x58] = cpu -> { cpu.bitTest(cpu.b, 3); return 8; };
+        table[0x59] = cpu -> { cpu.bitTest(cpu.c, 3); return 8; };
+        table[0x5A] = cpu -> { cpu.bitTest(cpu.d, 3); return 8; };
+        table[0x5B] = cpu -> { cpu.bitTest(cpu.e, 3); return 8; };
+        table[0x5C] = cpu -> { cpu.bitTest(cpu.h, 3); return 8; };
+        table[0x5D] = cpu -> { cpu.bitTest(cpu.l, 3); return 8; };
+        table[0x5E] = cpu -> { cpu.bitTest(cpu.mmu.readByte(cpu.getHL()), 3); return 12; };
+        table[0x5F] = cpu -> { cpu.bitTest(cpu.a, 3); return 8; };
+
+        table[0x60] = cpu -> { cpu.bitTest(cpu.b, 4); return 8; };
+        table[0x61] = cpu -> { cpu.bitTest(cpu.c, 4); return 8; };
+        table[0x62] = cpu -> { cpu.bitTest(cpu.d, 4); return 8; };
+        table[0x63] = cpu -> { cpu.bitTest(cpu.e, 4); return 8; };
+        table[0x64] = cpu -> { cpu.bitTest(cpu.h, 4); return 8; };
+        table[0x65] = cpu -> { cpu.bitTest(cpu.l, 4); return 8; };
+        table[0x66] = cpu -> { cpu.bitTest(cpu.mmu.readByte(cpu.getHL()), 4); return 12; };
+        table[0x67] = cpu -> { cpu.bitTest(cpu.a, 4); return 8; };
+
+        table[0x68] = cpu -> { cpu.bitTest(cpu.b, 5); return 8; };
+        table[0x69] = cpu -> { cpu.bitTest(cpu.c, 5); return 8; };
+        table[0x6A] = cpu -> { cpu.bitTest(cpu.d, 5); return 8; };
+        table[0x6B] = cpu -> { cpu.bitTest(cpu.e, 5); return 8; };
+        table[0x6C] = cpu -> { cpu.bitTest(cpu.h, 5); return 8; };
+        table[0x6D] = cpu -> { cpu.bitTest(cpu.l, 5); return 8; };
+        table[0x6E] = cpu -> { cpu.bitTest(cpu.mmu.readByte(cpu.getHL()), 5); return 12; };
+        table[0x6F] = cpu -> { cpu.bitTest(cpu.a, 5); return 8; };
+
+        table[0x70] = cpu -> { cpu.bitTest(cpu.b, 6); return 8; };
+        table[0x71] = cpu -> { cpu.bitTest(cpu.c, 6); return 8; };
+        table[0x72] = cpu -> { cpu.bitTest(cpu.d, 6); return 8; };
+        table[0x73] = cpu -> { cpu.bitTest(cpu.e, 6); return 8; };
+        table[0x74] = cpu -> { cpu.bitTest(cpu.h, 6); return 8; };
+        table[0x75] = cpu -> { cpu.bitTest(cpu.l, 6); return 8; };
+        table[0x76] = cpu -> { cpu.bitTest(cpu.mmu.readByte(cpu.getHL()), 6); return 12; };
+        table[0x77] = cpu -> { cpu.bitTest(cpu.a, 6); return 8; };
+
+        table[0x78] = cpu -> { cpu.bitTest(cpu.b, 7); return 8; };
+        table[0x79] = cpu -> { cpu.bitTest(cpu.c, 7); return 8; };
+        table[0x7A] = cpu -> { cpu.bitTest(cpu.d, 7); return 8; };
+        table[0x7B] = cpu -> { cpu.bitTest(cpu.e, 7); return 8; };
+        table[0x7C] = cpu -> { cpu.bitTest(cpu.h, 7); return 8; };
+        table[0x7D] = cpu -> { cpu.bitTest(cpu.l, 7); return 8; };
+        table[0x7E] = cpu -> { cpu.bitTest(cpu.mmu.readByte(cpu.getHL()), 7); return 12; };
+        table[0x7F] = cpu -> { cpu.bitTest(cpu.a, 7); return 8; };
+
+        table[0x80] = cpu -> { cpu.b = cpu.res(cpu.b, 0); return 8; };
+        table[0x81] = cpu -> { cpu.c = cpu.res(cpu.c, 0); return 8; };
+        table[0x82] = cpu -> { cpu.d = cpu.res(cpu.d, 0); return 8; };
+        table[0x83] = cpu -> { cpu.e = cpu.res(cpu.e, 0); return 8; };
+        table[0x84] = cpu -> { cpu.h = cpu.res(cpu.h, 0); return 8; };
+        table[0x85] = cpu -> { cpu.l = cpu.res(cpu.l, 0); return 8; };
+        table[0x86] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.res(cpu.mmu.readByte(hl), 0)); return 16; };
+        table[0x87] = cpu -> { cpu.a = cpu.res(cpu.a, 0); return 8; };
+
+        table[0x88] = cpu -> { cpu.b = cpu.res(cpu.b, 1); return 8; };
+        table[0x89] = cpu -> { cpu.c = cpu.res(cpu.c, 1); return 8; };
+        table[0x8A] = cpu -> { cpu.d = cpu.res(cpu.d, 1); return 8; };
+        table[0x8B] = cpu -> { cpu.e = cpu.res(cpu.e, 1); return 8; };
+        table[0x8C] = cpu -> { cpu.h = cpu.res(cpu.h, 1); return 8; };
+        table[0x8D] = cpu -> { cpu.l = cpu.res(cpu.l, 1); return 8; };
+        table[0x8E] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.res(cpu.mmu.readByte(hl), 1)); return 16; };
+        table[0x8F] = cpu -> { cpu.a = cpu.res(cpu.a, 1); return 8; };
+
+        table[0x90] = cpu -> { cpu.b = cpu.res(cpu.b, 2); return 8; };
+        table[0x91] = cpu -> { cpu.c = cpu.res(cpu.c, 2); return 8; };
+        table[0x92] = cpu -> { cpu.d = cpu.res(cpu.d, 2); return 8; };
+        table[0x93] = cpu -> { cpu.e = cpu.res(cpu.e, 2); return 8; };
+        table[0x94] = cpu -> { cpu.h = cpu.res(cpu.h, 2); return 8; };
+        table[0x95] = cpu -> { cpu.l = cpu.res(cpu.l, 2); return 8; };
+        table[0x96] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.res(cpu.mmu.readByte(hl), 2)); return 16; };
+        table[0x97] = cpu -> { cpu.a = cpu.res(cpu.a, 2); return 8; };
+
+        table[0x98] = cpu -> { cpu.b = cpu.res(cpu.b, 3); return 8; };
+        table[0x99] = cpu -> { cpu.c = cpu.res(cpu.c, 3); return 8; };
+        table[0x9A] = cpu -> { cpu.d = cpu.res(cpu.d, 3); return 8; };
+        table[0x9B] = cpu -> { cpu.e = cpu.res(cpu.e, 3); return 8; };
+        table[0x9C] = cpu -> { cpu.h = cpu.res(cpu.h, 3); return 8; };
+        table[0x9D] = cpu -> { cpu.l = cpu.res(cpu.l, 3); return 8; };
+        table[0x9E] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.res(cpu.mmu.readByte(hl), 3)); return 16; };
+        table[0x9F] = cpu -> { cpu.a = cpu.res(cpu.a, 3); return 8; };
+
+        table[0xA0] = cpu -> { cpu.b = cpu.res(cpu.b, 4); return 8; };
+        table[0xA1] = cpu -> { cpu.c = cpu.res(cpu.c, 4); return 8; };
+        table[0xA2] = cpu -> { cpu.d = cpu.res(cpu.d, 4); return 8; };
+        table[0xA3] = cpu -> { cpu.e = cpu.res(cpu.e, 4); return 8; };
+        table[0xA4] = cpu -> { cpu.h = cpu.res(cpu.h, 4); return 8; };
+        table[0xA5] = cpu -> { cpu.l = cpu.res(cpu.l, 4); return 8; };
+        table[0xA6] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.res(cpu.mmu.readByte(hl), 4)); return 16; };
+        table[0xA7] = cpu -> { cpu.a = cpu.res(cpu.a, 4); return 8; };
+
+        table[0xA8] = cpu -> { cpu.b = cpu.res(cpu.b, 5); return 8; };
+        table[0xA9] = cpu -> { cpu.c = cpu.res(cpu.c, 5); return 8; };
+        table[0xAA] = cpu -> { cpu.d = cpu.res(cpu.d, 5); return 8; };
+        table[0xAB] = cpu -> { cpu.e = cpu.res(cpu.e, 5); return 8; };
+        table[0xAC] = cpu -> { cpu.h = cpu.res(cpu.h, 5); return 8; };
+        table[0xAD] = cpu -> { cpu.l = cpu.res(cpu.l, 5); return 8; };
+        table[0xAE] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.res(cpu.mmu.readByte(hl), 5)); return 16; };
+        table[0xAF] = cpu -> { cpu.a = cpu.res(cpu.a, 5); return 8; };
+
+        table[0xB0] = cpu -> { cpu.b = cpu.res(cpu.b, 6); return 8; };
+        table[0xB1] = cpu -> { cpu.c = cpu.res(cpu.c, 6); return 8; };
+        table[0xB2] = cpu -> { cpu.d = cpu.res(cpu.d, 6); return 8; };
+        table[0xB3] = cpu -> { cpu.e = cpu.res(cpu.e, 6); return 8; };
+        table[0xB4] = cpu -> { cpu.h = cpu.res(cpu.h, 6); return 8; };
+        table[0xB5] = cpu -> { cpu.l = cpu.res(cpu.l, 6); return 8; };
+        table[0xB6] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.res(cpu.mmu.readByte(hl), 6)); return 16; };
+        table[0xB7] = cpu -> { cpu.a = cpu.res(cpu.a, 6); return 8; };
+
+        table[0xB8] = cpu -> { cpu.b = cpu.res(cpu.b, 7); return 8; };
+        table[0xB9] = cpu -> { cpu.c = cpu.res(cpu.c, 7); return 8; };
+        table[0xBA] = cpu -> { cpu.d = cpu.res(cpu.d, 7); return 8; };
+        table[0xBB] = cpu -> { cpu.e = cpu.res(cpu.e, 7); return 8; };
+        table[0xBC] = cpu -> { cpu.h = cpu.res(cpu.h, 7); return 8; };
+        table[0xBD] = cpu -> { cpu.l = cpu.res(cpu.l, 7); return 8; };
+        table[0xBE] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.res(cpu.mmu.readByte(hl), 7)); return 16; };
+        table[0xBF] = cpu -> { cpu.a = cpu.res(cpu.a, 7); return 8; };
+
+        table[0xC0] = cpu -> { cpu.b = cpu.set(cpu.b, 0); return 8; };
+        table[0xC1] = cpu -> { cpu.c = cpu.set(cpu.c, 0); return 8; };
+        table[0xC2] = cpu -> { cpu.d = cpu.set(cpu.d, 0); return 8; };
+        table[0xC3] = cpu -> { cpu.e = cpu.set(cpu.e, 0); return 8; };
+        table[0xC4] = cpu -> { cpu.h = cpu.set(cpu.h, 0); return 8; };
+        table[0xC5] = cpu -> { cpu.l = cpu.set(cpu.l, 0); return 8; };
+        table[0xC6] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.set(cpu.mmu.readByte(hl), 0)); return 16; };
+        table[0xC7] = cpu -> { cpu.a = cpu.set(cpu.a, 0); return 8; };
+
+        table[0xC8] = cpu -> { cpu.b = cpu.set(cpu.b, 1); return 8; };
+        table[0xC9] = cpu -> { cpu.c = cpu.set(cpu.c, 1); return 8; };
+        table[0xCA] = cpu -> { cpu.d = cpu.set(cpu.d, 1); return 8; };
+        table[0xCB] = cpu -> { cpu.e = cpu.set(cpu.e, 1); return 8; };
+        table[0xCC] = cpu -> { cpu.h = cpu.set(cpu.h, 1); return 8; };
+        table[0xCD] = cpu -> { cpu.l = cpu.set(cpu.l, 1); return 8; };
+        table[0xCE] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.set(cpu.mmu.readByte(hl), 1)); return 16; };
+        table[0xCF] = cpu -> { cpu.a = cpu.set(cpu.a, 1); return 8; };
+
+        table[0xD0] = cpu -> { cpu.b = cpu.set(cpu.b, 2); return 8; };
+        table[0xD1] = cpu -> { cpu.c = cpu.set(cpu.c, 2); return 8; };
+        table[0xD2] = cpu -> { cpu.d = cpu.set(cpu.d, 2); return 8; };
+        table[0xD3] = cpu -> { cpu.e = cpu.set(cpu.e, 2); return 8; };
+        table[0xD4] = cpu -> { cpu.h = cpu.set(cpu.h, 2); return 8; };
+        table[0xD5] = cpu -> { cpu.l = cpu.set(cpu.l, 2); return 8; };
+        table[0xD6] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.set(cpu.mmu.readByte(hl), 2)); return 16; };
+        table[0xD7] = cpu -> { cpu.a = cpu.set(cpu.a, 2); return 8; };
+
+        table[0xD8] = cpu -> { cpu.b = cpu.set(cpu.b, 3); return 8; };
+        table[0xD9] = cpu -> { cpu.c = cpu.set(cpu.c, 3); return 8; };
+        table[0xDA] = cpu -> { cpu.d = cpu.set(cpu.d, 3); return 8; };
+        table[0xDB] = cpu -> { cpu.e = cpu.set(cpu.e, 3); return 8; };
+        table[0xDC] = cpu -> { cpu.h = cpu.set(cpu.h, 3); return 8; };
+        table[0xDD] = cpu -> { cpu.l = cpu.set(cpu.l, 3); return 8; };
+        table[0xDE] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.set(cpu.mmu.readByte(hl), 3)); return 16; };
+        table[0xDF] = cpu -> { cpu.a = cpu.set(cpu.a, 3); return 8; };
+
+        table[0xE0] = cpu -> { cpu.b = cpu.set(cpu.b, 4); return 8; };
+        table[0xE1] = cpu -> { cpu.c = cpu.set(cpu.c, 4); return 8; };
+        table[0xE2] = cpu -> { cpu.d = cpu.set(cpu.d, 4); return 8; };
+        table[0xE3] = cpu -> { cpu.e = cpu.set(cpu.e, 4); return 8; };
+        table[0xE4] = cpu -> { cpu.h = cpu.set(cpu.h, 4); return 8; };
+        table[0xE5] = cpu -> { cpu.l = cpu.set(cpu.l, 4); return 8; };
+        table[0xE6] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.set(cpu.mmu.readByte(hl), 4)); return 16; };
+        table[0xE7] = cpu -> { cpu.a = cpu.set(cpu.a, 4); return 8; };
+
+        table[0xE8] = cpu -> { cpu.b = cpu.set(cpu.b, 5); return 8; };
+        table[0xE9] = cpu -> { cpu.c = cpu.set(cpu.c, 5); return 8; };
+        table[0xEA] = cpu -> { cpu.d = cpu.set(cpu.d, 5); return 8; };
+        table[0xEB] = cpu -> { cpu.e = cpu.set(cpu.e, 5); return 8; };
+        table[0xEC] = cpu -> { cpu.h = cpu.set(cpu.h, 5); return 8; };
+        table[0xED] = cpu -> { cpu.l = cpu.set(cpu.l, 5); return 8; };
+        table[0xEE] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.set(cpu.mmu.readByte(hl), 5)); return 16; };
+        table[0xEF] = cpu -> { cpu.a = cpu.set(cpu.a, 5); return 8; };
+
+        table[0xF0] = cpu -> { cpu.b = cpu.set(cpu.b, 6); return 8; };
+        table[0xF1] = cpu -> { cpu.c = cpu.set(cpu.c, 6); return 8; };
+        table[0xF2] = cpu -> { cpu.d = cpu.set(cpu.d, 6); return 8; };
+        table[0xF3] = cpu -> { cpu.e = cpu.set(cpu.e, 6); return 8; };
+        table[0xF4] = cpu -> { cpu.h = cpu.set(cpu.h, 6); return 8; };
+        table[0xF5] = cpu -> { cpu.l = cpu.set(cpu.l, 6); return 8; };
+        table[0xF6] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.set(cpu.mmu.readByte(hl), 6)); return 16; };
+        table[0xF7] = cpu -> { cpu.a = cpu.set(cpu.a, 6); return 8; };
+
+        table[0xF8] = cpu -> { cpu.b = cpu.set(cpu.b, 7); return 8; };
+        table[0xF9] = cpu -> { cpu.c = cpu.set(cpu.c, 7); return 8; };
+        table[0xFA] = cpu -> { cpu.d = cpu.set(cpu.d, 7); return 8; };
+        table[0xFB] = cpu -> { cpu.e = cpu.set(cpu.e, 7); return 8; };
+        table[0xFC] = cpu -> { cpu.h = cpu.set(cpu.h, 7); return 8; };
+        table[0xFD] = cpu -> { cpu.l = cpu.set(cpu.l, 7); return 8; };
+        table[0xFE] = cpu -> { int hl = cpu.getHL(); cpu.mmu.writeByte(hl, cpu.set(cpu.mmu.readByte(hl), 7)); return 16; };
+        table[0xFF] = cpu -> { cpu.a = cpu.set(cpu.a, 7); return 8; };
+
+        return table;
+    }
+
     private int getAF() { return (a << 8) | (f & 0xF0); }
     private void setAF(int val) { a = (val >> 8) & 0xFF; f = val & 0xF0; }
 
@@ -646,7 +1268,34 @@ public class CPU {
     private void setCarryFlag(boolean set) { f = set ? (f | CARRY_FLAG) : (f & ~CARRY_FLAG); }
     private boolean getCarryFlag() { return (f & CARRY_FLAG) != 0; }
 
+    /**
+     * Executa uma operação de 8 bits da ALU a partir de A e F dados, pelo caminho configurado
+     * (tabelas ou flag a flag). Retorna (resultado << 8) | F; CP devolve A inalterado.
+     * Usado para gerar as AluTables e para conferi-las.
+     */
+    int alu(AluTables.Operation operation, int aValue, int fValue, int operand) {
+        a = aValue & 0xFF;
+        f = fValue & 0xF0;
+        int result;
+        switch (operation) {
+            case ADD: addA(operand); result = a; break;
+            case ADC: adcA(operand); result = a; break;
+            case SUB: subA(operand); result = a; break;
+            case SBC: sbcA(operand); result = a; break;
+            case CP: cpA(operand); result = a; break;
+            case INC: result = inc8(operand); break;
+            case DEC: result = dec8(operand); break;
+            default: daa(); result = a; break;
+        }
+        return (result << 8) | f;
+    }
+
     private int inc8(int val) {
+        if (flagTableAlu) {
+            int entry = AluTables.INC[val & 0xFF];
+            f = (f & CARRY_FLAG) | (entry & 0xF0);
+            return entry >> 8;
+        }
         int result = (val + 1) & 0xFF;
         setZeroFlag(result == 0);
         setSubtractFlag(false);
@@ -655,6 +1304,11 @@ public class CPU {
     }
 
     private int dec8(int val) {
+        if (flagTableAlu) {
+            int entry = AluTables.DEC[val & 0xFF];
+            f = (f & CARRY_FLAG) | (entry & 0xF0);
+            return entry >> 8;
+        }
         int result = (val - 1) & 0xFF;
         setZeroFlag(result == 0);
         setSubtractFlag(true);
@@ -663,6 +1317,12 @@ public class CPU {
     }
 
     private void addA(int val) {
+        if (flagTableAlu) {
+            int entry = AluTables.ADD[(a << 8) | (val & 0xFF)];
+            f = entry & 0xF0;
+            a = entry >> 8;
+            return;
+        }
         val &= 0xFF;
         int result = a + val;
         setZeroFlag((result & 0xFF) == 0);
@@ -673,6 +1333,12 @@ public class CPU {
     }
 
     private void adcA(int val) {
+        if (flagTableAlu) {
+            int entry = AluTables.ADD[((f & CARRY_FLAG) << 12) | (a << 8) | (val & 0xFF)];
+            f = entry & 0xF0;
+            a = entry >> 8;
+            return;
+        }
         val &= 0xFF;
         int carry = getCarryFlag() ? 1 : 0;
         int result = a + val + carry;
@@ -684,6 +1350,12 @@ public class CPU {
     }
 
     private void subA(int val) {
+        if (flagTableAlu) {
+            int entry = AluTables.SUB[(a << 8) | (val & 0xFF)];
+            f = entry & 0xF0;
+            a = entry >> 8;
+            return;
+        }
         val &= 0xFF;
         int result = a - val;
         setZeroFlag((result & 0xFF) == 0);
@@ -694,6 +1366,12 @@ public class CPU {
     }
 
     private void sbcA(int val) {
+        if (flagTableAlu) {
+            int entry = AluTables.SUB[((f & CARRY_FLAG) << 12) | (a << 8) | (val & 0xFF)];
+            f = entry & 0xF0;
+            a = entry >> 8;
+            return;
+        }
         val &= 0xFF;
         int carry = getCarryFlag() ? 1 : 0;
         int result = a - val - carry;
@@ -730,6 +1408,11 @@ public class CPU {
     }
 
     private void cpA(int val) {
+        if (flagTableAlu) {
+            int entry = AluTables.SUB[(a << 8) | (val & 0xFF)];
+            f = entry & 0xF0;
+            return;
+        }
         val &= 0xFF;
         int result = a - val;
         setZeroFlag((result & 0xFF) == 0);
@@ -943,6 +1626,12 @@ public class CPU {
     }
 
     private void daa() {
+        if (flagTableAlu) {
+            int entry = AluTables.DAA[(a << 4) | (f >> 4)];
+            a = entry >> 8;
+            f = entry & 0xF0;
+            return;
+        }
         int correction = 0;
         boolean needsCarry = false;
 
@@ -1100,6 +1789,15 @@ public class CPU {
     public void setPC(int value) { pc = value & 0xFFFF; }
     
     public void setHalted(boolean value) { halted = value; }
+
+    public boolean isEiDelayed() { return eiDelayed; }
+    public void setEiDelayed(boolean value) { eiDelayed = value; }
+
+    public boolean isHaltBugTriggered() { return haltBugTriggered; }
+    public void setHaltBugTriggered(boolean value) { haltBugTriggered = value; }
+
+    public boolean isStopped() { return stopped; }
+    public void setStopped(boolean value) { stopped = value; }
     
    
 }
@@ -1,16 +1,20 @@
 package com.meutcc.gbemulator;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.function.LongSupplier;
 
 public class Cartridge {
     private MemoryBankController mbc;
     private boolean hasBattery = false;
     private String currentRomPath = null;
     private int mbcTypeCode = 0;
+    private MemoryBankController.BankSwitchListener bankSwitchListener = null;
+    private LongSupplier rtcClock = System::currentTimeMillis;
 
     public Cartridge() {
         
@@ -32,11 +36,12 @@ public class Cartridge {
             byte[] romData = Files.readAllBytes(path);
             System.out.println("ROM carregada: " + filePath + ", Tamanho: " + romData.length + " bytes");
 
-            this.mbc = createMbc(romData);
-            if (this.mbc == null) {
+            MemoryBankController newMbc = createMbc(romData);
+            if (newMbc == null) {
                 System.err.println("Tipo de cartucho (MBC) não suportado ou cabeçalho inválido.");
                 return false;
             }
+            setMbc(newMbc);
 
             this.currentRomPath = filePath;
             
@@ -53,7 +58,7 @@ public class Cartridge {
 
         } catch (IOException e) {
             System.err.println("Erro ao carregar ROM: " + e.getMessage());
-            this.mbc = new Mbc0RomOnly(new byte[0]); 
+            setMbc(new Mbc0RomOnly(new byte[0]));
             return false;
         }
     }
@@ -221,6 +226,26 @@ public class Cartridge {
         }
     }
 
+    public void saveState(ByteBuffer buffer) {
+        if (mbc != null) {
+            mbc.saveState(buffer);
+        }
+    }
+
+    public void loadState(ByteBuffer buffer, int version) {
+        if (mbc != null) {
+            mbc.loadState(buffer, version);
+        }
+    }
+
+    /**
+     * Tamanho da RAM externa, para dimensionar buffers de save state.
+     */
+    public int getRamSize() {
+        byte[] ram = mbc != null ? mbc.getRamData() : null;
+        return ram != null ? ram.length : 0;
+    }
+
     public int readRam(int address) {
         return mbc.readRam(address);
     }
@@ -232,6 +257,49 @@ public class Cartridge {
     public void update(int cycles) {
         mbc.update(cycles);
     }
+
+    private void setMbc(MemoryBankController newMbc) {
+        this.mbc = newMbc;
+        if (newMbc instanceof MBC3) {
+            ((MBC3) newMbc).setClock(rtcClock);
+        }
+        newMbc.setBankSwitchListener(bankSwitchListener);
+        if (bankSwitchListener != null) {
+            bankSwitchListener.onBankSwitch();
+        }
+    }
+
+    /**
+     * Relógio em milissegundos lido pelo RTC do MBC3. O padrão é o relógio do sistema; a gravação
+     * e a reprodução de movies usam um relógio derivado dos ciclos emulados.
+     */
+    public void setRtcClock(LongSupplier clock) {
+        this.rtcClock = clock != null ? clock : System::currentTimeMillis;
+        if (mbc instanceof MBC3) {
+            ((MBC3) mbc).setClock(rtcClock);
+        }
+    }
+
+    public void setBankSwitchListener(MemoryBankController.BankSwitchListener listener) {
+        this.bankSwitchListener = listener;
+        mbc.setBankSwitchListener(listener);
+    }
+
+    public int getRomBank(int address) {
+        return mbc.getRomBank(address);
+    }
+
+    public byte[] getRomData() {
+        return mbc.getRomData();
+    }
+
+    public byte[] getRamData() {
+        return mbc.getRamData();
+    }
+
+    public int getRamBankOffset() {
+        return mbc.getRamBankOffset();
+    }
 }
 
 class MBC2 extends AbstractMBC {
@@ -257,6 +325,11 @@ class MBC2 extends AbstractMBC {
         return 0xFF;
     }
 
+    @Override
+    public int getRomBank(int address) {
+        return address < 0x4000 ? 0 : romBank;
+    }
+
     @Override
     public void write(int address, byte value) {
         if (address >= 0x0000 && address <= 0x3FFF) {
@@ -268,6 +341,12 @@ class MBC2 extends AbstractMBC {
                 if (romBank == 0) romBank = 1;
             }
         }
+        notifyBankSwitch();
+    }
+
+    @Override
+    public int getRamBankOffset() {
+        return -1; // RAM de 4 bits, sempre pelo caminho lento
     }
 
     @Override
@@ -299,13 +378,26 @@ class MBC2 extends AbstractMBC {
         super.loadState(dis);
         romBank = dis.readInt();
     }
+
+    @Override
+    public void saveState(ByteBuffer buffer) {
+        super.saveState(buffer);
+        buffer.putInt(romBank);
+    }
+
+    @Override
+    public void loadState(ByteBuffer buffer, int version) {
+        super.loadState(buffer, version);
+        romBank = buffer.getInt();
+    }
 }
 
 
 class MBC3 extends AbstractMBC {
     private int romBank = 1;
     private int ramBankOrRtcRegister = 0;
-    private long rtcLastUpdateTime = System.currentTimeMillis();
+    private java.util.function.LongSupplier clock = System::currentTimeMillis;
+    private long rtcLastUpdateTime = clock.getAsLong();
     private final byte[] rtcRegisters = new byte[5];
     private final byte[] rtcLatchedRegisters = new byte[5];
     private int latchState = 0; 
@@ -314,9 +406,13 @@ class MBC3 extends AbstractMBC {
         super(romData, ramSizeCode);
     }
 
+    void setClock(java.util.function.LongSupplier clock) {
+        this.clock = clock;
+    }
+
     @Override
     public void update(int cycles) {
-        long now = System.currentTimeMillis();
+        long now = clock.getAsLong();
         if (now - rtcLastUpdateTime > 1000) {
             rtcLastUpdateTime = now;
             if ((rtcRegisters[4] & 0x40) == 0) { 
@@ -340,6 +436,11 @@ class MBC3 extends AbstractMBC {
         return 0xFF;
     }
 
+    @Override
+    public int getRomBank(int address) {
+        return address < 0x4000 ? 0 : romBank;
+    }
+
     @Override
     public void write(int address, byte value) {
         if (address >= 0x0000 && address <= 0x1FFF) {
@@ -359,6 +460,12 @@ class MBC3 extends AbstractMBC {
                 latchState = 0;
             }
         }
+        notifyBankSwitch();
+    }
+
+    @Override
+    protected int getCurrentRamBankOffset() {
+        return ramBankOrRtcRegister <= 0x03 ? ramBankOrRtcRegister * 0x2000 : -1;
     }
 
     @Override
@@ -420,7 +527,7 @@ class MBC3 extends AbstractMBC {
         System.arraycopy(rtcRegisters, 0, rtcData, 0, 5);
         
         
-        long timestamp = System.currentTimeMillis() / 1000; // seconds since epoch
+        long timestamp = clock.getAsLong() / 1000; // seconds since epoch
         rtcData[5] = (byte) (timestamp >> 56);
         rtcData[6] = (byte) (timestamp >> 48);
         rtcData[7] = (byte) (timestamp >> 40);
@@ -445,7 +552,7 @@ class MBC3 extends AbstractMBC {
                 savedTimestamp = (savedTimestamp << 8) | (saveData[offset + 5 + i] & 0xFF);
             }
             
-            long currentTimestamp = System.currentTimeMillis() / 1000;
+            long currentTimestamp = clock.getAsLong() / 1000;
             long elapsedSeconds = currentTimestamp - savedTimestamp;
             
            
@@ -454,7 +561,7 @@ class MBC3 extends AbstractMBC {
                 setRtcSeconds(totalSeconds);
             }
             
-            rtcLastUpdateTime = System.currentTimeMillis();
+            rtcLastUpdateTime = clock.getAsLong();
             System.out.println("RTC data loaded with " + elapsedSeconds + " seconds elapsed.");
         }
     }
@@ -490,6 +597,28 @@ class MBC3 extends AbstractMBC {
             rtcLatchedRegisters[i] = dis.readByte();
         }
     }
+
+    @Override
+    public void saveState(ByteBuffer buffer) {
+        super.saveState(buffer);
+        buffer.putInt(romBank);
+        buffer.putInt(ramBankOrRtcRegister);
+        buffer.putLong(rtcLastUpdateTime);
+        buffer.putInt(latchState);
+        buffer.put(rtcRegisters, 0, 5);
+        buffer.put(rtcLatchedRegisters, 0, 5);
+    }
+
+    @Override
+    public void loadState(ByteBuffer buffer, int version) {
+        super.loadState(buffer, version);
+        romBank = buffer.getInt();
+        ramBankOrRtcRegister = buffer.getInt();
+        rtcLastUpdateTime = buffer.getLong();
+        latchState = buffer.getInt();
+        buffer.get(rtcRegisters, 0, 5);
+        buffer.get(rtcLatchedRegisters, 0, 5);
+    }
 }
 
 
@@ -514,6 +643,11 @@ class MBC5 extends AbstractMBC {
         return 0xFF;
     }
 
+    @Override
+    public int getRomBank(int address) {
+        return address < 0x4000 ? 0 : romBank;
+    }
+
     @Override
     public void write(int address, byte value) {
         if (address >= 0x0000 && address <= 0x1FFF) {
@@ -525,6 +659,12 @@ class MBC5 extends AbstractMBC {
         } else if (address >= 0x4000 && address <= 0x5FFF) {
             ramBank = value & 0x0F;
         }
+        notifyBankSwitch();
+    }
+
+    @Override
+    protected int getCurrentRamBankOffset() {
+        return ramBank * 0x2000;
     }
 
     @Override
@@ -557,12 +697,27 @@ class MBC5 extends AbstractMBC {
         romBank = dis.readInt();
         ramBank = dis.readInt();
     }
+
+    @Override
+    public void saveState(ByteBuffer buffer) {
+        super.saveState(buffer);
+        buffer.putInt(romBank);
+        buffer.putInt(ramBank);
+    }
+
+    @Override
+    public void loadState(ByteBuffer buffer, int version) {
+        super.loadState(buffer, version);
+        romBank = buffer.getInt();
+        ramBank = buffer.getInt();
+    }
 }
 
 abstract class AbstractMBC implements MemoryBankController {
     protected final byte[] romData;
     protected byte[] ramData;
     protected boolean ramEnabled = false;
+    private BankSwitchListener bankSwitchListener = null;
 
     public AbstractMBC(byte[] romData, int ramSizeCode) {
         this.romData = romData;
@@ -610,6 +765,34 @@ abstract class AbstractMBC implements MemoryBankController {
         return ramData;
     }
 
+    @Override
+    public byte[] getRomData() {
+        return romData;
+    }
+
+    @Override
+    public int getRamBankOffset() {
+        if (ramData == null || !ramEnabled) {
+            return -1;
+        }
+        return getCurrentRamBankOffset();
+    }
+
+    protected int getCurrentRamBankOffset() {
+        return 0;
+    }
+
+    @Override
+    public void setBankSwitchListener(BankSwitchListener listener) {
+        this.bankSwitchListener = listener;
+    }
+
+    protected void notifyBankSwitch() {
+        if (bankSwitchListener != null) {
+            bankSwitchListener.onBankSwitch();
+        }
+    }
+
     protected abstract int readRamBank(int address);
     protected abstract void writeRamBank(int address, byte value);
     
@@ -621,6 +804,25 @@ abstract class AbstractMBC implements MemoryBankController {
     public void loadState(java.io.DataInputStream dis) throws java.io.IOException {
         ramEnabled = dis.readBoolean();
     }
+
+    public void saveState(ByteBuffer buffer) {
+        SaveStateFormat.putBoolean(buffer, ramEnabled);
+        buffer.putInt(ramData != null ? ramData.length : 0);
+        if (ramData != null) {
+            buffer.put(ramData);
+        }
+    }
+
+    public void loadState(ByteBuffer buffer, int version) {
+        ramEnabled = SaveStateFormat.getBoolean(buffer);
+        int ramLength = buffer.getInt();
+        if (ramData != null && ramLength == ramData.length) {
+            buffer.get(ramData);
+        } else {
+            // RAM de outro tamanho (state de outro cartucho): mantém a atual
+            buffer.position(buffer.position() + ramLength);
+        }
+    }
 }
 
 class Mbc0RomOnly extends AbstractMBC {
@@ -637,6 +839,11 @@ class Mbc0RomOnly extends AbstractMBC {
         return 0xFF;
     }
 
+    @Override
+    public int getRomBank(int address) {
+        return address >> 14;
+    }
+
     @Override
     public void write(int address, byte value) {
         // Não faz nada em ROM Only
@@ -694,6 +901,14 @@ class MBC1 extends AbstractMBC {
         return 0xFF;
     }
 
+    @Override
+    public int getRomBank(int address) {
+        if (address < 0x4000) {
+            return bankingMode == 1 ? (ramBank << 5) : 0;
+        }
+        return (ramBank << 5) | romBank;
+    }
+
     @Override
     public void write(int address, byte value) {
         if (address >= 0x0000 && address <= 0x1FFF) {
@@ -707,6 +922,12 @@ class MBC1 extends AbstractMBC {
         } else if (address >= 0x6000 && address <= 0x7FFF) {
             bankingMode = value & 0x01;
         }
+        notifyBankSwitch();
+    }
+
+    @Override
+    protected int getCurrentRamBankOffset() {
+        return (bankingMode == 1) ? ramBank * 0x2000 : 0;
     }
 
     @Override
@@ -743,4 +964,20 @@ class MBC1 extends AbstractMBC {
         ramBank = dis.readInt();
         bankingMode = dis.readInt();
     }
+
+    @Override
+    public void saveState(ByteBuffer buffer) {
+        super.saveState(buffer);
+        buffer.putInt(romBank);
+        buffer.putInt(ramBank);
+        buffer.putInt(bankingMode);
+    }
+
+    @Override
+    public void loadState(ByteBuffer buffer, int version) {
+        super.loadState(buffer, version);
+        romBank = buffer.getInt();
+        ramBank = buffer.getInt();
+        bankingMode = buffer.getInt();
+    }
 }
\ No newline at end of file
@@ -80,6 +80,8 @@ public class ConfigManager {
 
             // Carregar configurações de áudio
             config.setAudioEnabled(getBooleanProperty(props, "audio.enabled", true));
+            config.setBandLimitedAudio(getBooleanProperty(props, "audio.bandLimited", false));
+            config.setAudioSyncEnabled(getBooleanProperty(props, "audio.sync", false));
 
             // Carregar configurações de ROM
             config.setLastRomDirectory(props.getProperty("rom.lastDirectory", ""));
@@ -88,15 +90,23 @@ public class ConfigManager {
             // Carregar configurações de vídeo
             config.setColorPalette(props.getProperty("video.colorPalette", "DMG_GREEN"));
             config.setScalingFilter(props.getProperty("video.scalingFilter", "NEAREST_NEIGHBOR"));
+            config.setScalerThreads(getIntProperty(props, "video.scalerThreads", 0));
 
             // Carregar configurações de efeitos
             config.setGhostingEnabled(getBooleanProperty(props, "effects.ghosting.enabled", false));
             config.setGhostingIntensity(getFloatProperty(props, "effects.ghosting.intensity", 0.3f));
+            config.setGhostingFrames(getIntProperty(props, "effects.ghosting.frames", 3));
             config.setGridEnabled(getBooleanProperty(props, "effects.grid.enabled", false));
             config.setGridIntensity(getFloatProperty(props, "effects.grid.intensity", 0.15f));
             config.setScanlinesEnabled(getBooleanProperty(props, "effects.scanlines.enabled", false));
             config.setScanlineIntensity(getFloatProperty(props, "effects.scanlines.intensity", 0.2f));
 
+            // Carregar configurações de rewind
+            config.setRewindEnabled(getBooleanProperty(props, "rewind.enabled", false));
+            config.setRewindBufferMB(getIntProperty(props, "rewind.bufferMB", 32));
+            config.setRewindInterval(getIntProperty(props, "rewind.interval", 2));
+            config.setRunAheadFrames(getIntProperty(props, "runahead.frames", 0));
+
             // Carregar configurações de gamepad
             config.setGamepadEnabled(getBooleanProperty(props, "gamepad.enabled", false));
             config.setSelectedGamepadName(props.getProperty("gamepad.selectedName", ""));
@@ -120,6 +130,8 @@ public class ConfigManager {
 
         // Salvar configurações de áudio
         props.setProperty("audio.enabled", String.valueOf(config.isAudioEnabled()));
+        props.setProperty("audio.bandLimited", String.valueOf(config.isBandLimitedAudio()));
+        props.setProperty("audio.sync", String.valueOf(config.isAudioSyncEnabled()));
 
         // Salvar configurações de ROM
         props.setProperty("rom.lastDirectory", config.getLastRomDirectory());
@@ -128,15 +140,23 @@ public class ConfigManager {
         // Salvar configurações de vídeo
         props.setProperty("video.colorPalette", config.getColorPalette());
         props.setProperty("video.scalingFilter", config.getScalingFilter());
+        props.setProperty("video.scalerThreads", String.valueOf(config.getScalerThreads()));
 
         // Salvar configurações de efeitos
         props.setProperty("effects.ghosting.enabled", String.valueOf(config.isGhostingEnabled()));
         props.setProperty("effects.ghosting.intensity", String.valueOf(config.getGhostingIntensity()));
+        props.setProperty("effects.ghosting.frames", String.valueOf(config.getGhostingFrames()));
         props.setProperty("effects.grid.enabled", String.valueOf(config.isGridEnabled()));
         props.setProperty("effects.grid.intensity", String.valueOf(config.getGridIntensity()));
         props.setProperty("effects.scanlines.enabled", String.valueOf(config.isScanlinesEnabled()));
         props.setProperty("effects.scanlines.intensity", String.valueOf(config.getScanlineIntensity()));
 
+        // Salvar configurações de rewind
+        props.setProperty("rewind.enabled", String.valueOf(config.isRewindEnabled()));
+        props.setProperty("rewind.bufferMB", String.valueOf(config.getRewindBufferMB()));
+        props.setProperty("rewind.interval", String.valueOf(config.getRewindInterval()));
+        props.setProperty("runahead.frames", String.valueOf(config.getRunAheadFrames()));
+
         // Salvar configurações de gamepad
         props.setProperty("gamepad.enabled", String.valueOf(config.isGamepadEnabled()));
         props.setProperty("gamepad.selectedName", config.getSelectedGamepadName());
@@ -0,0 +1,420 @@
+package com.meutcc.gbemulator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Roda lotes de ROMs de teste (Blargg, Mooneye, dmg-acid2...) em paralelo, cada uma em
+ * uma instância isolada de GameBoy, e gera um relatório JUnit XML ou JSON.
+ *
+ * O resultado é detectado, ao fim de cada quadro, por:
+ * - texto na serial ("Passed" / "Failed", padrão das ROMs do Blargg);
+ * - padrão Fibonacci do Mooneye (B,C,D,E,H,L = 3,5,8,13,21,34; tudo 0x42 é falha),
+ *   nos registradores após LD B,B ou nos bytes da serial;
+ * - hash CRC32 dos tons da tela, comparado com um arquivo de referência.
+ */
+public class ConformanceRunner {
+
+    private static final int[] MOONEYE_PASS = {3, 5, 8, 13, 21, 34};
+    private static final int[] MOONEYE_FAIL = {0x42, 0x42, 0x42, 0x42, 0x42, 0x42};
+
+    public enum Status { PASSED, FAILED, TIMEOUT, ERROR }
+
+    public static final class Result {
+        public final String name;
+        public final Status status;
+        public final String message;
+        public final String serialOutput;
+        public final String screenHash;
+        public final long frames;
+        public final double seconds;
+
+        Result(String name, Status status, String message, String serialOutput, String screenHash,
+               long frames, double seconds) {
+            this.name = name;
+            this.status = status;
+            this.message = message;
+            this.serialOutput = serialOutput;
+            this.screenHash = screenHash;
+            this.frames = frames;
+            this.seconds = seconds;
+        }
+
+        public boolean isPassed() {
+            return status == Status.PASSED;
+        }
+    }
+
+    private final int threads;
+    private final long maxFrames;
+    private final boolean fastPaths;
+    private final Map<String, String> referenceHashes;
+
+    /**
+     * @param referenceHashes nome da ROM (relativo ao diretório de testes, com '/') para o CRC32 esperado da tela
+     */
+    public ConformanceRunner(int threads, long maxFrames, boolean fastPaths, Map<String, String> referenceHashes) {
+        this.threads = threads;
+        this.maxFrames = maxFrames;
+        this.fastPaths = fastPaths;
+        this.referenceHashes = referenceHashes;
+    }
+
+    /**
+     * Executa todas as ROMs em um pool work-stealing e devolve os resultados na ordem dos nomes.
+     */
+    public List<Result> runAll(Path root, List<Path> roms) throws InterruptedException {
+        ExecutorService pool = Executors.newWorkStealingPool(threads);
+        try {
+            List<Callable<Result>> tasks = new ArrayList<>();
+            for (Path rom : roms) {
+                String name = root.relativize(rom).toString().replace(File.separatorChar, '/');
+                tasks.add(() -> runOne(name, rom));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : pool.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // runOne já converte falhas em ERROR; só chega aqui em erro inesperado
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    Result runOne(String name, Path rom) {
+        long start = System.nanoTime();
+        String expectedHash = referenceHashes.get(name);
+        Status[] verdict = {null};
+        String[] message = {""};
+
+        try (HeadlessRunner runner = new HeadlessRunner()) {
+            if (!runner.loadROM(rom.toString())) {
+                return new Result(name, Status.ERROR, "ROM não carregada", "", "", 0, elapsed(start));
+            }
+            runner.setFastPathsEnabled(fastPaths);
+
+            runner.runUntil(r -> {
+                Status status = detect(r, expectedHash, message);
+                verdict[0] = status;
+                return status != null;
+            }, maxFrames);
+
+            Status status = verdict[0];
+            if (status == null) {
+                if (runner.isCpuStopped()) {
+                    status = Status.ERROR;
+                    message[0] = "CPU parou com erro fatal";
+                } else {
+                    status = Status.TIMEOUT;
+                    message[0] = "Sem resultado após " + runner.getFramesRun() + " quadros";
+                }
+            }
+            if (runner.getGameBoy().isIdleLoopSkipEnabled()) {
+                // Laços pulados ajudam a separar falhas do salto das falhas do emulador
+                message[0] += " (" + runner.getGameBoy().getIdleLoopStatistics() + ")";
+            }
+            return new Result(name, status, message[0], runner.getSerialOutput(),
+                    screenHash(runner.getGameBoy().getPpu()), runner.getFramesRun(), elapsed(start));
+        } catch (Exception | StackOverflowError e) {
+            return new Result(name, Status.ERROR, e.toString(), "", "", 0, elapsed(start));
+        }
+    }
+
+    private static Status detect(HeadlessRunner runner, String expectedHash, String[] message) {
+        String serial = runner.getSerialOutput();
+        if (serial.contains("Passed")) {
+            message[0] = "Serial: Passed";
+            return Status.PASSED;
+        }
+        if (serial.contains("Failed")) {
+            message[0] = "Serial: " + lastLines(serial, 3);
+            return Status.FAILED;
+        }
+
+        byte[] serialBytes = runner.getSerialBytes();
+        if (endsWith(serialBytes, MOONEYE_PASS)) {
+            message[0] = "Mooneye: Fibonacci na serial";
+            return Status.PASSED;
+        }
+        if (endsWith(serialBytes, MOONEYE_FAIL)) {
+            message[0] = "Mooneye: 0x42 na serial";
+            return Status.FAILED;
+        }
+
+        CPU cpu = runner.getGameBoy().getCpu();
+        // Mooneye termina em LD B,B (0x40) seguido de um laço infinito
+        int[] registers = {cpu.getB(), cpu.getC(), cpu.getD(), cpu.getE(), cpu.getH(), cpu.getL()};
+        if (Arrays.equals(registers, MOONEYE_PASS) || Arrays.equals(registers, MOONEYE_FAIL)) {
+            MMU mmu = runner.getGameBoy().getMmu();
+            int pc = cpu.getPC();
+            for (int offset = 0; offset < 4; offset++) {
+                if (mmu.readByte((pc - offset) & 0xFFFF) == 0x40) {
+                    boolean passed = registers[0] == MOONEYE_PASS[0];
+                    message[0] = passed ? "Mooneye: registradores Fibonacci" : "Mooneye: registradores 0x42";
+                    return passed ? Status.PASSED : Status.FAILED;
+                }
+            }
+        }
+
+        if (expectedHash != null) {
+            String hash = screenHash(runner.getGameBoy().getPpu());
+            if (hash.equalsIgnoreCase(expectedHash)) {
+                message[0] = "Tela confere com a referência " + expectedHash;
+                return Status.PASSED;
+            }
+            message[0] = "Tela " + hash + " difere da referência " + expectedHash;
+        }
+        return null;
+    }
+
+    /**
+     * CRC32 dos tons (0-3) da tela, independente da paleta de cores escolhida.
+     */
+    public static String screenHash(PPU ppu) {
+        int[] colors = ppu.getColorPalette().getColors();
+        int[] screen = ppu.getScreenBuffer();
+        byte[] shades = new byte[screen.length];
+        for (int i = 0; i < screen.length; i++) {
+            int shade = 0;
+            for (int c = 0; c < colors.length; c++) {
+                if (colors[c] == screen[i]) {
+                    shade = c;
+                    break;
+                }
+            }
+            shades[i] = (byte) shade;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(shades);
+        return String.format("%08x", crc.getValue());
+    }
+
+    private static boolean endsWith(byte[] data, int[] pattern) {
+        if (data.length < pattern.length) {
+            return false;
+        }
+        int base = data.length - pattern.length;
+        for (int i = 0; i < pattern.length; i++) {
+            if ((data[base + i] & 0xFF) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String lastLines(String text, int count) {
+        String[] lines = text.trim().split("\n");
+        return String.join(" | ", Arrays.asList(lines).subList(Math.max(0, lines.length - count), lines.length));
+    }
+
+    private static double elapsed(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    // --- Relatórios ---
+
+    public static String toJUnitXml(List<Result> results, double totalSeconds) {
+        long failures = results.stream().filter(r -> r.status == Status.FAILED || r.status == Status.TIMEOUT).count();
+        long errors = results.stream().filter(r -> r.status == Status.ERROR).count();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append(String.format(Locale.ROOT, "<testsuite name=\"gbemulator-conformance\" tests=\"%d\" failures=\"%d\" errors=\"%d\" time=\"%.3f\">\n",
+                results.size(), failures, errors, totalSeconds));
+        for (Result r : results) {
+            int slash = r.name.lastIndexOf('/');
+            String className = slash >= 0 ? r.name.substring(0, slash).replace('/', '.') : "roms";
+            String testName = slash >= 0 ? r.name.substring(slash + 1) : r.name;
+            sb.append(String.format(Locale.ROOT, "  <testcase classname=\"%s\" name=\"%s\" time=\"%.3f\">\n",
+                    xml(className), xml(testName), r.seconds));
+            if (r.status == Status.FAILED || r.status == Status.TIMEOUT) {
+                sb.append(String.format("    <failure type=\"%s\" message=\"%s\"/>\n", r.status, xml(r.message)));
+            } else if (r.status == Status.ERROR) {
+                sb.append(String.format("    <error message=\"%s\"/>\n", xml(r.message)));
+            }
+            sb.append(String.format("    <system-out>%s</system-out>\n",
+                    xml("frames=" + r.frames + " screen=" + r.screenHash + "\n" + r.serialOutput)));
+            sb.append("  </testcase>\n");
+        }
+        sb.append("</testsuite>\n");
+        return sb.toString();
+    }
+
+    public static String toJson(List<Result> results, double totalSeconds) {
+        StringBuilder sb = new StringBuilder();
+        long passed = results.stream().filter(Result::isPassed).count();
+        sb.append(String.format(Locale.ROOT, "{\n  \"total\": %d,\n  \"passed\": %d,\n  \"seconds\": %.3f,\n  \"results\": [\n",
+                results.size(), passed, totalSeconds));
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            sb.append(String.format(Locale.ROOT,
+                    "    {\"name\": %s, \"status\": \"%s\", \"message\": %s, \"frames\": %d, \"seconds\": %.3f, \"screenHash\": %s, \"serial\": %s}%s\n",
+                    json(r.name), r.status, json(r.message), r.frames, r.seconds, json(r.screenHash),
+                    json(r.serialOutput), i + 1 < results.size() ? "," : ""));
+        }
+        sb.append("  ]\n}\n");
+        return sb.toString();
+    }
+
+    private static String xml(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '&': sb.append("&amp;"); break;
+                case '"': sb.append("&quot;"); break;
+                default:
+                    if (c >= 0x20 || c == '\n' || c == '\t') {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String json(String text) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Lê "nome-da-rom crc32" por linha; linhas vazias e iniciadas por '#' são ignoradas.
+     */
+    public static Map<String, String> loadReferenceHashes(Path file) throws IOException {
+        Map<String, String> hashes = new HashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.lastIndexOf(' ');
+            if (space > 0) {
+                hashes.put(line.substring(0, space).trim(), line.substring(space + 1).trim());
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Linha de comando: {@code --conformance <diretório> [opções]}. Retorna 0 se todos os testes passaram.
+     */
+    public static int run(String[] args) {
+        Path root = null;
+        Path reportFile = null;
+        Path hashFile = null;
+        long frames = 60 * 120;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        boolean fastPaths = true;
+        boolean verbose = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--conformance": break;
+                    case "--report": reportFile = Paths.get(args[++i]); break;
+                    case "--hashes": hashFile = Paths.get(args[++i]); break;
+                    case "--frames": frames = Long.parseLong(args[++i]); break;
+                    case "--threads": threadCount = Integer.parseInt(args[++i]); break;
+                    case "--accurate": fastPaths = false; break;
+                    case "--verbose": verbose = true; break;
+                    default:
+                        if (args[i].startsWith("--") || root != null) {
+                            System.err.println("Opção desconhecida: " + args[i]);
+                            printUsage();
+                            return 2;
+                        }
+                        root = Paths.get(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Argumentos inválidos: " + e.getMessage());
+            printUsage();
+            return 2;
+        }
+        if (root == null || threadCount < 1) {
+            printUsage();
+            return 2;
+        }
+
+        PrintStream console = System.out;
+        try {
+            List<Path> roms;
+            try (Stream<Path> files = Files.walk(root)) {
+                roms = files.filter(p -> {
+                    String name = p.getFileName().toString().toLowerCase(Locale.ROOT);
+                    return name.endsWith(".gb") || name.endsWith(".gbc");
+                }).sorted().collect(Collectors.toList());
+            }
+            Map<String, String> hashes = hashFile != null ? loadReferenceHashes(hashFile) : Collections.emptyMap();
+
+            console.println(String.format("Conformidade: %d ROMs, %d threads, até %d quadros cada",
+                    roms.size(), threadCount, frames));
+            // Os componentes registram bastante no console; com várias instâncias em paralelo isso só atrapalha
+            if (!verbose) {
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            }
+
+            long start = System.nanoTime();
+            List<Result> results = new ConformanceRunner(threadCount, frames, fastPaths, hashes).runAll(root, roms);
+            double seconds = elapsed(start);
+            System.setOut(console);
+
+            long passed = 0;
+            for (Result r : results) {
+                console.println(String.format(Locale.ROOT, "%-8s %-60s %6.2fs  %s", r.status, r.name, r.seconds, r.message));
+                if (r.isPassed()) {
+                    passed++;
+                }
+            }
+            console.println(String.format(Locale.ROOT, "Conformidade: %d/%d passaram em %.1f s", passed, results.size(), seconds));
+
+            if (reportFile != null) {
+                boolean json = reportFile.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+                String report = json ? toJson(results, seconds) : toJUnitXml(results, seconds);
+                Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+                console.println("Relatório salvo: " + reportFile);
+            }
+            return passed == results.size() ? 0 : 1;
+        } catch (IOException e) {
+            System.setOut(console);
+            System.err.println("Erro de E/S na execução de conformidade: " + e.getMessage());
+            return 2;
+        } catch (InterruptedException e) {
+            System.setOut(console);
+            Thread.currentThread().interrupt();
+            return 2;
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Uso: --conformance <diretório de ROMs> [--report relatorio.xml|relatorio.json]");
+        System.err.println("                   [--hashes referencias.txt] [--frames N] [--threads N] [--accurate] [--verbose]");
+    }
+}
@@ -6,20 +6,29 @@ public class EmulatorConfig {
     private int windowScale = 3;
 
     private boolean audioEnabled = true;
+    private boolean bandLimitedAudio = false;
+    private boolean audioSyncEnabled = false;
 
     private String lastRomDirectory = "";
     private String lastRomFile = "";
 
     private String colorPalette = "DMG_GREEN"; 
     private String scalingFilter = "NEAREST_NEIGHBOR";
+    private int scalerThreads = 0;
 
     private boolean ghostingEnabled = false;
     private float ghostingIntensity = 0.3f;
+    private int ghostingFrames = 3;
     private boolean gridEnabled = false;
     private float gridIntensity = 0.15f;
     private boolean scanlinesEnabled = false;
     private float scanlineIntensity = 0.2f;
 
+    private boolean rewindEnabled = false;
+    private int rewindBufferMB = 32;
+    private int rewindInterval = 2;
+    private int runAheadFrames = 0;
+
     private String gamepadButtonMapping = "";
     private boolean gamepadEnabled = false;
     private String selectedGamepadName = "";
@@ -42,6 +51,22 @@ public class EmulatorConfig {
         this.audioEnabled = audioEnabled;
     }
 
+    public boolean isBandLimitedAudio() {
+        return bandLimitedAudio;
+    }
+
+    public void setBandLimitedAudio(boolean bandLimitedAudio) {
+        this.bandLimitedAudio = bandLimitedAudio;
+    }
+
+    public boolean isAudioSyncEnabled() {
+        return audioSyncEnabled;
+    }
+
+    public void setAudioSyncEnabled(boolean audioSyncEnabled) {
+        this.audioSyncEnabled = audioSyncEnabled;
+    }
+
     public String getLastRomDirectory() {
         return lastRomDirectory;
     }
@@ -74,6 +99,17 @@ public class EmulatorConfig {
         this.scalingFilter = scalingFilter != null ? scalingFilter : "NEAREST_NEIGHBOR";
     }
 
+    /**
+     * Threads dos escaladores de pixel art (0 = automático).
+     */
+    public int getScalerThreads() {
+        return scalerThreads;
+    }
+
+    public void setScalerThreads(int scalerThreads) {
+        this.scalerThreads = Math.max(0, Math.min(8, scalerThreads));
+    }
+
     public boolean isGhostingEnabled() {
         return ghostingEnabled;
     }
@@ -90,6 +126,14 @@ public class EmulatorConfig {
         this.ghostingIntensity = Math.max(0.0f, Math.min(1.0f, ghostingIntensity));
     }
 
+    public int getGhostingFrames() {
+        return ghostingFrames;
+    }
+
+    public void setGhostingFrames(int ghostingFrames) {
+        this.ghostingFrames = Math.max(1, Math.min(8, ghostingFrames));
+    }
+
     public boolean isGridEnabled() {
         return gridEnabled;
     }
@@ -122,6 +166,38 @@ public class EmulatorConfig {
         this.scanlineIntensity = Math.max(0.0f, Math.min(1.0f, scanlineIntensity));
     }
 
+    public boolean isRewindEnabled() {
+        return rewindEnabled;
+    }
+
+    public void setRewindEnabled(boolean rewindEnabled) {
+        this.rewindEnabled = rewindEnabled;
+    }
+
+    public int getRewindBufferMB() {
+        return rewindBufferMB;
+    }
+
+    public void setRewindBufferMB(int rewindBufferMB) {
+        this.rewindBufferMB = Math.max(1, Math.min(1024, rewindBufferMB));
+    }
+
+    public int getRewindInterval() {
+        return rewindInterval;
+    }
+
+    public void setRewindInterval(int rewindInterval) {
+        this.rewindInterval = Math.max(1, Math.min(60, rewindInterval));
+    }
+
+    public int getRunAheadFrames() {
+        return runAheadFrames;
+    }
+
+    public void setRunAheadFrames(int runAheadFrames) {
+        this.runAheadFrames = Math.max(0, Math.min(4, runAheadFrames));
+    }
+
     public String getGamepadButtonMapping() {
         return gamepadButtonMapping;
     }
@@ -0,0 +1,405 @@
+package com.meutcc.gbemulator;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Suíte de regressão visual: reproduz movies (.gbm) sem janela, calcula o CRC32C do screenBuffer
+ * a cada quadro e compara com o arquivo golden ao lado do movie (jogo.gbm -> jogo.hashes).
+ * A ROM é procurada no mesmo diretório pelo nome do movie até o primeiro ponto
+ * (jogo.gbm ou jogo.fase2.gbm -> jogo.gb / jogo.gbc).
+ *
+ * O --update grava também as imagens golden (jogo.frames.gz): cada quadro como XOR com o anterior,
+ * comprimido com GZIP, o que reduz os quadros parados a quase nada. No primeiro quadro divergente,
+ * a imagem golden desse quadro é lida de lá e um PNG golden | obtido | diferença é salvo.
+ * Os movies rodam em paralelo, cada um em uma instância isolada, e o relatório usa os formatos
+ * do ConformanceRunner.
+ */
+public class FrameHashSuite {
+
+    private static final String HASH_HEADER = "# crc32c por quadro";
+    private static final int FRAMES_MAGIC = 0x47424652; // "GBFR"
+
+    private final int threads;
+    private final boolean fastPaths;
+    private final boolean update;
+    private final Path diffDirectory;
+
+    /**
+     * @param update grava os hashes obtidos como novo golden em vez de comparar
+     * @param diffDirectory onde salvar os PNGs de diferença (null desliga)
+     */
+    public FrameHashSuite(int threads, boolean fastPaths, boolean update, Path diffDirectory) {
+        this.threads = threads;
+        this.fastPaths = fastPaths;
+        this.update = update;
+        this.diffDirectory = diffDirectory;
+    }
+
+    public List<ConformanceRunner.Result> runAll(Path root, List<Path> movies) throws InterruptedException {
+        ExecutorService pool = Executors.newWorkStealingPool(threads);
+        try {
+            List<Callable<ConformanceRunner.Result>> tasks = new ArrayList<>();
+            for (Path movie : movies) {
+                String name = root.relativize(movie).toString().replace(File.separatorChar, '/');
+                tasks.add(() -> runOne(name, movie));
+            }
+            List<ConformanceRunner.Result> results = new ArrayList<>();
+            for (Future<ConformanceRunner.Result> future : pool.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    ConformanceRunner.Result runOne(String name, Path movie) {
+        long start = System.nanoTime();
+        try {
+            Path rom = findRom(movie);
+            if (rom == null) {
+                return result(name, ConformanceRunner.Status.ERROR, "ROM do movie não encontrada", "", 0, start);
+            }
+            Path goldenFile = goldenFile(movie);
+            int[] golden = update ? null : loadHashes(goldenFile);
+            if (!update && golden == null) {
+                return result(name, ConformanceRunner.Status.ERROR,
+                        "Sem golden (" + goldenFile.getFileName() + "); rode com --update", "", 0, start);
+            }
+
+            FrameHasher hasher = new FrameHasher();
+            List<Integer> hashes = new ArrayList<>();
+            try (HeadlessRunner runner = new HeadlessRunner();
+                 GoldenFrameWriter frameWriter = update ? new GoldenFrameWriter(goldenFramesFile(movie)) : null) {
+                if (!runner.loadROM(rom.toString())) {
+                    return result(name, ConformanceRunner.Status.ERROR, "ROM não carregada", "", 0, start);
+                }
+                runner.setFastPathsEnabled(fastPaths);
+                runner.playMovie(movie);
+
+                int[] screen = runner.getGameBoy().getPpu().getScreenBuffer();
+                while (runner.runFrame()) {
+                    int frame = hashes.size();
+                    int hash = hasher.hash(screen);
+                    hashes.add(hash);
+                    if (frameWriter != null) {
+                        frameWriter.write(screen);
+                    }
+                    if (golden != null && (frame >= golden.length || golden[frame] != hash)) {
+                        String message = frame >= golden.length
+                                ? "Movie tem mais quadros que o golden (" + golden.length + ")"
+                                : String.format("Quadro %d: %08x, golden %08x", frame, hash, golden[frame]);
+                        message += writeDiff(name, movie, frame, screen, frame < golden.length ? golden[frame] : 0);
+                        return result(name, ConformanceRunner.Status.FAILED, message, String.format("%08x", hash), frame, start);
+                    }
+                }
+                if (runner.isCpuStopped()) {
+                    return result(name, ConformanceRunner.Status.ERROR, "CPU parou com erro fatal no quadro " + hashes.size(),
+                            "", hashes.size(), start);
+                }
+            }
+
+            String lastHash = hashes.isEmpty() ? "" : String.format("%08x", hashes.get(hashes.size() - 1));
+            if (update) {
+                writeHashes(goldenFile, hashes);
+                return result(name, ConformanceRunner.Status.PASSED, "Golden gravado (hashes e imagens): " + hashes.size() + " quadros",
+                        lastHash, hashes.size(), start);
+            }
+            if (hashes.size() < golden.length) {
+                return result(name, ConformanceRunner.Status.FAILED,
+                        "Movie terminou no quadro " + hashes.size() + ", golden tem " + golden.length, lastHash, hashes.size(), start);
+            }
+            return result(name, ConformanceRunner.Status.PASSED, hashes.size() + " quadros conferem", lastHash, hashes.size(), start);
+        } catch (Exception | StackOverflowError e) {
+            return result(name, ConformanceRunner.Status.ERROR, e.toString(), "", 0, start);
+        }
+    }
+
+    private static ConformanceRunner.Result result(String name, ConformanceRunner.Status status, String message,
+                                                   String hash, long frames, long startNanos) {
+        return new ConformanceRunner.Result(name, status, message, "", hash, frames,
+                (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * Salva o PNG do quadro divergente (golden | obtido | diferença) e descreve o resultado para a mensagem.
+     */
+    private String writeDiff(String name, Path movie, int frame, int[] actual, int goldenHash) {
+        if (diffDirectory == null) {
+            return "";
+        }
+        try {
+            Path framesFile = goldenFramesFile(movie);
+            int[] golden = readGoldenFrame(framesFile, frame);
+            String note = "";
+            if (golden == null) {
+                note = "; sem imagem golden do quadro em " + framesFile.getFileName() + ", o PNG mostra só o obtido";
+            } else if (new FrameHasher().hash(golden) != goldenHash) {
+                note = "; a imagem golden não confere com o hash golden (arquivos de --update diferentes?)";
+            }
+
+            int width = PPU.SCREEN_WIDTH;
+            int height = PPU.SCREEN_HEIGHT;
+            int panels = golden != null ? 3 : 1;
+            BufferedImage image = new BufferedImage(width * panels, height, BufferedImage.TYPE_INT_RGB);
+            if (golden != null) {
+                image.setRGB(0, 0, width, height, golden, 0, width);
+                image.setRGB(width, 0, width, height, actual, 0, width);
+                int[] diff = new int[actual.length];
+                for (int i = 0; i < diff.length; i++) {
+                    // Pixels iguais escurecidos, diferentes em vermelho
+                    diff[i] = actual[i] == golden[i] ? (actual[i] >> 2) & 0x3F3F3F : 0xFF0000;
+                }
+                image.setRGB(width * 2, 0, width, height, diff, 0, width);
+            } else {
+                image.setRGB(0, 0, width, height, actual, 0, width);
+            }
+
+            Path file = diffDirectory.resolve(name.replace('/', '_') + String.format(".frame%06d.png", frame));
+            Files.createDirectories(diffDirectory);
+            ImageIO.write(image, "png", file.toFile());
+            return note + "; diff: " + file;
+        } catch (IOException e) {
+            return "; falha ao salvar o diff: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Grava as imagens golden conforme os quadros são emulados: [int magic "GBFR"][int largura]
+     * [int altura] e, por quadro, os pixels ARGB em XOR com o quadro anterior, tudo em GZIP.
+     */
+    static final class GoldenFrameWriter implements Closeable {
+        private final DataOutputStream out;
+        private final int[] previous = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+
+        GoldenFrameWriter(Path file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file))));
+            out.writeInt(FRAMES_MAGIC);
+            out.writeInt(PPU.SCREEN_WIDTH);
+            out.writeInt(PPU.SCREEN_HEIGHT);
+        }
+
+        void write(int[] screen) throws IOException {
+            for (int i = 0; i < previous.length; i++) {
+                out.writeInt(screen[i] ^ previous[i]);
+                previous[i] = screen[i];
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reconstrói a imagem golden do quadro; null se o arquivo não existe ou termina antes dele.
+     */
+    static int[] readGoldenFrame(Path file, int frame) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != FRAMES_MAGIC || in.readInt() != PPU.SCREEN_WIDTH || in.readInt() != PPU.SCREEN_HEIGHT) {
+                throw new IOException("Arquivo de imagens golden inválido: " + file.getFileName());
+            }
+            int[] screen = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+            for (int f = 0; f <= frame; f++) {
+                for (int i = 0; i < screen.length; i++) {
+                    screen[i] ^= in.readInt();
+                }
+            }
+            return screen;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * CRC32C do screenBuffer (ARGB). A paleta não faz parte do state, então é sempre a padrão da instância headless.
+     */
+    static final class FrameHasher {
+        private final ByteBuffer bytes = ByteBuffer.allocate(PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT * 4);
+        private final IntBuffer ints = bytes.asIntBuffer();
+        private final CRC32C crc = new CRC32C();
+
+        int hash(int[] screen) {
+            ints.clear();
+            ints.put(screen, 0, Math.min(screen.length, ints.capacity()));
+            bytes.clear();
+            crc.reset();
+            crc.update(bytes);
+            return (int) crc.getValue();
+        }
+    }
+
+    static Path findRom(Path movie) {
+        String fileName = movie.getFileName().toString();
+        int dot = fileName.indexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        for (String extension : new String[] {".gb", ".gbc"}) {
+            Path rom = movie.resolveSibling(base + extension);
+            if (Files.isRegularFile(rom)) {
+                return rom;
+            }
+        }
+        return null;
+    }
+
+    static Path goldenFile(Path movie) {
+        return movie.resolveSibling(movieBaseName(movie) + ".hashes");
+    }
+
+    static Path goldenFramesFile(Path movie) {
+        return movie.resolveSibling(movieBaseName(movie) + ".frames.gz");
+    }
+
+    private static String movieBaseName(Path movie) {
+        String fileName = movie.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    /**
+     * Um hash hexadecimal por linha, na ordem dos quadros; null se o arquivo não existe.
+     */
+    static int[] loadHashes(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        int[] hashes = new int[lines.size()];
+        int count = 0;
+        for (String line : lines) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                hashes[count++] = (int) Long.parseLong(line, 16);
+            }
+        }
+        return Arrays.copyOf(hashes, count);
+    }
+
+    static void writeHashes(Path file, List<Integer> hashes) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HASH_HEADER);
+            writer.newLine();
+            for (int hash : hashes) {
+                writer.write(String.format("%08x", hash));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Linha de comando: {@code --frame-hashes <diretório> [opções]}. Retorna 0 se todos os movies conferem.
+     */
+    public static int run(String[] args) {
+        Path root = null;
+        Path reportFile = null;
+        Path diffDir = Paths.get("frame-diffs");
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        boolean fastPaths = true;
+        boolean update = false;
+        boolean verbose = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--frame-hashes": break;
+                    case "--report": reportFile = Paths.get(args[++i]); break;
+                    case "--diff-dir": diffDir = Paths.get(args[++i]); break;
+                    case "--no-diff": diffDir = null; break;
+                    case "--threads": threadCount = Integer.parseInt(args[++i]); break;
+                    case "--accurate": fastPaths = false; break;
+                    case "--update": update = true; break;
+                    case "--verbose": verbose = true; break;
+                    default:
+                        if (args[i].startsWith("--") || root != null) {
+                            System.err.println("Opção desconhecida: " + args[i]);
+                            printUsage();
+                            return 2;
+                        }
+                        root = Paths.get(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Argumentos inválidos: " + e.getMessage());
+            printUsage();
+            return 2;
+        }
+        if (root == null || threadCount < 1) {
+            printUsage();
+            return 2;
+        }
+
+        PrintStream console = System.out;
+        try {
+            List<Path> movies;
+            try (Stream<Path> files = Files.walk(root)) {
+                movies = files.filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gbm"))
+                        .sorted().collect(Collectors.toList());
+            }
+
+            console.println(String.format("Hashes de quadros: %d movies, %d threads%s",
+                    movies.size(), threadCount, update ? " (atualizando golden)" : ""));
+            if (!verbose) {
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            }
+
+            long start = System.nanoTime();
+            List<ConformanceRunner.Result> results = new FrameHashSuite(threadCount, fastPaths, update, diffDir).runAll(root, movies);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.setOut(console);
+
+            long passed = 0;
+            long frames = 0;
+            for (ConformanceRunner.Result r : results) {
+                console.println(String.format(Locale.ROOT, "%-8s %-60s %6.2fs  %s", r.status, r.name, r.seconds, r.message));
+                frames += r.frames;
+                if (r.isPassed()) {
+                    passed++;
+                }
+            }
+            console.println(String.format(Locale.ROOT, "Hashes de quadros: %d/%d conferem, %d quadros em %.1f s",
+                    passed, results.size(), frames, seconds));
+
+            if (reportFile != null) {
+                boolean json = reportFile.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+                String report = json ? ConformanceRunner.toJson(results, seconds) : ConformanceRunner.toJUnitXml(results, seconds);
+                Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+                console.println("Relatório salvo: " + reportFile);
+            }
+            return passed == results.size() ? 0 : 1;
+        } catch (IOException e) {
+            System.setOut(console);
+            System.err.println("Erro de E/S na suíte de hashes: " + e.getMessage());
+            return 2;
+        } catch (InterruptedException e) {
+            System.setOut(console);
+            Thread.currentThread().interrupt();
+            return 2;
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Uso: --frame-hashes <diretório com .gbm e ROMs> [--update] [--report relatorio.xml|relatorio.json]");
+        System.err.println("                    [--diff-dir DIR | --no-diff] [--threads N] [--accurate] [--verbose]");
+    }
+}
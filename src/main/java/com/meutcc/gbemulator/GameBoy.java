@@ -1,6 +1,8 @@
 package com.meutcc.gbemulator;
 
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 public class GameBoy {
     private final CPU cpu;
@@ -10,12 +12,39 @@ public class GameBoy {
     private final Cartridge cartridge;
     private boolean emulatorSoundGloballyEnabled = true;
 
+    // Modo com agendador: PPU, timers, serial e APU só avançam quando um evento vence ou a CPU toca seus registradores
+    private final Scheduler scheduler = new Scheduler();
+    private boolean eventSchedulingEnabled = false;
+    private long componentTime = 0;
+    private boolean synchronizingComponents = false;
+    private boolean eventDeadlinesDirty = false;
+
+    // Limite dos saltos (HALT e laços de espera): o joypad pede interrupção de forma assíncrona, então não dá para prevê-la
+    private static final int FAST_FORWARD_MAX_CYCLES = 4096;
+    private boolean haltSkipEnabled = false;
+    private IdleLoopDetector idleLoopDetector = null;
+    // Ciclos emulados desde a criação; os saltos não passam do prazo (fronteira de quadro dos movies, onde a entrada muda)
+    private long elapsedCycles = 0;
+    private long fastForwardDeadline = Long.MAX_VALUE;
+
     public GameBoy() {
+        this(CPU.DispatchMode.SWITCH);
+    }
+
+    public GameBoy(CPU.DispatchMode dispatchMode) {
+        this(dispatchMode, true);
+    }
+
+    /**
+     * @param audioOutput false para rodar sem abrir a saída de áudio (headless); o áudio
+     *                    só é gerado se um APU.SampleSink for configurado
+     */
+    public GameBoy(CPU.DispatchMode dispatchMode, boolean audioOutput) {
         this.cartridge = new Cartridge();
         this.ppu = new PPU();
-        this.apu = new APU();
+        this.apu = new APU(audioOutput);
         this.mmu = new MMU(cartridge, ppu, apu);
-        this.cpu = new CPU(mmu);
+        this.cpu = new CPU(mmu, dispatchMode);
         this.mmu.setCpu(cpu);
         this.ppu.setMmu(mmu);
         if (this.apu != null) {
@@ -24,8 +53,12 @@ public class GameBoy {
     }
 
     public boolean loadROM(String romPath) {
+        syncComponents();
         if (cartridge.loadROM(romPath)) {
             mmu.loadCartridge(cartridge);
+            if (idleLoopDetector != null) {
+                idleLoopDetector.resetStatistics();
+            }
             if (this.apu != null) {
                 this.apu.setEmulatorSoundGloballyEnabled(this.emulatorSoundGloballyEnabled);
             }
@@ -35,6 +68,9 @@ public class GameBoy {
     }
 
     public void reset() {
+        scheduler.reset();
+        componentTime = 0;
+        eventDeadlinesDirty = true;
         cpu.reset();
         ppu.reset();
         mmu.reset();
@@ -52,11 +88,130 @@ public class GameBoy {
             int dmaCycles = mmu.getDmaCyclesRemaining();
             cycles = dmaCycles;
             mmu.updateDma(dmaCycles);
+            eventDeadlinesDirty = true;
+        } else if (haltSkipEnabled && cpu.canSkipHalt()) {
+            cycles = cyclesUntilNextInterruptSource();
         } else {
+            int previousPc = cpu.getPC();
             cycles = cpu.step();
             if (cycles == -1) return -1;
+
+            if (idleLoopDetector != null && cpu.getPC() < previousPc) {
+                advanceTime(cycles);
+                return cycles + skipIdleLoop();
+            }
+        }
+
+        advanceTime(cycles);
+        return cycles;
+    }
+
+    private void advanceTime(int cycles) {
+        elapsedCycles += cycles;
+        if (!eventSchedulingEnabled) {
+            advanceComponents(cycles);
+            return;
+        }
+
+        scheduler.advance(cycles);
+        if (eventDeadlinesDirty) {
+            rescheduleEvents();
+        }
+        if (scheduler.isEventDue()) {
+            flushComponents();
+            rescheduleEvents();
+        }
+    }
+
+    /**
+     * Ciclos até o próximo evento que pode mudar o que a CPU observa (STAT/VBlank/LY do PPU,
+     * estouro do timer, fim da transferência serial), limitado a FAST_FORWARD_MAX_CYCLES.
+     */
+    private int cyclesUntilNextEvent() {
+        long cycles;
+        if (eventSchedulingEnabled) {
+            if (eventDeadlinesDirty) {
+                rescheduleEvents();
+            }
+            cycles = scheduler.nextEventTime() - scheduler.getNow();
+        } else {
+            cycles = Math.min(ppu.cyclesUntilNextEvent(),
+                    Math.min(mmu.cyclesUntilTimerInterrupt(), mmu.cyclesUntilSerialInterrupt()));
+        }
+        cycles = Math.min(cycles, fastForwardDeadline - elapsedCycles);
+        return (int) Math.max(1, Math.min(cycles, FAST_FORWARD_MAX_CYCLES));
+    }
+
+    public long getElapsedCycles() {
+        return elapsedCycles;
+    }
+
+    /**
+     * Os saltos de HALT e de laços de espera param antes deste ciclo (getElapsedCycles), para que
+     * a entrada aplicada ali encontre a CPU no mesmo ponto com ou sem os atalhos. Long.MAX_VALUE desliga.
+     */
+    public void setFastForwardDeadline(long cycle) {
+        this.fastForwardDeadline = cycle;
+    }
+
+    // Ciclos múltiplos de 4, como os passos em HALT, para acordar no mesmo ponto
+    private int cyclesUntilNextInterruptSource() {
+        return Math.max(4, (cyclesUntilNextEvent() + 3) & ~3);
+    }
+
+    /**
+     * Depois de um desvio para trás: se a CPU está num laço de espera estável, pula as
+     * iterações inteiras que terminam antes do próximo evento e retorna os ciclos pulados.
+     */
+    private int skipIdleLoop() {
+        int iterationCycles = idleLoopDetector.detect(cpu.getPC());
+        if (iterationCycles == 0) {
+            return 0;
         }
 
+        // O registrador lido só pode mudar no ciclo do evento: as iterações puladas terminam antes dele
+        int iterations = (cyclesUntilNextEvent() - 1) / iterationCycles;
+        if (iterations <= 0) {
+            return 0;
+        }
+
+        int skipped = iterations * iterationCycles;
+        advanceTime(skipped);
+        idleLoopDetector.recordSkip(iterations, skipped);
+        return skipped;
+    }
+
+    /**
+     * Detecta laços de espera ativa que só leem LY/STAT/IF/SC/JOYP e avança o tempo
+     * emulado até o registrador poder mudar, sem executar as iterações.
+     */
+    public void setIdleLoopSkipEnabled(boolean enable) {
+        this.idleLoopDetector = enable ? new IdleLoopDetector(mmu, cpu) : null;
+        System.out.println("Salto de laços de espera " + (enable ? "habilitado" : "desabilitado"));
+    }
+
+    public boolean isIdleLoopSkipEnabled() {
+        return idleLoopDetector != null;
+    }
+
+    public String getIdleLoopStatistics() {
+        return idleLoopDetector != null ? idleLoopDetector.getStatistics() : "IdleLoop: desativado";
+    }
+
+    /**
+     * Com a CPU em HALT e nenhuma interrupção pendente, avança todos os componentes de uma vez
+     * até a próxima fonte de interrupção em vez de repetir passos de 4 ciclos.
+     */
+    public void setHaltSkipEnabled(boolean enable) {
+        this.haltSkipEnabled = enable;
+        System.out.println("Salto de HALT " + (enable ? "habilitado" : "desabilitado"));
+    }
+
+    public boolean isHaltSkipEnabled() {
+        return haltSkipEnabled;
+    }
+
+    private void advanceComponents(int cycles) {
         ppu.update(cycles);
         mmu.updateTimers(cycles);
         cartridge.update(cycles);
@@ -64,17 +219,91 @@ public class GameBoy {
         if (this.emulatorSoundGloballyEnabled && apu != null) {
             apu.update(cycles);
         }
+    }
 
-        return cycles;
+    /**
+     * Habilita o agendador de eventos. Em vez de atualizar PPU/timers/APU após cada instrução,
+     * os ciclos são acumulados e aplicados em lote quando o próximo evento agendado vence
+     * (mudança de modo do PPU, estouro do TIMA, fim de transferência serial, passo do frame
+     * sequencer, fim de DMA) ou antes de a CPU acessar VRAM, OAM ou registradores de I/O.
+     */
+    public void setEventSchedulingEnabled(boolean enable) {
+        if (enable == eventSchedulingEnabled) {
+            return;
+        }
+        syncComponents();
+        this.eventSchedulingEnabled = enable;
+        this.componentTime = scheduler.getNow();
+        this.eventDeadlinesDirty = true;
+        mmu.setAccessSyncHook(enable ? this::onComponentAccess : null);
+        System.out.println("Agendador de eventos " + (enable ? "habilitado" : "desabilitado"));
+    }
+
+    public boolean isEventSchedulingEnabled() {
+        return eventSchedulingEnabled;
+    }
+
+    /**
+     * Aplica os ciclos pendentes a todos os componentes. Sem efeito no modo sem agendador.
+     */
+    public void syncComponents() {
+        if (eventSchedulingEnabled) {
+            flushComponents();
+            rescheduleEvents();
+        }
+    }
+
+    private void onComponentAccess() {
+        flushComponents();
+        // O acesso ainda vai alterar o componente: os prazos são recalculados no fim da instrução
+        eventDeadlinesDirty = true;
+    }
+
+    private void flushComponents() {
+        if (synchronizingComponents) {
+            return;
+        }
+        int pending = (int) (scheduler.getNow() - componentTime);
+        if (pending <= 0) {
+            return;
+        }
+
+        synchronizingComponents = true;
+        try {
+            advanceComponents(pending);
+        } finally {
+            synchronizingComponents = false;
+        }
+        componentTime = scheduler.getNow();
+    }
+
+    private void rescheduleEvents() {
+        eventDeadlinesDirty = false;
+        scheduler.schedule(Scheduler.EventType.PPU_MODE, eventTime(ppu.cyclesUntilNextEvent()));
+        scheduler.schedule(Scheduler.EventType.TIMER_OVERFLOW, eventTime(mmu.cyclesUntilTimerInterrupt()));
+        scheduler.schedule(Scheduler.EventType.SERIAL_TRANSFER, eventTime(mmu.cyclesUntilSerialInterrupt()));
+        scheduler.schedule(Scheduler.EventType.APU_FRAME_SEQUENCER,
+                emulatorSoundGloballyEnabled && apu != null ? eventTime(apu.cyclesUntilFrameSequencerTick()) : Scheduler.NEVER);
+        // O bloqueio de memória do DMA muda o que o PPU consegue escrever: sincroniza antes de ele terminar
+        scheduler.schedule(Scheduler.EventType.DMA_END, mmu.isDmaActive() ? componentTime : Scheduler.NEVER);
+    }
+
+    private long eventTime(int cyclesFromComponentTime) {
+        return cyclesFromComponentTime == Integer.MAX_VALUE ? Scheduler.NEVER : componentTime + cyclesFromComponentTime;
     }
 
     public void setEmulatorSoundGloballyEnabled(boolean enabled) {
         this.emulatorSoundGloballyEnabled = enabled;
+        this.eventDeadlinesDirty = true;
         if (this.apu != null) {
             this.apu.setEmulatorSoundGloballyEnabled(enabled);
         }
     }
 
+    public boolean isEmulatorSoundGloballyEnabled() {
+        return emulatorSoundGloballyEnabled;
+    }
+
     public MMU getMmu() {
         return mmu;
     }
@@ -96,67 +325,188 @@ public class GameBoy {
     }
     
     public void saveState(String filePath) throws IOException {
-        try (DataOutputStream dos = new DataOutputStream(
-                new BufferedOutputStream(new FileOutputStream(filePath)))) {
-            
-            dos.writeInt(0x47425353); // Magic: "GBSS"
-            dos.writeInt(2); // Version 2
-            
-            dos.writeInt(cpu.getA());
-            dos.writeInt(cpu.getB());
-            dos.writeInt(cpu.getC());
-            dos.writeInt(cpu.getD());
-            dos.writeInt(cpu.getE());
-            dos.writeInt(cpu.getH());
-            dos.writeInt(cpu.getL());
-            dos.writeInt(cpu.getF());
-            dos.writeInt(cpu.getSP());
-            dos.writeInt(cpu.getPC());
-            dos.writeBoolean(cpu.getIME());
-            dos.writeBoolean(cpu.isHalted());
-            
-            mmu.saveState(dos);
-            ppu.saveState(dos);
-            apu.saveState(dos);
-            
+        ByteBuffer buffer = ByteBuffer.allocate(getStateSizeBound());
+        saveState(buffer);
+        try (FileOutputStream fos = new FileOutputStream(filePath)) {
+            fos.write(buffer.array(), 0, buffer.position());
             System.out.println("Estado salvo: " + filePath);
         }
     }
-    
+
+    /**
+     * Limite superior do tamanho de um state v3 para o cartucho atual.
+     */
+    public int getStateSizeBound() {
+        // WRAM + I/O + VRAM + OAM + RAM externa, mais folga para registradores e cabeçalhos
+        return 0x2000 + 0x100 + 0x2000 + 0xA0 + cartridge.getRamSize() + 4096;
+    }
+
+    /**
+     * Escreve o estado completo (formato v3) a partir da posição atual do buffer.
+     * Não aloca nada: usado pelo rewind e pelo run-ahead a cada quadro.
+     */
+    public void saveState(ByteBuffer buffer) {
+        syncComponents();
+        buffer.putInt(SaveStateFormat.MAGIC);
+        buffer.putInt(SaveStateFormat.VERSION);
+
+        int chunk = SaveStateFormat.beginChunk(buffer, SaveStateFormat.TAG_CPU, 2);
+        buffer.put((byte) cpu.getA());
+        buffer.put((byte) cpu.getB());
+        buffer.put((byte) cpu.getC());
+        buffer.put((byte) cpu.getD());
+        buffer.put((byte) cpu.getE());
+        buffer.put((byte) cpu.getH());
+        buffer.put((byte) cpu.getL());
+        buffer.put((byte) cpu.getF());
+        buffer.putShort((short) cpu.getSP());
+        buffer.putShort((short) cpu.getPC());
+        SaveStateFormat.putBoolean(buffer, cpu.getIME());
+        SaveStateFormat.putBoolean(buffer, cpu.isHalted());
+        SaveStateFormat.putBoolean(buffer, cpu.isEiDelayed());
+        SaveStateFormat.putBoolean(buffer, cpu.isHaltBugTriggered());
+        SaveStateFormat.putBoolean(buffer, cpu.isStopped());
+        SaveStateFormat.endChunk(buffer, chunk);
+
+        chunk = SaveStateFormat.beginChunk(buffer, SaveStateFormat.TAG_MMU, 1);
+        mmu.saveState(buffer);
+        SaveStateFormat.endChunk(buffer, chunk);
+
+        chunk = SaveStateFormat.beginChunk(buffer, SaveStateFormat.TAG_PPU, 1);
+        ppu.saveState(buffer);
+        SaveStateFormat.endChunk(buffer, chunk);
+
+        chunk = SaveStateFormat.beginChunk(buffer, SaveStateFormat.TAG_APU, 1);
+        apu.saveState(buffer);
+        SaveStateFormat.endChunk(buffer, chunk);
+
+        chunk = SaveStateFormat.beginChunk(buffer, SaveStateFormat.TAG_SERIAL, 1);
+        mmu.getSerial().saveState(buffer);
+        SaveStateFormat.endChunk(buffer, chunk);
+
+        chunk = SaveStateFormat.beginChunk(buffer, SaveStateFormat.TAG_MBC, 1);
+        cartridge.saveState(buffer);
+        SaveStateFormat.endChunk(buffer, chunk);
+
+        chunk = SaveStateFormat.beginChunk(buffer, SaveStateFormat.TAG_END, 1);
+        SaveStateFormat.endChunk(buffer, chunk);
+    }
+
     public void loadState(String filePath) throws IOException {
-        try (DataInputStream dis = new DataInputStream(
-                new BufferedInputStream(new FileInputStream(filePath)))) {
-            
-            int magic = dis.readInt();
-            if (magic != 0x47425353) {
-                throw new IOException("Arquivo de save state inválido");
-            }
-            
-            int version = dis.readInt();
-            if (version < 1 || version > 2) {
-                throw new IOException("Versão de save state não suportada: " + version);
+        byte[] data;
+        try (FileInputStream fis = new FileInputStream(filePath)) {
+            data = fis.readAllBytes();
+        }
+        loadState(ByteBuffer.wrap(data));
+        System.out.println("Estado carregado: " + filePath);
+    }
+
+    /**
+     * Carrega um state a partir da posição atual do buffer. Arquivos v1/v2 caem no leitor antigo.
+     */
+    public void loadState(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 8 || buffer.getInt(buffer.position()) != SaveStateFormat.MAGIC) {
+            throw new IOException("Arquivo de save state inválido");
+        }
+        int version = buffer.getInt(buffer.position() + 4);
+        if (version == 1 || version == 2) {
+            byte[] legacy = new byte[buffer.remaining()];
+            buffer.get(legacy);
+            loadLegacyState(new DataInputStream(new ByteArrayInputStream(legacy)));
+            return;
+        }
+        if (version != SaveStateFormat.VERSION) {
+            throw new IOException("Versão de save state não suportada: " + version);
+        }
+        buffer.position(buffer.position() + 8);
+
+        syncComponents();
+        int limit = buffer.limit();
+        try {
+            while (true) {
+                int tag = buffer.getInt();
+                int chunkVersion = buffer.getInt();
+                int length = buffer.getInt();
+                if (tag == SaveStateFormat.TAG_END) {
+                    break;
+                }
+                int end = buffer.position() + length;
+                buffer.limit(end);
+                if (tag == SaveStateFormat.TAG_CPU) {
+                    loadCpuState(buffer);
+                } else if (tag == SaveStateFormat.TAG_MMU) {
+                    mmu.loadState(buffer, chunkVersion);
+                } else if (tag == SaveStateFormat.TAG_PPU) {
+                    ppu.loadState(buffer, chunkVersion);
+                } else if (tag == SaveStateFormat.TAG_APU) {
+                    apu.loadState(buffer, chunkVersion);
+                } else if (tag == SaveStateFormat.TAG_SERIAL) {
+                    mmu.getSerial().loadState(buffer, chunkVersion);
+                } else if (tag == SaveStateFormat.TAG_MBC) {
+                    cartridge.loadState(buffer, chunkVersion);
+                }
+                // Blocos desconhecidos (ou com campos a mais) são pulados pelo tamanho
+                buffer.limit(limit);
+                buffer.position(end);
             }
-            
-            System.out.println("Carregando save state versão " + version);
-            
-            cpu.setA(dis.readInt());
-            cpu.setB(dis.readInt());
-            cpu.setC(dis.readInt());
-            cpu.setD(dis.readInt());
-            cpu.setE(dis.readInt());
-            cpu.setH(dis.readInt());
-            cpu.setL(dis.readInt());
-            cpu.setF(dis.readInt());
-            cpu.setSP(dis.readInt());
-            cpu.setPC(dis.readInt());
-            cpu.setIME(dis.readBoolean());
-            cpu.setHalted(dis.readBoolean());
-            
-            mmu.loadState(dis);
-            ppu.loadState(dis);
-            apu.loadState(dis);
-            
-            System.out.println("Estado carregado: " + filePath);
-        }
-    }
-}
\ No newline at end of file
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Save state truncado ou corrompido", e);
+        } finally {
+            buffer.limit(limit);
+        }
+        mmu.finishStateLoad();
+        eventDeadlinesDirty = true;
+    }
+
+    private void loadCpuState(ByteBuffer buffer) {
+        cpu.setA(buffer.get() & 0xFF);
+        cpu.setB(buffer.get() & 0xFF);
+        cpu.setC(buffer.get() & 0xFF);
+        cpu.setD(buffer.get() & 0xFF);
+        cpu.setE(buffer.get() & 0xFF);
+        cpu.setH(buffer.get() & 0xFF);
+        cpu.setL(buffer.get() & 0xFF);
+        cpu.setF(buffer.get() & 0xFF);
+        cpu.setSP(buffer.getShort() & 0xFFFF);
+        cpu.setPC(buffer.getShort() & 0xFFFF);
+        cpu.setIME(SaveStateFormat.getBoolean(buffer));
+        cpu.setHalted(SaveStateFormat.getBoolean(buffer));
+        cpu.setEiDelayed(SaveStateFormat.getBoolean(buffer));
+        cpu.setHaltBugTriggered(SaveStateFormat.getBoolean(buffer));
+        cpu.setStopped(SaveStateFormat.getBoolean(buffer));
+    }
+
+    private void loadLegacyState(DataInputStream dis) throws IOException {
+        int magic = dis.readInt();
+        if (magic != SaveStateFormat.MAGIC) {
+            throw new IOException("Arquivo de save state inválido");
+        }
+
+        int version = dis.readInt();
+        if (version < 1 || version > 2) {
+            throw new IOException("Versão de save state não suportada: " + version);
+        }
+
+        syncComponents();
+        cpu.setA(dis.readInt());
+        cpu.setB(dis.readInt());
+        cpu.setC(dis.readInt());
+        cpu.setD(dis.readInt());
+        cpu.setE(dis.readInt());
+        cpu.setH(dis.readInt());
+        cpu.setL(dis.readInt());
+        cpu.setF(dis.readInt());
+        cpu.setSP(dis.readInt());
+        cpu.setPC(dis.readInt());
+        cpu.setIME(dis.readBoolean());
+        cpu.setHalted(dis.readBoolean());
+        cpu.setEiDelayed(false);
+        cpu.setHaltBugTriggered(false);
+        cpu.setStopped(false);
+
+        mmu.loadState(dis);
+        ppu.loadState(dis);
+        apu.loadState(dis);
+        eventDeadlinesDirty = true;
+    }
+}
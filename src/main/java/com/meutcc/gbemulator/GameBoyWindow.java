@@ -4,7 +4,13 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.VolatileImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 public class GameBoyWindow extends JFrame {
 
@@ -13,6 +19,8 @@ public class GameBoyWindow extends JFrame {
     private static final int DEFAULT_SCALE = 3;
     private static final int MIN_SCALE = 1;
     private static final double ASPECT_RATIO = (double) SCREEN_WIDTH / SCREEN_HEIGHT;
+    // Sincronização pelo áudio: latência alvo do buffer (50 ms)
+    private static final int AUDIO_SYNC_TARGET_FRAMES = APU.SAMPLE_RATE / 20;
 
     private final Canvas canvas;
     private BufferStrategy bufferStrategy;
@@ -26,22 +34,44 @@ public class GameBoyWindow extends JFrame {
     private GamepadInputHandler gamepadInputHandler;
 
     private boolean globalSoundEnabled = true;
+    private volatile boolean audioSyncEnabled = false;
+    // Histórico de rewind; null quando desativado. Só a thread de emulação o usa
+    private volatile RewindBuffer rewindBuffer;
+    // Run-ahead; null quando desativado
+    private volatile RunAhead runAhead;
+    // Movie sendo gravado ou reproduzido; criado e usado só na thread de emulação
+    private volatile Movie movie;
+    // Ações do menu que precisam rodar na thread de emulação, entre quadros
+    private final Queue<Runnable> emulationTasks = new ConcurrentLinkedQueue<>();
 
     private ConfigManager configManager;
     private int currentWindowScale = DEFAULT_SCALE;
 
     private JCheckBoxMenuItem toggleSoundItem;
+    private JCheckBoxMenuItem bandLimitedItem;
+    private JCheckBoxMenuItem audioSyncItem;
     private ButtonGroup paletteGroup;
     private ButtonGroup scalingGroup;
     private JCheckBoxMenuItem ghostingItem;
     private JCheckBoxMenuItem gridItem;
     private JCheckBoxMenuItem scanlinesItem;
     private JCheckBoxMenuItem enableGamepadItem;
+    private JCheckBoxMenuItem rewindItem;
 
     private ScalingFilter currentScalingFilter = ScalingFilter.NEAREST_NEIGHBOR;
     private ScreenEffect screenEffect = new ScreenEffect();
+    // Criado no primeiro uso de um filtro Scale2x/xBRZ
+    private PixelArtScaler pixelArtScaler;
 
     private BufferedImage screenBuffer;
+    // Array por trás do screenBuffer; a PPU escreve nele diretamente
+    private int[] screenPixels;
+    // Cópia do quadro na memória de vídeo, ampliada pela placa a cada apresentação
+    private VolatileImage frameImage;
+
+    private long presentNanosTotal;
+    private long presentNanosMax;
+    private int presentSamples;
 
     public GameBoyWindow() {
         setTitle("Emulador de Game Boy");
@@ -53,6 +83,7 @@ public class GameBoyWindow extends JFrame {
 
         currentWindowScale = configManager.getConfig().getWindowScale();
         globalSoundEnabled = configManager.getConfig().isAudioEnabled();
+        audioSyncEnabled = configManager.getConfig().isAudioSyncEnabled();
 
         addWindowListener(new java.awt.event.WindowAdapter() {
             @Override
@@ -68,6 +99,7 @@ public class GameBoyWindow extends JFrame {
                     }
                 }
 
+                stopMovie();
                 gameBoy.getCartridge().saveBatteryRam();
                 configManager.saveConfig();
                 System.exit(0);
@@ -76,7 +108,13 @@ public class GameBoyWindow extends JFrame {
 
         gameBoy = new GameBoy();
         gameBoy.setEmulatorSoundGloballyEnabled(globalSoundEnabled);
+        gameBoy.getApu().setBandLimitedEnabled(configManager.getConfig().isBandLimitedAudio());
+        gameBoy.getApu().setAudioThreadEnabled(true);
+        gameBoy.getMmu().setPageTableEnabled(true);
+        gameBoy.getPpu().setTileCacheEnabled(true);
         inputHandler = new InputHandler(gameBoy.getMmu());
+        setRewindEnabled(configManager.getConfig().isRewindEnabled());
+        setRunAheadFrames(configManager.getConfig().getRunAheadFrames());
 
         initializeGamepadSupport();
 
@@ -90,8 +128,12 @@ public class GameBoyWindow extends JFrame {
         add(canvas, BorderLayout.CENTER);
 
         screenBuffer = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        screenPixels = ((DataBufferInt) screenBuffer.getRaster().getDataBuffer()).getData();
+        gameBoy.getPpu().setScreenBuffer(screenPixels);
 
         screenEffect.setGhostingEnabled(configManager.getConfig().isGhostingEnabled());
+        screenEffect.setGhostingIntensity(configManager.getConfig().getGhostingIntensity());
+        screenEffect.setGhostingFrames(configManager.getConfig().getGhostingFrames());
         screenEffect.setGridEnabled(configManager.getConfig().isGridEnabled());
         screenEffect.setScanlinesEnabled(configManager.getConfig().isScanlinesEnabled());
 
@@ -125,6 +167,24 @@ public class GameBoyWindow extends JFrame {
         loadStateItem.addActionListener(e -> loadState());
         fileMenu.add(loadStateItem);
 
+        fileMenu.addSeparator();
+
+        JMenuItem recordMovieItem = new JMenuItem("Gravar Movie...");
+        recordMovieItem.addActionListener(e -> recordMovie(false));
+        fileMenu.add(recordMovieItem);
+
+        JMenuItem recordPowerOnItem = new JMenuItem("Gravar Movie do Power-On...");
+        recordPowerOnItem.addActionListener(e -> recordMovie(true));
+        fileMenu.add(recordPowerOnItem);
+
+        JMenuItem playMovieItem = new JMenuItem("Reproduzir Movie...");
+        playMovieItem.addActionListener(e -> playMovie());
+        fileMenu.add(playMovieItem);
+
+        JMenuItem stopMovieItem = new JMenuItem("Parar Movie");
+        stopMovieItem.addActionListener(e -> emulationTasks.add(this::stopMovie));
+        fileMenu.add(stopMovieItem);
+
         JMenu windowMenu = new JMenu("Janela");
         for (int scale = 1; scale <= 6; scale++) {
             final int s = scale;
@@ -185,6 +245,22 @@ public class GameBoyWindow extends JFrame {
         });
         effectsMenu.add(ghostingItem);
 
+        JMenu ghostingFramesMenu = new JMenu("Persistência do Ghosting");
+        ButtonGroup ghostingFramesGroup = new ButtonGroup();
+        for (int frames = 1; frames <= 8; frames++) {
+            int ghostingFrames = frames;
+            JRadioButtonMenuItem framesItem = new JRadioButtonMenuItem(frames + (frames == 1 ? " quadro" : " quadros"));
+            framesItem.setSelected(frames == configManager.getConfig().getGhostingFrames());
+            framesItem.addActionListener(e -> {
+                screenEffect.setGhostingFrames(ghostingFrames);
+                configManager.getConfig().setGhostingFrames(ghostingFrames);
+                configManager.saveConfig();
+            });
+            ghostingFramesGroup.add(framesItem);
+            ghostingFramesMenu.add(framesItem);
+        }
+        effectsMenu.add(ghostingFramesMenu);
+
         gridItem = new JCheckBoxMenuItem("Grid Lines", configManager.getConfig().isGridEnabled());
         gridItem.addActionListener(e -> {
             screenEffect.setGridEnabled(gridItem.isSelected());
@@ -225,6 +301,33 @@ public class GameBoyWindow extends JFrame {
         });
         controlMenu.add(enableGamepadItem);
 
+        controlMenu.addSeparator();
+
+        rewindItem = new JCheckBoxMenuItem("Rewind (segurar Backspace)", configManager.getConfig().isRewindEnabled());
+        rewindItem.addActionListener(e -> {
+            setRewindEnabled(rewindItem.isSelected());
+            configManager.getConfig().setRewindEnabled(rewindItem.isSelected());
+            configManager.saveConfig();
+        });
+        controlMenu.add(rewindItem);
+
+        JMenu runAheadMenu = new JMenu("Run-Ahead (reduz latência)");
+        ButtonGroup runAheadGroup = new ButtonGroup();
+        for (int frames = 0; frames <= 4; frames++) {
+            int runAheadFrames = frames;
+            String label = frames == 0 ? "Desligado" : frames + (frames == 1 ? " quadro" : " quadros");
+            JRadioButtonMenuItem runAheadItem = new JRadioButtonMenuItem(label);
+            runAheadItem.setSelected(frames == configManager.getConfig().getRunAheadFrames());
+            runAheadItem.addActionListener(e -> {
+                setRunAheadFrames(runAheadFrames);
+                configManager.getConfig().setRunAheadFrames(runAheadFrames);
+                configManager.saveConfig();
+            });
+            runAheadGroup.add(runAheadItem);
+            runAheadMenu.add(runAheadItem);
+        }
+        controlMenu.add(runAheadMenu);
+
         menuBar.add(controlMenu);
 
         JMenu soundMenu = new JMenu("Som");
@@ -238,6 +341,23 @@ public class GameBoyWindow extends JFrame {
         });
 
         soundMenu.add(toggleSoundItem);
+
+        bandLimitedItem = new JCheckBoxMenuItem("Síntese Band-Limited", configManager.getConfig().isBandLimitedAudio());
+        bandLimitedItem.addActionListener(e -> {
+            gameBoy.getApu().setBandLimitedEnabled(bandLimitedItem.isSelected());
+            configManager.getConfig().setBandLimitedAudio(bandLimitedItem.isSelected());
+            configManager.saveConfig();
+        });
+        soundMenu.add(bandLimitedItem);
+
+        audioSyncItem = new JCheckBoxMenuItem("Sincronizar pelo Áudio", audioSyncEnabled);
+        audioSyncItem.addActionListener(e -> {
+            audioSyncEnabled = audioSyncItem.isSelected();
+            configManager.getConfig().setAudioSyncEnabled(audioSyncEnabled);
+            configManager.saveConfig();
+            System.out.println("Sincronização pelo áudio: " + (audioSyncEnabled ? "Habilitada" : "Desabilitada"));
+        });
+        soundMenu.add(audioSyncItem);
         menuBar.add(soundMenu);
 
         JMenu linkMenu = new JMenu("Link Cable (Beta)");
@@ -376,6 +496,52 @@ public class GameBoyWindow extends JFrame {
         setLocationRelativeTo(null);
     }
 
+    private void setRewindEnabled(boolean enabled) {
+        if (enabled) {
+            EmulatorConfig config = configManager.getConfig();
+            rewindBuffer = new RewindBuffer(gameBoy, config.getRewindBufferMB() * 1024 * 1024, config.getRewindInterval());
+        } else {
+            rewindBuffer = null;
+        }
+        System.out.println("Rewind " + (enabled ? "habilitado" : "desabilitado"));
+    }
+
+    private void setRunAheadFrames(int frames) {
+        runAhead = frames > 0 ? new RunAhead(gameBoy, frames) : null;
+        System.out.println(frames > 0 ? "Run-ahead habilitado: " + frames + " quadro(s)" : "Run-ahead desabilitado");
+    }
+
+    /**
+     * @return false quando não há mais histórico para voltar
+     */
+    private boolean rewindStep(RewindBuffer rewind) {
+        try {
+            return rewind.rewind();
+        } catch (IOException e) {
+            System.err.println("Rewind desativado: " + e.getMessage());
+            rewindBuffer = null;
+            return true;
+        }
+    }
+
+    /**
+     * @return true se o quadro adiantado deve ser exibido
+     */
+    private boolean runAheadStep(RunAhead ahead, int cyclesPerFrame) {
+        try {
+            if (!ahead.runFrame(cyclesPerFrame)) {
+                running = false;
+                System.err.println("CPU Halted or fatal error in emulation step.");
+                return false;
+            }
+            return ahead.isFrameReady();
+        } catch (IOException e) {
+            System.err.println("Run-ahead desativado: " + e.getMessage());
+            runAhead = null;
+            return false;
+        }
+    }
+
     private void saveState() {
         JFileChooser fileChooser = new JFileChooser(".");
         fileChooser.setDialogTitle("Save State");
@@ -441,6 +607,105 @@ public class GameBoyWindow extends JFrame {
         }
     }
 
+    private void recordMovie(boolean powerOn) {
+        File file = chooseMovieFile("Gravar Movie", true);
+        if (file != null) {
+            emulationTasks.add(() -> {
+                stopMovie();
+                try {
+                    movie = Movie.record(gameBoy, file.toPath(), powerOn);
+                } catch (IOException ex) {
+                    showMovieError("Falha ao gravar movie: " + ex.getMessage());
+                }
+            });
+        }
+    }
+
+    private void playMovie() {
+        File file = chooseMovieFile("Reproduzir Movie", false);
+        if (file != null) {
+            emulationTasks.add(() -> {
+                stopMovie();
+                try {
+                    movie = Movie.play(gameBoy, file.toPath());
+                } catch (IOException ex) {
+                    showMovieError("Falha ao reproduzir movie: " + ex.getMessage());
+                }
+            });
+        }
+    }
+
+    private File chooseMovieFile(String title, boolean save) {
+        if (!running) {
+            JOptionPane.showMessageDialog(this, "Carregue uma ROM primeiro.", title, JOptionPane.INFORMATION_MESSAGE);
+            return null;
+        }
+        JFileChooser fileChooser = new JFileChooser(".");
+        fileChooser.setDialogTitle(title);
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return f.isDirectory() || f.getName().toLowerCase().endsWith(".gbm");
+            }
+
+            @Override
+            public String getDescription() {
+                return "Movies (*.gbm)";
+            }
+        });
+        int result = save ? fileChooser.showSaveDialog(this) : fileChooser.showOpenDialog(this);
+        if (result != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        File file = fileChooser.getSelectedFile();
+        if (save && !file.getName().toLowerCase().endsWith(".gbm")) {
+            file = new File(file.getAbsolutePath() + ".gbm");
+        }
+        return file;
+    }
+
+    private void showMovieError(String message) {
+        System.err.println(message);
+        SwingUtilities.invokeLater(() ->
+                JOptionPane.showMessageDialog(this, message, "Movie", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void stopMovie() {
+        Movie current = movie;
+        movie = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar movie: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return true se o quadro terminou um VBlank e deve ser exibido
+     */
+    private boolean movieStep(Movie current) {
+        try {
+            int cycles = current.runFrame();
+            if (cycles == -1) {
+                running = false;
+                System.err.println("CPU Halted or fatal error in emulation step.");
+                return false;
+            }
+            if (cycles == 0) {
+                System.out.println("Reprodução do movie terminou: " + current.getFrameCount() + " quadros");
+                stopMovie();
+                return false;
+            }
+            return gameBoy.getPpu().isFrameCompleted();
+        } catch (IOException e) {
+            showMovieError("Movie interrompido: " + e.getMessage());
+            stopMovie();
+            return false;
+        }
+    }
+
     public void loadROM(String romPath) {
         if (emulationThread != null && emulationThread.isAlive()) {
             running = false;
@@ -452,6 +717,8 @@ public class GameBoyWindow extends JFrame {
             }
         }
 
+        stopMovie();
+        emulationTasks.clear();
         gameBoy.getCartridge().saveBatteryRam();
 
         if (gameBoy.loadROM(romPath)) {
@@ -487,10 +754,15 @@ public class GameBoyWindow extends JFrame {
     private void emulationLoop() {
         final int CYCLES_PER_FRAME = 70224;
         final long NANOSECONDS_PER_FRAME = 16_666_667L;
+        // 70224 ciclos a 4194304 Hz (59,73 quadros/s): o ritmo em que o APU produz o áudio
+        final long NANOSECONDS_PER_GAMEBOY_FRAME = 16_742_706L;
         final double TARGET_FPS = 60.0;
 
         gameBoy.reset();
         gameBoy.setEmulatorSoundGloballyEnabled(globalSoundEnabled);
+        if (rewindBuffer != null) {
+            rewindBuffer.clear();
+        }
 
         long nextFrameTime = System.nanoTime();
         int actualFramesRendered = 0;
@@ -506,35 +778,77 @@ public class GameBoyWindow extends JFrame {
 
         while (running) {
             long frameStartTime = System.nanoTime();
+            Runnable task;
+            while ((task = emulationTasks.poll()) != null) {
+                task.run();
+            }
+            APU apu = gameBoy.getApu();
+            // O timer de quadros dita o ritmo do vídeo; a taxa de amostras é ajustada (±0,5%) para manter
+            // o buffer de áudio no alvo, absorvendo a diferença entre o relógio da placa de som e o do sistema
+            boolean audioSync = audioSyncEnabled && globalSoundEnabled && apu.isAudioThreadEnabled() && !paused;
+            if (!audioSync && apu.getRateRatio() != 1.0) {
+                apu.setRateRatio(1.0);
+            }
+            long framePeriod = audioSync ? NANOSECONDS_PER_GAMEBOY_FRAME : NANOSECONDS_PER_FRAME;
 
             long currentTime = frameStartTime;
             if (currentTime >= nextFrameTime && !paused) {
-                int cyclesThisFrame = 0;
-                while (cyclesThisFrame < CYCLES_PER_FRAME) {
-                    int cycles = gameBoy.step();
-                    if (cycles == -1) {
-                        running = false;
-                        System.err.println("CPU Halted or fatal error in emulation step.");
-                        break;
+                RewindBuffer rewind = rewindBuffer;
+                Movie activeMovie = movie;
+                // Rewind e run-ahead carregam estados e quebrariam o sincronismo do movie
+                boolean rewinding = rewind != null && activeMovie == null && inputHandler.isRewindHeld();
+                // Voltando no tempo: carrega o snapshot anterior e emula um quadro a partir dele para exibir.
+                // Sem histórico restante, a imagem fica parada.
+                boolean runFrame = !rewinding || rewindStep(rewind);
+                RunAhead ahead = rewinding || activeMovie != null ? null : runAhead;
+
+                boolean frameReady;
+                if (activeMovie != null) {
+                    frameReady = movieStep(activeMovie);
+                } else if (ahead != null) {
+                    frameReady = runAheadStep(ahead, CYCLES_PER_FRAME);
+                } else {
+                    int cyclesThisFrame = runFrame ? 0 : CYCLES_PER_FRAME;
+                    while (cyclesThisFrame < CYCLES_PER_FRAME) {
+                        int cycles = gameBoy.step();
+                        if (cycles == -1) {
+                            running = false;
+                            System.err.println("CPU Halted or fatal error in emulation step.");
+                            break;
+                        }
+                        cyclesThisFrame += cycles;
                     }
-                    cyclesThisFrame += cycles;
+                    frameReady = gameBoy.getPpu().isFrameCompleted();
                 }
 
                 if (!running)
                     break;
 
-                if (gameBoy.getPpu().isFrameCompleted()) {
+                if (frameReady) {
                     renderFrame(gameBoy.getPpu().getScreenBuffer());
                     actualFramesRendered++;
                 }
 
-                nextFrameTime += NANOSECONDS_PER_FRAME;
+                if (audioSync) {
+                    apu.updateRateControl(AUDIO_SYNC_TARGET_FRAMES);
+                }
+
+                if (rewind != null && !rewinding) {
+                    try {
+                        rewind.onFrame();
+                    } catch (IOException e) {
+                        System.err.println("Rewind desativado: " + e.getMessage());
+                        rewindBuffer = null;
+                    }
+                }
+
+                nextFrameTime += framePeriod;
 
-                if (System.nanoTime() - nextFrameTime > NANOSECONDS_PER_FRAME * 3) {
-                    nextFrameTime = System.nanoTime() + NANOSECONDS_PER_FRAME;
+                if (System.nanoTime() - nextFrameTime > framePeriod * 3) {
+                    nextFrameTime = System.nanoTime() + framePeriod;
                 }
             } else if (paused) {
-                nextFrameTime = System.nanoTime() + NANOSECONDS_PER_FRAME;
+                nextFrameTime = System.nanoTime() + framePeriod;
             }
 
             if (!running)
@@ -545,25 +859,45 @@ public class GameBoyWindow extends JFrame {
             minProcessingTime = Math.min(minProcessingTime, processingTime);
             maxProcessingTime = Math.max(maxProcessingTime, processingTime);
 
-            currentTime = System.nanoTime();
-            long sleepTime = nextFrameTime - currentTime;
+            if (audioSync) {
+                // Só protege o buffer de transbordar (ex.: depois de um travamento da thread de áudio);
+                // no regime normal o ajuste de taxa mantém o preenchimento bem abaixo deste limite
+                while (running && apu.getBufferedAudioFrames() > 2 * AUDIO_SYNC_TARGET_FRAMES) {
+                    LockSupport.parkNanos(500_000L);
+                }
+            }
+
+            if (audioSync) {
+                // Sem espera ativa: o atraso de acordar do park entra no preenchimento do buffer,
+                // que o ajuste de taxa compensa nos quadros seguintes
+                long parkTime;
+                while (running && (parkTime = nextFrameTime - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(parkTime);
+                    if (Thread.currentThread().isInterrupted()) {
+                        running = false;
+                    }
+                }
+            } else {
+                currentTime = System.nanoTime();
+                long sleepTime = nextFrameTime - currentTime;
 
-            if (sleepTime > 2_000_000) {
-                long sleepMs = sleepTime / 1_000_000;
-                int sleepNs = (int) (sleepTime % 1_000_000);
+                if (sleepTime > 2_000_000) {
+                    long sleepMs = sleepTime / 1_000_000;
+                    int sleepNs = (int) (sleepTime % 1_000_000);
 
-                try {
-                    if (sleepMs > 1) {
-                        Thread.sleep(sleepMs - 1, sleepNs);
+                    try {
+                        if (sleepMs > 1) {
+                            Thread.sleep(sleepMs - 1, sleepNs);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        running = false;
                     }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    running = false;
                 }
-            }
 
-            while (System.nanoTime() < nextFrameTime && running) {
-                Thread.onSpinWait();
+                while (System.nanoTime() < nextFrameTime && running) {
+                    Thread.onSpinWait();
+                }
             }
 
             long actualFrameTime = System.nanoTime() - frameStartTime;
@@ -588,6 +922,28 @@ public class GameBoyWindow extends JFrame {
                         actualFramesRendered, TARGET_FPS,
                         avgProcessingTimeMs, cpuUsagePercent, minProcessingTimeMs, maxProcessingTimeMs,
                         avgFrameTimeMs, minFrameTimeMs, maxFrameTimeMs);
+                if (presentSamples > 0) {
+                    System.out.println(getPresentStatistics());
+                    presentNanosTotal = 0;
+                    presentNanosMax = 0;
+                    presentSamples = 0;
+                }
+                if (gameBoy.getApu().isAudioThreadEnabled()) {
+                    System.out.println(gameBoy.getApu().getAudioStatistics());
+                }
+                if (gameBoy.getPpu().isTileCacheEnabled()) {
+                    System.out.println(gameBoy.getPpu().getTileCacheStatistics());
+                    gameBoy.getPpu().resetTileCacheStatistics();
+                }
+                RewindBuffer rewindStats = rewindBuffer;
+                if (rewindStats != null) {
+                    System.out.println(rewindStats.getStatistics());
+                }
+                RunAhead runAheadStats = runAhead;
+                if (runAheadStats != null) {
+                    System.out.println(runAheadStats.getStatistics());
+                    runAheadStats.resetStatistics();
+                }
 
                 actualFramesRendered = 0;
                 totalProcessingTime = 0;
@@ -932,7 +1288,10 @@ public class GameBoyWindow extends JFrame {
             return;
         }
 
-        screenBuffer.setRGB(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT, pixelData, 0, SCREEN_WIDTH);
+        long presentStart = System.nanoTime();
+        if (pixelData != screenPixels) {
+            System.arraycopy(pixelData, 0, screenPixels, 0, screenPixels.length);
+        }
 
         do {
             do {
@@ -972,10 +1331,21 @@ public class GameBoyWindow extends JFrame {
 
                     BufferedImage frameToRender = screenBuffer;
                     if (screenEffect.isGhostingEnabled()) {
-                        frameToRender = screenEffect.applyEffects(screenBuffer, scaledWidth, scaledHeight);
+                        frameToRender = screenEffect.applyGhosting(screenPixels, SCREEN_WIDTH, SCREEN_HEIGHT);
                     }
 
-                    g2d.drawImage(frameToRender, x, y, scaledWidth, scaledHeight, null);
+                    // Sobe o quadro 1:1 para a VolatileImage e amplia a partir dela; o screenBuffer
+                    // perde a aceleração ao expor o DataBufferInt, então escalá-lo direto sairia na CPU
+                    if (currentScalingFilter.isPixelArtScaler()) {
+                        frameToRender = scalePixelArt(frameToRender, currentScalingFilter);
+                    }
+
+                    VolatileImage accelerated = uploadFrame(frameToRender);
+                    if (accelerated != null) {
+                        g2d.drawImage(accelerated, x, y, scaledWidth, scaledHeight, null);
+                    } else {
+                        g2d.drawImage(frameToRender, x, y, scaledWidth, scaledHeight, null);
+                    }
 
                     if (screenEffect.isScanlinesEnabled()) {
                         screenEffect.drawScanlines(g2d, x, y, scaledWidth, scaledHeight);
@@ -995,6 +1365,57 @@ public class GameBoyWindow extends JFrame {
         } while (bufferStrategy.contentsLost());
 
         Toolkit.getDefaultToolkit().sync();
+
+        long presentTime = System.nanoTime() - presentStart;
+        presentNanosTotal += presentTime;
+        presentNanosMax = Math.max(presentNanosMax, presentTime);
+        presentSamples++;
+    }
+
+    /**
+     * Copia o quadro para a VolatileImage em cache, recriando-a se a memória de vídeo foi perdida.
+     * Retorna null se não houver imagem acelerada disponível.
+     */
+    private VolatileImage uploadFrame(BufferedImage frame) {
+        GraphicsConfiguration gc = canvas.getGraphicsConfiguration();
+        if (gc == null) {
+            return null;
+        }
+        if (frameImage == null || frameImage.getWidth() != frame.getWidth()
+                || frameImage.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+            if (frameImage != null) {
+                frameImage.flush();
+            }
+            frameImage = gc.createCompatibleVolatileImage(frame.getWidth(), frame.getHeight(), Transparency.OPAQUE);
+            if (frameImage == null) {
+                return null;
+            }
+        }
+
+        Graphics2D g = frameImage.createGraphics();
+        try {
+            g.drawImage(frame, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return frameImage.contentsLost() ? null : frameImage;
+    }
+
+    private BufferedImage scalePixelArt(BufferedImage frame, ScalingFilter filter) {
+        if (pixelArtScaler == null) {
+            pixelArtScaler = new PixelArtScaler(configManager.getConfig().getScalerThreads());
+            System.out.println("Escalador de pixel art: " + pixelArtScaler.getThreadCount() + " thread(s)");
+        }
+        int[] pixels = frame == screenBuffer ? screenPixels
+                : ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        return pixelArtScaler.scale(pixels, filter);
+    }
+
+    private String getPresentStatistics() {
+        double avgMs = presentSamples > 0 ? presentNanosTotal / (double) presentSamples / 1_000_000.0 : 0.0;
+        return String.format("Apresentação: %.3fms média, %.3fms máx (%d quadros, %s)",
+                avgMs, presentNanosMax / 1_000_000.0, presentSamples,
+                frameImage != null && frameImage.getCapabilities().isAccelerated() ? "acelerada" : "software");
     }
 
 }
\ No newline at end of file
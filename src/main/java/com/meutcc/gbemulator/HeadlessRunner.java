@@ -0,0 +1,403 @@
+package com.meutcc.gbemulator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Executa o emulador sem janela e sem Java Sound, na velocidade máxima do host.
+ * Roda um número de quadros ou até uma condição de parada e pode salvar os quadros
+ * (PPM), o áudio (WAV) e os bytes enviados pela serial. Pensado para servidores de build.
+ */
+public class HeadlessRunner implements Closeable {
+
+    public static final int CYCLES_PER_FRAME = 70224;
+    private static final double CPU_CLOCK_HZ = 4194304.0;
+
+    /**
+     * Avaliada ao fim de cada quadro.
+     */
+    public interface StopCondition {
+        boolean shouldStop(HeadlessRunner runner);
+    }
+
+    private final GameBoy gameBoy;
+    private final Serial.RecordingDevice serialRecorder = new Serial.RecordingDevice();
+
+    private long framesRun = 0;
+    private long cyclesRun = 0;
+    private boolean cpuStopped = false;
+
+    private Path frameDumpDirectory = null;
+    private int frameDumpInterval = 1;
+    private WavWriter audioWriter = null;
+    private Movie movie = null;
+
+    public HeadlessRunner() {
+        this(CPU.DispatchMode.SWITCH);
+    }
+
+    public HeadlessRunner(CPU.DispatchMode dispatchMode) {
+        this.gameBoy = new GameBoy(dispatchMode, false);
+        this.gameBoy.getMmu().getSerial().connectDevice(serialRecorder);
+    }
+
+    public boolean loadROM(String romPath) {
+        if (!gameBoy.loadROM(romPath)) {
+            return false;
+        }
+        gameBoy.reset();
+        framesRun = 0;
+        cyclesRun = 0;
+        cpuStopped = false;
+        serialRecorder.clear();
+        return true;
+    }
+
+    /**
+     * Liga todos os atalhos de desempenho que preservam o comportamento observável:
+     * agendador de eventos, timers preguiçosos, tabela de páginas da MMU, flags da ULA por tabela,
+     * salto de HALT e de laços de espera, catch-up do PPU e cache de tiles.
+     */
+    public void setFastPathsEnabled(boolean enable) {
+        gameBoy.getCpu().setFlagTableAluEnabled(enable);
+        gameBoy.setEventSchedulingEnabled(enable);
+        gameBoy.getMmu().setLazyTimersEnabled(enable);
+        gameBoy.getMmu().setPageTableEnabled(enable);
+        gameBoy.setHaltSkipEnabled(enable);
+        gameBoy.setIdleLoopSkipEnabled(enable);
+        gameBoy.getPpu().setCatchUpEnabled(enable);
+        gameBoy.getPpu().setTileCacheEnabled(enable);
+    }
+
+    /**
+     * Salva um PPM a cada {@code interval} quadros em {@code directory} (null desliga).
+     */
+    public void setFrameDump(Path directory, int interval) throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        this.frameDumpDirectory = directory;
+        this.frameDumpInterval = Math.max(1, interval);
+    }
+
+    /**
+     * Grava o áudio gerado em um WAV PCM 16 bits estéreo (null desliga).
+     */
+    public void setAudioDump(Path wavFile) throws IOException {
+        if (audioWriter != null) {
+            gameBoy.getApu().setSampleSink(null);
+            audioWriter.close();
+            audioWriter = null;
+        }
+        if (wavFile != null) {
+            audioWriter = new WavWriter(wavFile, APU.SAMPLE_RATE, 2);
+            gameBoy.getApu().setSampleSink(audioWriter);
+            gameBoy.setEmulatorSoundGloballyEnabled(true);
+        }
+    }
+
+    /**
+     * Reproduz um movie: a entrada de cada quadro passa a vir do arquivo e a execução termina
+     * junto com ele. Chamar depois de loadROM e das opções de áudio.
+     */
+    public void playMovie(Path file) throws IOException {
+        if (movie != null) {
+            movie.close();
+        }
+        movie = Movie.play(gameBoy, file);
+    }
+
+    /**
+     * Se um movie está em reprodução e todos os seus quadros já foram executados.
+     */
+    public boolean isMovieFinished() {
+        return movie != null && movie.isFinished();
+    }
+
+    /**
+     * Executa um quadro (70224 ciclos). Retorna false se a CPU parou com erro fatal
+     * ou se o movie em reprodução terminou.
+     */
+    public boolean runFrame() throws IOException {
+        if (cpuStopped) {
+            return false;
+        }
+        if (movie != null) {
+            int cycles = movie.runFrame();
+            if (cycles <= 0) {
+                cpuStopped = cycles < 0;
+                return false;
+            }
+            cyclesRun += cycles;
+            return finishFrame();
+        }
+        long frameEnd = (framesRun + 1) * CYCLES_PER_FRAME;
+        while (cyclesRun < frameEnd) {
+            int cycles = gameBoy.step();
+            if (cycles == -1) {
+                cpuStopped = true;
+                return false;
+            }
+            cyclesRun += cycles;
+        }
+        return finishFrame();
+    }
+
+    private boolean finishFrame() throws IOException {
+        gameBoy.syncComponents();
+        framesRun++;
+
+        if (frameDumpDirectory != null && framesRun % frameDumpInterval == 0) {
+            writeFrame(frameDumpDirectory.resolve(String.format("frame_%06d.ppm", framesRun)));
+        }
+        return true;
+    }
+
+    /**
+     * Executa até {@code frames} quadros e retorna quantos foram executados.
+     */
+    public long runFrames(long frames) throws IOException {
+        long executed = 0;
+        while (executed < frames && runFrame()) {
+            executed++;
+        }
+        return executed;
+    }
+
+    /**
+     * Executa até a condição ser satisfeita ou {@code maxFrames} quadros. Retorna true se a condição parou a execução.
+     */
+    public boolean runUntil(StopCondition condition, long maxFrames) throws IOException {
+        for (long i = 0; i < maxFrames; i++) {
+            if (!runFrame()) {
+                return false;
+            }
+            if (condition.shouldStop(this)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void writeFrame(Path file) throws IOException {
+        int[] screen = gameBoy.getPpu().getScreenBuffer();
+        byte[] header = String.format("P6\n%d %d\n255\n", PPU.SCREEN_WIDTH, PPU.SCREEN_HEIGHT)
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] pixels = new byte[screen.length * 3];
+        for (int i = 0; i < screen.length; i++) {
+            pixels[i * 3] = (byte) (screen[i] >> 16);
+            pixels[i * 3 + 1] = (byte) (screen[i] >> 8);
+            pixels[i * 3 + 2] = (byte) screen[i];
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            out.write(header);
+            out.write(pixels);
+        }
+    }
+
+    public GameBoy getGameBoy() {
+        return gameBoy;
+    }
+
+    public String getSerialOutput() {
+        return serialRecorder.getText();
+    }
+
+    public byte[] getSerialBytes() {
+        return serialRecorder.getBytes();
+    }
+
+    public long getFramesRun() {
+        return framesRun;
+    }
+
+    public long getCyclesRun() {
+        return cyclesRun;
+    }
+
+    public boolean isCpuStopped() {
+        return cpuStopped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (movie != null) {
+            movie.close();
+            movie = null;
+        }
+        gameBoy.getApu().close();
+        if (audioWriter != null) {
+            gameBoy.getApu().setSampleSink(null);
+            audioWriter.close();
+            audioWriter = null;
+        }
+    }
+
+    /**
+     * Linha de comando: {@code --headless <rom> [opções]}. Retorna o código de saída:
+     * 0 concluído, 1 condição de parada não atingida ou CPU parada, 2 erro de uso ou de E/S.
+     */
+    public static int run(String[] args) {
+        String romPath = null;
+        long frames = 600;
+        boolean framesGiven = false;
+        Path movieFile = null;
+        String untilSerial = null;
+        Path frameDir = null;
+        int frameInterval = 1;
+        Path audioFile = null;
+        Path serialFile = null;
+        Path screenshotFile = null;
+        boolean fastPaths = true;
+        CPU.DispatchMode dispatchMode = CPU.DispatchMode.SWITCH;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--headless": break;
+                    case "--frames": frames = Long.parseLong(args[++i]); framesGiven = true; break;
+                    case "--movie": movieFile = Paths.get(args[++i]); break;
+                    case "--until-serial": untilSerial = args[++i]; break;
+                    case "--dump-frames": frameDir = Paths.get(args[++i]); break;
+                    case "--dump-every": frameInterval = Integer.parseInt(args[++i]); break;
+                    case "--dump-audio": audioFile = Paths.get(args[++i]); break;
+                    case "--serial-out": serialFile = Paths.get(args[++i]); break;
+                    case "--screenshot": screenshotFile = Paths.get(args[++i]); break;
+                    case "--accurate": fastPaths = false; break;
+                    case "--dispatch": dispatchMode = CPU.DispatchMode.valueOf(args[++i].toUpperCase()); break;
+                    default:
+                        if (args[i].startsWith("--") || romPath != null) {
+                            System.err.println("Opção desconhecida: " + args[i]);
+                            printUsage();
+                            return 2;
+                        }
+                        romPath = args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Argumentos inválidos: " + e.getMessage());
+            printUsage();
+            return 2;
+        }
+        if (romPath == null) {
+            printUsage();
+            return 2;
+        }
+
+        try (HeadlessRunner runner = new HeadlessRunner(dispatchMode)) {
+            if (!runner.loadROM(romPath)) {
+                System.err.println("Não foi possível carregar a ROM: " + romPath);
+                return 2;
+            }
+            runner.setFastPathsEnabled(fastPaths);
+            runner.setFrameDump(frameDir, frameInterval);
+            runner.setAudioDump(audioFile);
+            if (movieFile != null) {
+                runner.playMovie(movieFile);
+                if (!framesGiven) {
+                    frames = Long.MAX_VALUE;
+                }
+            }
+
+            long start = System.nanoTime();
+            boolean success;
+            if (untilSerial != null) {
+                String expected = untilSerial;
+                success = runner.runUntil(r -> r.getSerialOutput().contains(expected), frames);
+            } else if (movieFile != null) {
+                runner.runFrames(frames);
+                success = !runner.isCpuStopped();
+            } else {
+                success = runner.runFrames(frames) == frames;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            if (screenshotFile != null) {
+                runner.writeFrame(screenshotFile);
+            }
+            if (serialFile != null) {
+                Files.write(serialFile, runner.getSerialBytes());
+            } else if (runner.getSerialBytes().length > 0) {
+                System.out.println("Serial: " + runner.getSerialOutput());
+            }
+
+            double emulatedSeconds = runner.getCyclesRun() / CPU_CLOCK_HZ;
+            System.out.println(String.format("Headless: %d quadros, %d ciclos em %.2f s (%.1fx tempo real)%s",
+                    runner.getFramesRun(), runner.getCyclesRun(), seconds,
+                    seconds > 0 ? emulatedSeconds / seconds : 0.0,
+                    runner.isCpuStopped() ? ", CPU parada" : ""));
+            System.out.println(runner.getGameBoy().getIdleLoopStatistics());
+            if (runner.getGameBoy().getPpu().isTileCacheEnabled()) {
+                System.out.println(runner.getGameBoy().getPpu().getTileCacheStatistics());
+            }
+            return success ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Erro de E/S no modo headless: " + e.getMessage());
+            return 2;
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Uso: --headless <rom.gb> [--frames N] [--until-serial TEXTO] [--dump-frames DIR]");
+        System.err.println("                 [--dump-every N] [--dump-audio arquivo.wav] [--serial-out arquivo]");
+        System.err.println("                 [--screenshot arquivo.ppm] [--accurate] [--dispatch SWITCH|TABLE]");
+        System.err.println("                 [--movie arquivo.gbm]  (reproduz o movie até o fim ou até --frames)");
+    }
+
+    /**
+     * WAV PCM 16 bits; os tamanhos do cabeçalho são preenchidos ao fechar.
+     */
+    private static final class WavWriter implements APU.SampleSink, Closeable {
+        private final RandomAccessFile file;
+        private final int sampleRate;
+        private final int channels;
+        private long dataBytes = 0;
+        private IOException writeError = null;
+
+        WavWriter(Path path, int sampleRate, int channels) throws IOException {
+            this.file = new RandomAccessFile(path.toFile(), "rw");
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            file.setLength(0);
+            file.write(new byte[44]);
+        }
+
+        @Override
+        public void writeSamples(byte[] pcm, int offset, int length) {
+            if (writeError != null) {
+                return;
+            }
+            try {
+                file.write(pcm, offset, length);
+                dataBytes += length;
+            } catch (IOException e) {
+                writeError = e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                file.seek(0);
+                file.writeBytes("RIFF");
+                file.writeInt(Integer.reverseBytes((int) (36 + dataBytes)));
+                file.writeBytes("WAVEfmt ");
+                file.writeInt(Integer.reverseBytes(16));
+                file.writeShort(Short.reverseBytes((short) 1));
+                file.writeShort(Short.reverseBytes((short) channels));
+                file.writeInt(Integer.reverseBytes(sampleRate));
+                file.writeInt(Integer.reverseBytes(sampleRate * channels * 2));
+                file.writeShort(Short.reverseBytes((short) (channels * 2)));
+                file.writeShort(Short.reverseBytes((short) 16));
+                file.writeBytes("data");
+                file.writeInt(Integer.reverseBytes((int) dataBytes));
+            } finally {
+                file.close();
+            }
+            if (writeError != null) {
+                throw writeError;
+            }
+        }
+    }
+}
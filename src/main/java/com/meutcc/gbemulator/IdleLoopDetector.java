@@ -0,0 +1,222 @@
+package com.meutcc.gbemulator;
+
+import java.util.Arrays;
+
+/**
+ * Reconhece laços de espera ativa do tipo "LDH A,(44h) / CP n / JR NZ,laço".
+ * O corpo só pode carregar A de um registrador de I/O monitorado e testar o valor
+ * (CP/AND/OR/XOR imediato, BIT b,A, NOP, saídas condicionais para frente); enquanto o
+ * registrador não mudar, cada iteração deixa a CPU exatamente no mesmo estado.
+ */
+final class IdleLoopDetector {
+
+    private static final int MAX_LOOP_BYTES = 16;
+
+    private static final int ZERO_FLAG = 0x80;
+    private static final int SUBTRACT_FLAG = 0x40;
+    private static final int HALF_CARRY_FLAG = 0x20;
+    private static final int CARRY_FLAG = 0x10;
+
+    private final MMU mmu;
+    private final CPU cpu;
+
+    private int polledRegister = -1;
+
+    private long detectedLoops = 0;
+    private long skippedIterations = 0;
+    private long skippedCycles = 0;
+    private final long[] skipsByRegister = new long[0x80];
+
+    IdleLoopDetector(MMU mmu, CPU cpu) {
+        this.mmu = mmu;
+        this.cpu = cpu;
+    }
+
+    /**
+     * Chamado quando a CPU acaba de desviar para trás até loopStart. Retorna a duração em
+     * ciclos de uma iteração se o laço é de espera e a CPU já está no estado estável para o
+     * valor atual do registrador, ou 0 caso contrário.
+     */
+    int detect(int loopStart) {
+        if (!isStableCode(loopStart) || cpu.isInterruptPending()) {
+            return 0;
+        }
+
+        int pc = loopStart;
+        int address;
+        int cycles;
+        switch (read(pc)) {
+            case 0xF0: // LDH A,(n)
+                address = 0xFF00 | read(pc + 1);
+                pc += 2;
+                cycles = 12;
+                break;
+            case 0xF2: // LD A,(C)
+                address = 0xFF00 | cpu.getC();
+                pc += 1;
+                cycles = 8;
+                break;
+            case 0xFA: // LD A,(nn)
+                address = read(pc + 1) | (read(pc + 2) << 8);
+                pc += 3;
+                cycles = 16;
+                break;
+            case 0x7E: // LD A,(HL)
+                address = (cpu.getH() << 8) | cpu.getL();
+                pc += 1;
+                cycles = 8;
+                break;
+            default:
+                return 0;
+        }
+        if (!isPolledRegister(address)) {
+            return 0;
+        }
+
+        int a = mmu.readByte(address);
+        int f = cpu.getF() & 0xF0;
+
+        while (true) {
+            if (pc - loopStart > MAX_LOOP_BYTES) {
+                return 0;
+            }
+            int opcode = read(pc);
+            switch (opcode) {
+                case 0x00:
+                    pc += 1;
+                    cycles += 4;
+                    continue;
+                case 0xE6: // AND n
+                    a &= read(pc + 1);
+                    f = (a == 0 ? ZERO_FLAG : 0) | HALF_CARRY_FLAG;
+                    pc += 2;
+                    cycles += 8;
+                    continue;
+                case 0xEE: // XOR n
+                    a ^= read(pc + 1);
+                    f = a == 0 ? ZERO_FLAG : 0;
+                    pc += 2;
+                    cycles += 8;
+                    continue;
+                case 0xF6: // OR n
+                    a |= read(pc + 1);
+                    f = a == 0 ? ZERO_FLAG : 0;
+                    pc += 2;
+                    cycles += 8;
+                    continue;
+                case 0xFE: { // CP n
+                    int value = read(pc + 1);
+                    f = SUBTRACT_FLAG
+                            | (a == value ? ZERO_FLAG : 0)
+                            | ((a & 0x0F) < (value & 0x0F) ? HALF_CARRY_FLAG : 0)
+                            | (a < value ? CARRY_FLAG : 0);
+                    pc += 2;
+                    cycles += 8;
+                    continue;
+                }
+                case 0xCB: { // BIT b,A
+                    int cbOpcode = read(pc + 1);
+                    if ((cbOpcode & 0xC7) != 0x47) {
+                        return 0;
+                    }
+                    int bit = (cbOpcode >> 3) & 0x07;
+                    f = (((a >> bit) & 1) == 0 ? ZERO_FLAG : 0) | HALF_CARRY_FLAG | (f & CARRY_FLAG);
+                    pc += 2;
+                    cycles += 8;
+                    continue;
+                }
+                case 0x18: case 0x20: case 0x28: case 0x30: case 0x38: { // JR / JR cc
+                    boolean taken = opcode == 0x18 || conditionMet(opcode, f);
+                    if (!taken) {
+                        pc += 2;
+                        cycles += 8;
+                        continue;
+                    }
+                    int target = (pc + 2 + (byte) read(pc + 1)) & 0xFFFF;
+                    return target == loopStart ? acceptLoop(address, a, f, cycles + 12) : 0;
+                }
+                case 0xC3: case 0xC2: case 0xCA: case 0xD2: case 0xDA: { // JP / JP cc
+                    boolean taken = opcode == 0xC3 || conditionMet(opcode, f);
+                    if (!taken) {
+                        pc += 3;
+                        cycles += 12;
+                        continue;
+                    }
+                    int target = read(pc + 1) | (read(pc + 2) << 8);
+                    return target == loopStart ? acceptLoop(address, a, f, cycles + 16) : 0;
+                }
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    // A iteração precisa reproduzir o estado atual da CPU; senão o valor lido mudou desde a última volta
+    private int acceptLoop(int address, int a, int f, int iterationCycles) {
+        if (a != cpu.getA() || f != (cpu.getF() & 0xF0)) {
+            return 0;
+        }
+        polledRegister = address;
+        detectedLoops++;
+        return iterationCycles;
+    }
+
+    /**
+     * Contabiliza o avanço aplicado ao último laço detectado.
+     */
+    void recordSkip(long iterations, long cycles) {
+        skippedIterations += iterations;
+        skippedCycles += cycles;
+        skipsByRegister[polledRegister & 0x7F]++;
+    }
+
+    void resetStatistics() {
+        detectedLoops = 0;
+        skippedIterations = 0;
+        skippedCycles = 0;
+        Arrays.fill(skipsByRegister, 0);
+    }
+
+    String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("IdleLoop: %d laços detectados, %d iterações puladas, %d ciclos pulados",
+                detectedLoops, skippedIterations, skippedCycles));
+        for (int i = 0; i < skipsByRegister.length; i++) {
+            if (skipsByRegister[i] > 0) {
+                sb.append(String.format(", FF%02X=%d", i, skipsByRegister[i]));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isPolledRegister(int address) {
+        switch (address) {
+            case MMU.REG_JOYP:
+            case MMU.REG_SC:
+            case MMU.REG_IF:
+            case MMU.REG_STAT:
+            case MMU.REG_LY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Só ROM, WRAM e HRAM: ler o código não pode ter efeito colateral
+    private static boolean isStableCode(int pc) {
+        return pc < 0x8000 || (pc >= 0xC000 && pc < 0xE000) || (pc >= 0xFF80 && pc < 0xFFF0);
+    }
+
+    private static boolean conditionMet(int opcode, int f) {
+        switch ((opcode >> 3) & 0x03) {
+            case 0: return (f & ZERO_FLAG) == 0;
+            case 1: return (f & ZERO_FLAG) != 0;
+            case 2: return (f & CARRY_FLAG) == 0;
+            default: return (f & CARRY_FLAG) != 0;
+        }
+    }
+
+    private int read(int address) {
+        return mmu.readByte(address & 0xFFFF);
+    }
+}
@@ -6,6 +6,7 @@ import java.awt.event.KeyListener;
 public class InputHandler implements KeyListener {
 
     private final MMU mmu;
+    private volatile boolean rewindHeld = false;
 
     public InputHandler(MMU mmu) {
         this.mmu = mmu;
@@ -15,8 +16,19 @@ public class InputHandler implements KeyListener {
     public void keyTyped(KeyEvent e) {
     }
 
+    /**
+     * Backspace pressionado: a janela volta no tempo enquanto ele estiver segurado.
+     */
+    public boolean isRewindHeld() {
+        return rewindHeld;
+    }
+
     @Override
     public void keyPressed(KeyEvent e) {
+        if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
+            rewindHeld = true;
+            return;
+        }
         MMU.Button button = mapKeyCodeToButton(e.getKeyCode());
         if (button != null) {
             mmu.buttonPressed(button);
@@ -25,6 +37,10 @@ public class InputHandler implements KeyListener {
 
     @Override
     public void keyReleased(KeyEvent e) {
+        if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
+            rewindHeld = false;
+            return;
+        }
         MMU.Button button = mapKeyCodeToButton(e.getKeyCode());
         if (button != null) {
             mmu.buttonReleased(button);
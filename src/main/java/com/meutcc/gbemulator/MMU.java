@@ -1,6 +1,8 @@
 package com.meutcc.gbemulator;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MMU {
     private final byte[] memory = new byte[0x10000];
@@ -40,6 +42,11 @@ public class MMU {
     public static final int REG_IE = 0xFFFF;
 
     private byte joypadState = (byte) 0xFF;
+    // Com a entrada travada (movies), os eventos do AWT/JInput só alteram este estado,
+    // aplicado pelo dono do laço de emulação na fronteira de quadro
+    private volatile boolean inputLatched = false;
+    private final AtomicInteger liveJoypadState = new AtomicInteger(0xFF);
+    private static final Button[] BUTTONS = Button.values();
     private byte previousJoypadState = (byte) 0xFF;
 
     private int divCounter = 0;
@@ -49,9 +56,31 @@ public class MMU {
     private int timaOverflowDelay = 0;
     private boolean timaOverflowPending = false;
 
+    // Timers preguiçosos: updateTimers só avança o relógio; DIV/TIMA são calculados ao acessar ou no próximo estouro
+    private boolean lazyTimersEnabled = false;
+    private long timerClock = 0;
+    private long timerSyncedClock = 0;
+    private long timerEventClock = Long.MAX_VALUE;
+
     private int dmaCyclesRemaining = 0;
     private boolean dmaMemoryBlocked = false;
 
+    // Tabela de páginas de 256 bytes: array de apoio + offset, ou null para o caminho por faixas (I/O, VRAM, OAM...)
+    private boolean pageTableEnabled = false;
+    private final byte[][] readPages = new byte[256][];
+    private final int[] readPageOffsets = new int[256];
+    private final byte[][] writePages = new byte[256][];
+    private final int[] writePageOffsets = new int[256];
+    // Bancos mapeados por último: escritas no MBC que não trocam de banco não remapeiam
+    private byte[] mappedRom = null;
+    private byte[] mappedRam = null;
+    private int mappedLowBankBase = -1;
+    private int mappedHighBankBase = -1;
+    private int mappedRamBase = -1;
+
+    // Chamado antes de acessos da CPU a VRAM, OAM e I/O quando os componentes são avançados sob demanda
+    private Runnable accessSyncHook = null;
+
     public MMU(Cartridge cartridge, PPU ppu, APU apu) {
         this.cartridge = cartridge;
         this.ppu = ppu;
@@ -59,6 +88,7 @@ public class MMU {
         this.serial = new Serial();
         this.cpu = null;
         Arrays.fill(memory, (byte) 0x00);
+        this.cartridge.setBankSwitchListener(this::onBankSwitch);
     }
 
     public void setCpu(CPU cpu) {
@@ -69,6 +99,16 @@ public class MMU {
         return serial;
     }
 
+    public void setAccessSyncHook(Runnable hook) {
+        this.accessSyncHook = hook;
+    }
+
+    private void syncBeforeAccess() {
+        if (accessSyncHook != null) {
+            accessSyncHook.run();
+        }
+    }
+
     public void reset() {
         for (int i = 0xC000; i < 0xE000; i++) memory[i] = 0;
         for (int i = 0xFF80; i < 0xFFFF; i++) memory[i] = 0;
@@ -101,18 +141,28 @@ public class MMU {
         divCounter = 0;
         timaOverflowPending = false;
         timaOverflowDelay = 0;
+        timerClock = 0;
+        timerSyncedClock = 0;
+        updateTimerEventClock();
         serial.reset();
         bootRomEnabled = false;
+        remapPages();
 
         System.out.println("MMU reset and I/O registers initialized.");
     }
 
     public void updateTimers(int cycles) {
-        for (int i = 0; i < cycles; i++) {
-            updateTimersSingleCycle();
+        if (lazyTimersEnabled) {
+            timerClock += cycles;
+            if (timerClock >= timerEventClock) {
+                syncTimers();
+            }
+        } else {
+            for (int i = 0; i < cycles; i++) {
+                updateTimersSingleCycle();
+            }
         }
 
-       
         if (serial.update(cycles)) {
             memory[REG_IF] |= 0x08;
         }
@@ -141,6 +191,100 @@ public class MMU {
         }
     }
 
+    public void setLazyTimersEnabled(boolean enable) {
+        syncTimers();
+        this.lazyTimersEnabled = enable;
+        updateTimerEventClock();
+    }
+
+    public boolean isLazyTimersEnabled() {
+        return lazyTimersEnabled;
+    }
+
+    /**
+     * Traz DIV/TIMA até timerClock. Entre estouros o avanço é feito em bloco (contando as
+     * bordas de descida do bit selecionado); o estouro e o atraso de 4 ciclos até a recarga
+     * com TMA passam pelo caminho ciclo a ciclo, preservando os casos de borda.
+     */
+    private void syncTimers() {
+        long cycles = timerClock - timerSyncedClock;
+        timerSyncedClock = timerClock;
+
+        while (cycles > 0) {
+            int tac = memory[REG_TAC] & 0xFF;
+            if (timaOverflowPending) {
+                updateTimersSingleCycle();
+                cycles--;
+                continue;
+            }
+            if ((tac & 0x04) == 0) {
+                divCounter = (int) ((divCounter + cycles) & 0xFFFF);
+                break;
+            }
+
+            int period = 1 << (TIMER_BIT_POSITIONS[tac & 0x03] + 1);
+            long bulk = Math.min(cycles, cyclesUntilTimaOverflow(period) - 1);
+            long edges = (divCounter + bulk) / period - divCounter / period;
+            divCounter = (int) ((divCounter + bulk) & 0xFFFF);
+            memory[REG_TIMA] = (byte) ((memory[REG_TIMA] & 0xFF) + edges);
+            cycles -= bulk;
+
+            if (cycles > 0) {
+                updateTimersSingleCycle();
+                cycles--;
+            }
+        }
+
+        memory[REG_DIV] = (byte) ((divCounter >> 8) & 0xFF);
+        updateTimerEventClock();
+    }
+
+    private int cyclesUntilTimaOverflow(int period) {
+        int firstEdge = period - (divCounter & (period - 1));
+        return firstEdge + (0xFF - (memory[REG_TIMA] & 0xFF)) * period;
+    }
+
+    private void updateTimerEventClock() {
+        if (!lazyTimersEnabled) {
+            timerEventClock = Long.MAX_VALUE;
+            return;
+        }
+        int untilInterrupt = timerCyclesUntilInterrupt();
+        timerEventClock = untilInterrupt == Integer.MAX_VALUE ? Long.MAX_VALUE : timerSyncedClock + untilInterrupt;
+    }
+
+    private int timerCyclesUntilInterrupt() {
+        if (timaOverflowPending) {
+            return Math.max(1, 4 - timaOverflowDelay);
+        }
+
+        int tac = memory[REG_TAC] & 0xFF;
+        if ((tac & 0x04) == 0) {
+            return Integer.MAX_VALUE;
+        }
+
+        int period = 1 << (TIMER_BIT_POSITIONS[tac & 0x03] + 1);
+        return cyclesUntilTimaOverflow(period) + 3;
+    }
+
+    /**
+     * Ciclos até o timer pedir a interrupção (TIMA estoura e recarrega 4 ciclos depois),
+     * ou Integer.MAX_VALUE com o timer desligado.
+     */
+    public int cyclesUntilTimerInterrupt() {
+        if (!lazyTimersEnabled) {
+            return timerCyclesUntilInterrupt();
+        }
+        if (timerEventClock == Long.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.max(1, timerEventClock - timerClock);
+    }
+
+    public int cyclesUntilSerialInterrupt() {
+        return serial.cyclesUntilTransferComplete();
+    }
+
     private int getTimerBit() {
         int tac = memory[REG_TAC] & 0xFF;
 
@@ -191,6 +335,81 @@ public class MMU {
 
     public void loadCartridge(Cartridge cart) {
         System.out.println("Cartridge loaded into MMU (cartridge is now final, set via constructor).");
+        remapPages();
+    }
+
+    public void setPageTableEnabled(boolean enable) {
+        this.pageTableEnabled = enable;
+        remapPages();
+    }
+
+    public boolean isPageTableEnabled() {
+        return pageTableEnabled;
+    }
+
+    private void remapPages() {
+        Arrays.fill(readPages, null);
+        Arrays.fill(writePages, null);
+        if (!pageTableEnabled) {
+            return;
+        }
+
+        for (int page = 0xC0; page <= 0xDF; page++) {
+            mapPage(page, memory, page << 8, true);
+        }
+        for (int page = 0xE0; page <= 0xFD; page++) {
+            mapPage(page, memory, (page << 8) - 0x2000, true);
+        }
+        remapCartridgePages();
+    }
+
+    private void onBankSwitch() {
+        if (!pageTableEnabled) {
+            return;
+        }
+        if (cartridge.getRomData() == mappedRom && cartridge.getRamData() == mappedRam
+                && cartridge.getRomBank(0x0000) * 0x4000 == mappedLowBankBase
+                && cartridge.getRomBank(0x4000) * 0x4000 == mappedHighBankBase
+                && cartridge.getRamBankOffset() == mappedRamBase) {
+            return;
+        }
+        remapCartridgePages();
+    }
+
+    private void remapCartridgePages() {
+        if (!pageTableEnabled) {
+            return;
+        }
+
+        byte[] rom = cartridge.getRomData();
+        int lowBankBase = cartridge.getRomBank(0x0000) * 0x4000;
+        int highBankBase = cartridge.getRomBank(0x4000) * 0x4000;
+        mappedRom = rom;
+        mappedLowBankBase = lowBankBase;
+        mappedHighBankBase = highBankBase;
+        for (int page = 0x00; page <= 0x7F; page++) {
+            int offset = (page < 0x40 ? lowBankBase : highBankBase) + ((page << 8) & 0x3FFF);
+            boolean mappable = rom != null && offset + 0x100 <= rom.length && !(bootRomEnabled && page == 0x00);
+            readPages[page] = mappable ? rom : null;
+            readPageOffsets[page] = offset;
+        }
+
+        byte[] ram = cartridge.getRamData();
+        int ramBase = cartridge.getRamBankOffset();
+        mappedRam = ram;
+        mappedRamBase = ramBase;
+        for (int page = 0xA0; page <= 0xBF; page++) {
+            int offset = ramBase + ((page - 0xA0) << 8);
+            boolean mappable = ramBase >= 0 && ram != null && offset + 0x100 <= ram.length;
+            mapPage(page, mappable ? ram : null, offset, true);
+        }
+    }
+
+    private void mapPage(int page, byte[] backing, int offset, boolean writable) {
+        readPages[page] = backing;
+        readPageOffsets[page] = offset;
+        writePages[page] = writable ? backing : null;
+        writePageOffsets[page] = offset;
     }
 
     public int readByte(int address) {
@@ -200,6 +419,17 @@ public class MMU {
             return 0xFF;
         }
 
+        if (pageTableEnabled) {
+            int page = address >>> 8;
+            byte[] backing = readPages[page];
+            if (backing != null) {
+                return backing[readPageOffsets[page] + (address & 0xFF)] & 0xFF;
+            }
+            if (address >= 0xFF80 && address <= 0xFFFE) {
+                return memory[address] & 0xFF;
+            }
+        }
+
         if (bootRomEnabled && address <= 0x00FF) {
             return bootRom[address] & 0xFF;
         }
@@ -207,6 +437,7 @@ public class MMU {
         if (address >= 0x0000 && address <= 0x7FFF) {
             return cartridge.read(address) & 0xFF;
         } else if (address >= 0x8000 && address <= 0x9FFF) {
+            syncBeforeAccess();
             return ppu.readVRAM(address - 0x8000) & 0xFF;
         } else if (address >= 0xA000 && address <= 0xBFFF) {
             return cartridge.readRam(address - 0xA000) & 0xFF;
@@ -215,10 +446,15 @@ public class MMU {
         } else if (address >= 0xE000 && address <= 0xFDFF) {
             return memory[address - 0x2000] & 0xFF;
         } else if (address >= 0xFE00 && address <= 0xFE9F) {
+            syncBeforeAccess();
             return ppu.readOAM(address - 0xFE00) & 0xFF;
         } else if (address >= 0xFEA0 && address <= 0xFEFF) {
             return 0xFF;
         } else if (address >= 0xFF00 && address <= 0xFF7F) {
+            // IF só muda em eventos agendados; ler sem sincronizar evita um flush por checagem de interrupção
+            if (address != REG_IF) {
+                syncBeforeAccess();
+            }
             return readIORegister(address) & 0xFF;
         } else if (address >= 0xFF80 && address <= 0xFFFE) {
             return memory[address] & 0xFF;
@@ -237,9 +473,23 @@ public class MMU {
             return;
         }
 
+        if (pageTableEnabled) {
+            int page = address >>> 8;
+            byte[] backing = writePages[page];
+            if (backing != null) {
+                backing[writePageOffsets[page] + (address & 0xFF)] = byteValue;
+                return;
+            }
+            if (address >= 0xFF80 && address <= 0xFFFE) {
+                memory[address] = byteValue;
+                return;
+            }
+        }
+
         if (address >= 0x0000 && address <= 0x7FFF) {
             cartridge.write(address, byteValue);
         } else if (address >= 0x8000 && address <= 0x9FFF) {
+            syncBeforeAccess();
             ppu.writeVRAM(address - 0x8000, byteValue);
         } else if (address >= 0xA000 && address <= 0xBFFF) {
             cartridge.writeRam(address - 0xA000, byteValue);
@@ -248,10 +498,12 @@ public class MMU {
         } else if (address >= 0xE000 && address <= 0xFDFF) {
             memory[address - 0x2000] = byteValue;
         } else if (address >= 0xFE00 && address <= 0xFE9F) {
+            syncBeforeAccess();
             ppu.writeOAM(address - 0xFE00, byteValue);
         } else if (address >= 0xFEA0 && address <= 0xFEFF) {
 
         } else if (address >= 0xFF00 && address <= 0xFF7F) {
+            syncBeforeAccess();
             writeIORegister(address, byteValue);
         } else if (address >= 0xFF80 && address <= 0xFFFE) {
             memory[address] = byteValue;
@@ -275,8 +527,8 @@ public class MMU {
             case REG_SB: return serial.readSB();
             case REG_SC: return serial.readSC();
 
-            case REG_DIV: return memory[REG_DIV] & 0xFF;
-            case REG_TIMA: return memory[REG_TIMA] & 0xFF;
+            case REG_DIV: syncTimers(); return memory[REG_DIV] & 0xFF;
+            case REG_TIMA: syncTimers(); return memory[REG_TIMA] & 0xFF;
             case REG_TMA: return memory[REG_TMA] & 0xFF;
             case REG_TAC: return memory[REG_TAC] & 0xFF;
 
@@ -307,6 +559,7 @@ public class MMU {
     private void writeIORegister(int address, byte value) {
         switch (address) {
             case REG_DIV:
+                syncTimers();
                 int oldDivTimerBit = getTimerBit();
 
                 divCounter = 0;
@@ -315,6 +568,7 @@ public class MMU {
                 if (oldDivTimerBit == 1) {
                     incrementTIMA();
                 }
+                updateTimerEventClock();
                 break;
             case REG_JOYP:
                 memory[REG_JOYP] = (byte) ((memory[REG_JOYP] & 0xCF) | (value & 0x30));
@@ -326,19 +580,23 @@ public class MMU {
                 serial.writeSC(value);
                 break;
             case REG_TIMA:
+                syncTimers();
                 memory[REG_TIMA] = value;
                 if (timaOverflowPending) {
                     timaOverflowPending = false;
                     timaOverflowDelay = 0;
                 }
+                updateTimerEventClock();
                 break;
             case REG_TMA:
+                syncTimers();
                 memory[REG_TMA] = value;
                 if (timaOverflowPending && timaOverflowDelay >= 3) {
                     memory[REG_TIMA] = value;
                 }
                 break;
             case REG_TAC:
+                syncTimers();
                 int oldTacTimerBit = getTimerBit();
 
                 memory[REG_TAC] = value;
@@ -348,6 +606,7 @@ public class MMU {
                 if (oldTacTimerBit == 1 && newTimerBit == 0) {
                     incrementTIMA();
                 }
+                updateTimerEventClock();
                 break;
             case REG_IF:
                 memory[REG_IF] = (byte) (value & 0x1F);
@@ -371,6 +630,7 @@ public class MMU {
             case REG_BOOT_ROM_DISABLE:
                 if ((value & 0x01) != 0) {
                     bootRomEnabled = false;
+                    remapCartridgePages();
                 }
                 memory[address] = value;
                 break;
@@ -430,6 +690,14 @@ public class MMU {
     }
 
     public void buttonPressed(Button button) {
+        if (inputLatched) {
+            liveJoypadState.getAndUpdate(state -> state & ~(1 << button.bit));
+            return;
+        }
+        pressButton(button);
+    }
+
+    private void pressButton(Button button) {
         byte oldState = joypadState;
         joypadState &= (byte) ~(1 << button.bit);
         
@@ -460,9 +728,58 @@ public class MMU {
     }
 
     public void buttonReleased(Button button) {
+        if (inputLatched) {
+            liveJoypadState.getAndUpdate(state -> state | (1 << button.bit));
+            return;
+        }
         joypadState |= (byte) (1 << button.bit);
     }
 
+    /**
+     * Com a entrada travada, buttonPressed/buttonReleased (chamados pelas threads do AWT e do JInput)
+     * só registram o estado dos botões físicos; quem roda a emulação o aplica com applyJoypadState
+     * na fronteira de quadro. Usado pelos movies para que a entrada seja determinística.
+     */
+    public void setInputLatched(boolean latched) {
+        liveJoypadState.set(joypadState & 0xFF);
+        inputLatched = latched;
+    }
+
+    public boolean isInputLatched() {
+        return inputLatched;
+    }
+
+    /**
+     * Botões físicos no momento (bit em 0 = pressionado), com a entrada travada.
+     */
+    public int getLiveJoypadState() {
+        return liveJoypadState.get();
+    }
+
+    /**
+     * Aplica o estado de todos os botões de uma vez, com as mesmas interrupções de buttonPressed
+     * para cada botão que passou a estar pressionado.
+     */
+    public void applyJoypadState(int state) {
+        for (Button button : BUTTONS) {
+            int bitMask = 1 << button.bit;
+            if ((state & bitMask) == 0) {
+                if ((joypadState & bitMask) != 0) {
+                    pressButton(button);
+                }
+            } else {
+                joypadState |= (byte) bitMask;
+            }
+        }
+    }
+
+    /**
+     * Botões como estão agora (bit em 0 = pressionado). Usado para não perder a entrada ao restaurar um estado.
+     */
+    int getJoypadState() {
+        return joypadState & 0xFF;
+    }
+
     public enum Button {
         GAMEBOY_RIGHT(0), GAMEBOY_LEFT(1), GAMEBOY_UP(2), GAMEBOY_DOWN(3),
         GAMEBOY_A(4), GAMEBOY_B(5), GAMEBOY_SELECT(6), GAMEBOY_START(7);
@@ -478,6 +795,7 @@ public class MMU {
         for (int i = 0xFF80; i <= 0xFFFE; i++) {
             dos.writeByte(memory[i]);
         }
+        syncTimers();
         dos.writeByte(joypadState);
         dos.writeInt(divCounter);
         dos.writeBoolean(timaOverflowPending);
@@ -499,9 +817,53 @@ public class MMU {
         divCounter = dis.readInt();
         timaOverflowPending = dis.readBoolean();
         timaOverflowDelay = dis.readInt();
+        timerSyncedClock = timerClock;
+        previousJoypadState = joypadState;
+        dmaCyclesRemaining = 0;
+        dmaMemoryBlocked = false;
         memory[REG_IF] = dis.readByte();
         memory[REG_IE] = dis.readByte();
         serial.loadState(dis);
         cartridge.loadState(dis);
+        remapCartridgePages();
+        updateTimerEventClock();
+    }
+
+    /**
+     * Bloco MMU do save state v3: WRAM, página de I/O e HRAM em cópias únicas, mais os contadores
+     * do timer. Serial e cartucho têm blocos próprios.
+     */
+    public void saveState(ByteBuffer buffer) {
+        syncTimers();
+        buffer.put(memory, 0xC000, 0x2000);
+        buffer.put(memory, 0xFF00, 0x100);
+        buffer.put(joypadState);
+        buffer.putInt(divCounter);
+        SaveStateFormat.putBoolean(buffer, timaOverflowPending);
+        buffer.putInt(timaOverflowDelay);
+        buffer.put(previousJoypadState);
+        buffer.putInt(dmaCyclesRemaining);
+        SaveStateFormat.putBoolean(buffer, dmaMemoryBlocked);
+    }
+
+    public void loadState(ByteBuffer buffer, int version) {
+        buffer.get(memory, 0xC000, 0x2000);
+        buffer.get(memory, 0xFF00, 0x100);
+        joypadState = buffer.get();
+        divCounter = buffer.getInt();
+        timaOverflowPending = SaveStateFormat.getBoolean(buffer);
+        timaOverflowDelay = buffer.getInt();
+        previousJoypadState = buffer.get();
+        dmaCyclesRemaining = buffer.getInt();
+        dmaMemoryBlocked = SaveStateFormat.getBoolean(buffer);
+        timerSyncedClock = timerClock;
+    }
+
+    /**
+     * Chamado depois que todos os blocos foram carregados (o mapeamento depende do banco do MBC).
+     */
+    void finishStateLoad() {
+        remapCartridgePages();
+        updateTimerEventClock();
     }
 }
\ No newline at end of file
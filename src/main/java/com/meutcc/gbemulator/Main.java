@@ -4,6 +4,16 @@ import javax.swing.*;
 
 public class Main {
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--headless")) {
+            System.exit(HeadlessRunner.run(args));
+        }
+        if (args.length > 0 && args[0].equals("--conformance")) {
+            System.exit(ConformanceRunner.run(args));
+        }
+        if (args.length > 0 && args[0].equals("--frame-hashes")) {
+            System.exit(FrameHashSuite.run(args));
+        }
+
         try {
             NativeLibraryLoader.loadJInputLibraries();
         } catch (Exception e) {
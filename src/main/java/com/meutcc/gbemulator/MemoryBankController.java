@@ -3,8 +3,14 @@ package com.meutcc.gbemulator;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public interface MemoryBankController {
+
+    interface BankSwitchListener {
+        void onBankSwitch();
+    }
+
     int read(int address);
 
     void write(int address, byte value);
@@ -17,7 +23,26 @@ public interface MemoryBankController {
 
     byte[] getRamData();
 
+    int getRomBank(int address);
+
+    byte[] getRomData();
+
+    /**
+     * Offset em getRamData() mapeado em 0xA000, ou -1 se a RAM externa não puder
+     * ser acessada diretamente (desabilitada, ausente, MBC2 ou registrador RTC selecionado).
+     */
+    int getRamBankOffset();
+
+    void setBankSwitchListener(BankSwitchListener listener);
+
     void saveState(DataOutputStream dos) throws IOException;
 
     void loadState(DataInputStream dis) throws IOException;
+
+    /**
+     * Bloco MBC do save state v3, incluindo a RAM externa.
+     */
+    void saveState(ByteBuffer buffer);
+
+    void loadState(ByteBuffer buffer, int version);
 }
\ No newline at end of file
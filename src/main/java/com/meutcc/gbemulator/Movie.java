@@ -0,0 +1,257 @@
+package com.meutcc.gbemulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * Gravação e reprodução determinística de sessões (movies).
+ *
+ * Formato: [int magic "GBMV"][int versão][int flags][int CRC32 da ROM][long base do RTC em ms]
+ * [int tamanho][save state v3 inicial], seguido de um byte por quadro com o estado dos botões
+ * (bit em 0 = pressionado). Os quadros vão para o disco conforme são gravados.
+ *
+ * Para a reprodução ser exata, o movie controla tudo o que vem de fora da emulação: a entrada é
+ * travada no MMU e aplicada só na fronteira de quadro, os quadros têm exatamente 70224 ciclos
+ * (o excesso da última instrução passa para o quadro seguinte, e os saltos de HALT e de laços de
+ * espera param na fronteira, então o resultado não depende desses atalhos) e o RTC do MBC3 lê um relógio
+ * derivado dos ciclos emulados a partir da base gravada no cabeçalho.
+ */
+public class Movie implements Closeable {
+
+    public enum Mode { RECORDING, PLAYING }
+
+    static final int MAGIC = 0x47424D56; // "GBMV"
+    static final int VERSION = 1;
+
+    // Gravado a partir do power-on (reset) em vez do estado em que o jogo estava
+    private static final int FLAG_POWER_ON = 1;
+    // APU emulado durante a gravação (altera o que a CPU lê em NR52)
+    private static final int FLAG_APU_ACTIVE = 2;
+
+    public static final int CYCLES_PER_FRAME = 70224;
+    private static final long CPU_CLOCK_HZ = 4194304;
+    private static final int FLUSH_INTERVAL_FRAMES = 60;
+
+    private final GameBoy gameBoy;
+    private final Mode mode;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private final int flags;
+    private final long rtcBase;
+
+    private long frame = 0;
+    private long cycles = 0;
+    private boolean finished = false;
+
+    // Ajustes feitos só durante a reprodução e desfeitos em close()
+    private boolean restoreSound = false;
+    private boolean previousSoundEnabled;
+    private boolean installedSink = false;
+
+    private Movie(GameBoy gameBoy, Mode mode, DataOutputStream out, DataInputStream in, int flags, long rtcBase) {
+        this.gameBoy = gameBoy;
+        this.mode = mode;
+        this.out = out;
+        this.in = in;
+        this.flags = flags;
+        this.rtcBase = rtcBase;
+    }
+
+    /**
+     * Começa a gravar. Deve ser chamado na thread de emulação, entre quadros.
+     *
+     * @param powerOn reinicia o Game Boy antes de capturar o estado inicial
+     */
+    public static Movie record(GameBoy gameBoy, Path file, boolean powerOn) throws IOException {
+        if (powerOn) {
+            gameBoy.reset();
+        }
+        int flags = (powerOn ? FLAG_POWER_ON : 0) | (gameBoy.getApu().isEmulating() ? FLAG_APU_ACTIVE : 0);
+        long rtcBase = System.currentTimeMillis();
+
+        ByteBuffer state = ByteBuffer.allocate(gameBoy.getStateSizeBound());
+        gameBoy.saveState(state);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(flags);
+            out.writeInt(romCrc(gameBoy));
+            out.writeLong(rtcBase);
+            out.writeInt(state.position());
+            out.write(state.array(), 0, state.position());
+            out.flush();
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+
+        Movie movie = new Movie(gameBoy, Mode.RECORDING, out, null, flags, rtcBase);
+        movie.start();
+        System.out.println("Gravando movie: " + file);
+        return movie;
+    }
+
+    /**
+     * Carrega o estado inicial do movie e prepara a reprodução. Deve ser chamado na thread de emulação.
+     */
+    public static Movie play(GameBoy gameBoy, Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Arquivo de movie inválido");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Versão de movie não suportada: " + version);
+            }
+            int flags = in.readInt();
+            int romCrc = in.readInt();
+            if (romCrc != romCrc(gameBoy)) {
+                throw new IOException("O movie foi gravado com outra ROM");
+            }
+            long rtcBase = in.readLong();
+            byte[] state = new byte[in.readInt()];
+            in.readFully(state);
+            gameBoy.loadState(ByteBuffer.wrap(state));
+
+            Movie movie = new Movie(gameBoy, Mode.PLAYING, null, in, flags, rtcBase);
+            movie.matchApuMode();
+            movie.start();
+            System.out.println("Reproduzindo movie: " + file);
+            return movie;
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private void start() {
+        gameBoy.getMmu().setInputLatched(true);
+        gameBoy.getCartridge().setRtcClock(this::rtcMillis);
+    }
+
+    // Sem o APU no mesmo modo da gravação, jogos que leem NR52 divergem
+    private void matchApuMode() {
+        APU apu = gameBoy.getApu();
+        boolean wanted = (flags & FLAG_APU_ACTIVE) != 0;
+        if (apu.isEmulating() == wanted) {
+            return;
+        }
+        restoreSound = true;
+        previousSoundEnabled = gameBoy.isEmulatorSoundGloballyEnabled();
+        if (wanted && !apu.isEmulating() && apu.getSampleSink() == null) {
+            // Sem saída de áudio (headless): emula o APU e descarta as amostras
+            apu.setSampleSink((pcm, offset, length) -> { });
+            installedSink = true;
+        }
+        gameBoy.setEmulatorSoundGloballyEnabled(wanted);
+    }
+
+    private long rtcMillis() {
+        return rtcBase + cycles * 1000 / CPU_CLOCK_HZ;
+    }
+
+    /**
+     * Aplica a entrada do quadro (gravando os botões físicos ou lendo do arquivo) e emula até o fim dele.
+     *
+     * @return ciclos executados; 0 quando a reprodução chegou ao fim, -1 se a CPU parou com erro fatal
+     */
+    public int runFrame() throws IOException {
+        if (finished) {
+            return 0;
+        }
+        MMU mmu = gameBoy.getMmu();
+        int buttons;
+        if (mode == Mode.RECORDING) {
+            buttons = mmu.getLiveJoypadState();
+            out.writeByte(buttons);
+            if ((frame + 1) % FLUSH_INTERVAL_FRAMES == 0) {
+                out.flush();
+            }
+        } else {
+            int next = in.read();
+            if (next < 0) {
+                finished = true;
+                return 0;
+            }
+            buttons = next;
+        }
+        mmu.applyJoypadState(buttons);
+
+        long frameEnd = (frame + 1) * CYCLES_PER_FRAME;
+        long frameStart = cycles;
+        gameBoy.setFastForwardDeadline(gameBoy.getElapsedCycles() + (frameEnd - cycles));
+        while (cycles < frameEnd) {
+            int stepCycles = gameBoy.step();
+            if (stepCycles == -1) {
+                return -1;
+            }
+            cycles += stepCycles;
+        }
+        frame++;
+        return (int) (cycles - frameStart);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getFrameCount() {
+        return frame;
+    }
+
+    public boolean isPowerOn() {
+        return (flags & FLAG_POWER_ON) != 0;
+    }
+
+    /**
+     * Na reprodução, indica que todos os quadros do arquivo já foram aplicados.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void close() throws IOException {
+        MMU mmu = gameBoy.getMmu();
+        // Volta para os botões que estão fisicamente pressionados agora
+        mmu.applyJoypadState(mmu.getLiveJoypadState());
+        mmu.setInputLatched(false);
+        gameBoy.setFastForwardDeadline(Long.MAX_VALUE);
+        gameBoy.getCartridge().setRtcClock(null);
+        if (restoreSound) {
+            gameBoy.setEmulatorSoundGloballyEnabled(previousSoundEnabled);
+            if (installedSink) {
+                gameBoy.getApu().setSampleSink(null);
+            }
+            restoreSound = false;
+        }
+        if (out != null) {
+            out.close();
+            System.out.println("Movie gravado: " + frame + " quadros");
+        }
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    private static int romCrc(GameBoy gameBoy) {
+        CRC32 crc = new CRC32();
+        byte[] rom = gameBoy.getCartridge().getRomData();
+        if (rom != null) {
+            crc.update(rom);
+        }
+        return (int) crc.getValue();
+    }
+}
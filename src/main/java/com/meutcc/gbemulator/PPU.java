@@ -1,42 +1,9 @@
 package com.meutcc.gbemulator;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public class PPU {
-    private static class PixelInfo {
-        int colorIndex;      
-        boolean fromSprite;  
-        boolean spritePriority; 
-        int paletteRegister; 
-        
-        PixelInfo(int colorIndex, boolean fromSprite, boolean spritePriority, int paletteRegister) {
-            this.colorIndex = colorIndex;
-            this.fromSprite = fromSprite;
-            this.spritePriority = spritePriority;
-            this.paletteRegister = paletteRegister;
-        }
-        
-        PixelInfo() {
-            this(0, false, false, 0);
-        }
-    }
-
-    private static class VisibleSprite {
-        int spriteIndex;    
-        int spriteX;       
-        int spriteY;        
-        int tileIndex;     
-        int attributes;     
-        
-        VisibleSprite(int spriteIndex, int spriteX, int spriteY, int tileIndex, int attributes) {
-            this.spriteIndex = spriteIndex;
-            this.spriteX = spriteX;
-            this.spriteY = spriteY;
-            this.tileIndex = tileIndex;
-            this.attributes = attributes;
-        }
-    }
-
     public static final int SCREEN_WIDTH = 160;
     public static final int SCREEN_HEIGHT = 144;
     
@@ -50,7 +17,7 @@ public class PPU {
     private final byte[] vram = new byte[8192]; 
     private final byte[] oam = new byte[160];   
 
-    private final int[] screenBuffer = new int[SCREEN_WIDTH * SCREEN_HEIGHT];
+    private int[] screenBuffer = new int[SCREEN_WIDTH * SCREEN_HEIGHT];
     private boolean frameCompleted = false;
 
     private ColorPalette currentPalette = ColorPalette.DMG_GREEN;
@@ -83,7 +50,32 @@ public class PPU {
     
     private int pixelX; 
     private boolean enablePixelFifo; 
-    private PixelInfo[] currentScanlineBuffer; 
+    private boolean catchUpEnabled = false;
+    // Run-ahead: quadros intermediários não desenham nada, só avançam o estado
+    private boolean renderingSuppressed = false;
+
+    // Buffers da linha em arrays primitivos, reaproveitados entre linhas (sem alocação por pixel)
+    private static final int LINE_FROM_SPRITE = 0x01;
+    private final byte[] lineColorIndex = new byte[SCREEN_WIDTH];
+    private final byte[] linePalette = new byte[SCREEN_WIDTH];
+    private final byte[] lineFlags = new byte[SCREEN_WIDTH];
+
+    // Linha montada pixel a pixel no modo FIFO; mantém os pixels da linha anterior que não forem redesenhados
+    private final byte[] fifoColorIndex = new byte[SCREEN_WIDTH];
+    private final byte[] fifoPalette = new byte[SCREEN_WIDTH];
+
+    // Tiles decodificados: 384 tiles × 8 linhas × 8 pixels com o índice de cor de 2 bits
+    private static final int TILE_COUNT = 384;
+    private final byte[] decodedTiles = new byte[TILE_COUNT * 64];
+    private final boolean[] decodedTileValid = new boolean[TILE_COUNT];
+    private boolean tileCacheEnabled = false;
+    private long tileCacheHits = 0;
+    private long tileCacheMisses = 0;
+    private long tileCacheInvalidations = 0;
+
+    // Slots fixos para os até 10 sprites da linha: (x << 8) | índice OAM
+    private static final int MAX_SPRITES_PER_LINE = 10;
+    private final int[] lineSprites = new int[MAX_SPRITES_PER_LINE];
 
     private MMU mmu;
 
@@ -124,10 +116,9 @@ public class PPU {
         
         pixelX = 0;
         enablePixelFifo = false;
-        currentScanlineBuffer = new PixelInfo[SCREEN_WIDTH];
-        for (int i = 0; i < SCREEN_WIDTH; i++) {
-            currentScanlineBuffer[i] = new PixelInfo();
-        }
+        Arrays.fill(fifoColorIndex, (byte) 0);
+        Arrays.fill(fifoPalette, (byte) 0);
+        Arrays.fill(decodedTileValid, false);
         
         System.out.println("PPU reset.");
     }
@@ -138,11 +129,90 @@ public class PPU {
             return;
         }
 
-        for (int i = 0; i < cpuCycles; i++) {
-            updateSingleCycle();
+        if (!catchUpEnabled) {
+            for (int i = 0; i < cpuCycles; i++) {
+                updateSingleCycle();
+            }
+            return;
+        }
+
+        int remaining = cpuCycles;
+        while (remaining > 0) {
+            int quietCycles = Math.min(cyclesUntilNextEvent() - 1, remaining);
+            if (quietCycles > 0) {
+                advanceQuietCycles(quietCycles);
+                remaining -= quietCycles;
+            } else {
+                updateSingleCycle();
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * Avança em lote ciclos antes do próximo evento (menos que cyclesUntilNextEvent()):
+     * nenhum modo, LY ou linha de interrupção muda, só a renderização da linha precisa acontecer.
+     */
+    private void advanceQuietCycles(int cycles) {
+        int startCounter = cyclesCounter;
+        scanlineCycles += cycles;
+        cyclesCounter += cycles;
+
+        if (ppuMode == 3) {
+            if (enablePixelFifo) {
+                for (int c = (startCounter / 4 + 1) * 4; c <= cyclesCounter && pixelX < SCREEN_WIDTH; c += 4) {
+                    renderSinglePixel(pixelX);
+                    pixelX++;
+                }
+            } else if (startCounter < 1 && ly < SCREEN_HEIGHT) {
+                renderScanline();
+            }
         }
+
+        updateStatInterrupts();
     }
     
+    /**
+     * Ciclos até a próxima mudança de modo/LY ou possível interrupção (VBlank/STAT).
+     * A estimativa nunca passa do ponto real: entre agora e o evento, o PPU pode ser
+     * avançado em lote sem alterar o que a CPU observa.
+     */
+    public int cyclesUntilNextEvent() {
+        if (!isLcdEnabled()) {
+            return Integer.MAX_VALUE;
+        }
+
+        boolean lycEqualsLy = (ly == lyc);
+        if (lycComparisonThisCycle || lycEqualsLy != previousLycEqualsLy
+                || ((stat & 0x40) != 0 && lycEqualsLy)) {
+            return 1;
+        }
+
+        boolean modeLine = ((stat & 0x08) != 0 && ppuMode == 0)
+                || ((stat & 0x10) != 0 && ppuMode == 1)
+                || ((stat & 0x20) != 0 && ppuMode == 2);
+        if (modeLine != statInterruptLine) {
+            return 1;
+        }
+
+        int remaining;
+        switch (ppuMode) {
+            case 2:
+                remaining = MODE_2_CYCLES - cyclesCounter;
+                break;
+            case 3:
+                remaining = mode3Duration - cyclesCounter;
+                break;
+            case 0:
+                remaining = SCANLINE_CYCLES - scanlineCycles;
+                break;
+            default:
+                remaining = (ly == 153 && scanlineCycles < 4) ? 4 - scanlineCycles : SCANLINE_CYCLES - scanlineCycles;
+                break;
+        }
+        return Math.max(1, remaining);
+    }
+
     private void updateSingleCycle() {
         scanlineCycles++;
         cyclesCounter++;
@@ -311,40 +381,41 @@ public class PPU {
     }
     
     private void renderSinglePixel(int x) {
-        if (x < 0 || x >= SCREEN_WIDTH) return;
+        if (x < 0 || x >= SCREEN_WIDTH || renderingSuppressed) return;
         
-        PixelInfo pixel = new PixelInfo(0, false, false, bgp);
+        int colorIndex = 0;
+        int palette = bgp;
         
         if (isBgWindowDisplayEnabled()) {
-            pixel = getBackgroundPixel(x, ly);
+            colorIndex = getBackgroundPixel(x, ly);
         }
         
         if (isWindowDisplayEnabled() && isBgWindowDisplayEnabled()) {
             int actualWX = wx - 7;
             if (x >= actualWX && ly >= wy) {
-                pixel = getWindowPixel(x, ly);
+                int windowColor = getWindowPixel(x, ly);
+                if (windowColor >= 0) {
+                    colorIndex = windowColor;
+                }
             }
         }
         
         if (isSpriteDisplayEnabled()) {
-            PixelInfo spritePixel = getSpritePixel(x, ly);
-            if (spritePixel != null) {
-                boolean shouldDraw = true;
-                
-                if (spritePixel.spritePriority && isBgWindowDisplayEnabled() && pixel.colorIndex != 0) {
-                    shouldDraw = false; 
-                }
-                
-                if (shouldDraw) {
-                    pixel = spritePixel;
+            int spritePixel = getSpritePixel(x, ly);
+            if (spritePixel >= 0) {
+                boolean bgPriority = (spritePixel & SPRITE_PIXEL_BG_PRIORITY) != 0;
+                if (!(bgPriority && isBgWindowDisplayEnabled() && colorIndex != 0)) {
+                    colorIndex = spritePixel & 0x03;
+                    palette = spritePixel >> 8;
                 }
             }
         }
         
-        currentScanlineBuffer[x] = pixel;
+        fifoColorIndex[x] = (byte) colorIndex;
+        fifoPalette[x] = (byte) palette;
     }
     
-    private PixelInfo getBackgroundPixel(int x, int y) {
+    private int getBackgroundPixel(int x, int y) {
         int tileDataArea = (lcdc & 0x10) != 0 ? 0x8000 : 0x8800;
         boolean signedAddressing = (tileDataArea == 0x8800);
         int tileMapArea = (lcdc & 0x08) != 0 ? 0x9C00 : 0x9800;
@@ -376,23 +447,16 @@ public class PPU {
         int tileRowDataAddress = tileAddress + (yInTile * 2);
         
         if (tileRowDataAddress < 0x8000 || tileRowDataAddress + 1 >= 0xA000) {
-            return new PixelInfo(0, false, false, bgp);
+            return 0;
         }
 
-        int lsb = vram[tileRowDataAddress - 0x8000] & 0xFF;
-        int msb = vram[tileRowDataAddress + 1 - 0x8000] & 0xFF;
-
-        int bitPosition = 7 - xInTile;
-        int colorBit0 = (lsb >> bitPosition) & 1;
-        int colorBit1 = (msb >> bitPosition) & 1;
-        int colorIndex = (colorBit1 << 1) | colorBit0;
-
-        return new PixelInfo(colorIndex, false, false, bgp);
+        return decodedTiles[decodedTileRow(tileRowDataAddress) + xInTile];
     }
     
-    private PixelInfo getWindowPixel(int x, int y) {
+    // Índice de cor da janela, ou -1 fora dela
+    private int getWindowPixel(int x, int y) {
         int actualWX = wx - 7;
-        if (x < actualWX || y < wy) return null;
+        if (x < actualWX || y < wy) return -1;
         
         int tileDataArea = (lcdc & 0x10) != 0 ? 0x8000 : 0x8800;
         boolean signedAddressing = (tileDataArea == 0x8800);
@@ -406,12 +470,12 @@ public class PPU {
         int tileColInMap = xInWindow / 8;
         int xInTile = xInWindow % 8;
 
-        if (tileColInMap >= 32) return null;
+        if (tileColInMap >= 32) return -1;
 
         int tileMapOffset = tileRowInMap * 32 + tileColInMap;
         int tileIndexAddress = tileMapArea + tileMapOffset;
 
-        if (tileIndexAddress < 0x8000 || tileIndexAddress >= 0xA000) return null;
+        if (tileIndexAddress < 0x8000 || tileIndexAddress >= 0xA000) return -1;
         int tileIndex = vram[tileIndexAddress - 0x8000] & 0xFF;
 
         int tileAddress;
@@ -422,97 +486,86 @@ public class PPU {
         }
 
         int tileRowDataAddress = tileAddress + (yInTile * 2);
-        if (tileRowDataAddress < 0x8000 || tileRowDataAddress + 1 >= 0xA000) return null;
+        if (tileRowDataAddress < 0x8000 || tileRowDataAddress + 1 >= 0xA000) return -1;
 
-        int lsb = vram[tileRowDataAddress - 0x8000] & 0xFF;
-        int msb = vram[tileRowDataAddress + 1 - 0x8000] & 0xFF;
-
-        int bitPosition = 7 - xInTile;
-        int colorBit0 = (lsb >> bitPosition) & 1;
-        int colorBit1 = (msb >> bitPosition) & 1;
-        int colorIndex = (colorBit1 << 1) | colorBit0;
-
-        return new PixelInfo(colorIndex, false, false, bgp);
+        return decodedTiles[decodedTileRow(tileRowDataAddress) + xInTile];
     }
     
-    private PixelInfo getSpritePixel(int x, int y) {
+    private static final int SPRITE_PIXEL_BG_PRIORITY = 0x04;
+
+    // (paleta << 8) | prioridade de fundo | índice de cor do sprite em (x, y), ou -1 sem pixel de sprite
+    private int getSpritePixel(int x, int y) {
         boolean tallSprites = (lcdc & 0x04) != 0;
         int spriteHeight = tallSprites ? 16 : 8;
-
-        VisibleSprite highestPrioritySprite = null;
-
+        
+        int bestIndex = -1;
+        int bestX = 0;
+        
         for (int i = 0; i < 40; i++) {
             int oamAddr = i * 4;
-
+            
             int spriteY = (oam[oamAddr] & 0xFF) - 16;
             int spriteX = (oam[oamAddr + 1] & 0xFF) - 8;
-            int tileIndex = oam[oamAddr + 2] & 0xFF;
-            int attributes = oam[oamAddr + 3] & 0xFF;
-
+            
             if (y >= spriteY && y < (spriteY + spriteHeight) &&
                 x >= spriteX && x < (spriteX + 8)) {
                 
-                if (highestPrioritySprite == null || 
-                    spriteX < highestPrioritySprite.spriteX ||
-                    (spriteX == highestPrioritySprite.spriteX && i < highestPrioritySprite.spriteIndex)) {
-                    highestPrioritySprite = new VisibleSprite(i, spriteX, spriteY, tileIndex, attributes);
+                if (bestIndex < 0 || spriteX < bestX) {
+                    bestIndex = i;
+                    bestX = spriteX;
                 }
             }
         }
-
-        if (highestPrioritySprite == null) {
-            return null;
+        
+        if (bestIndex < 0) {
+            return -1;
         }
-
-        boolean yFlip = (highestPrioritySprite.attributes & 0x40) != 0;
-        boolean xFlip = (highestPrioritySprite.attributes & 0x20) != 0;
-        boolean bgPriority = (highestPrioritySprite.attributes & 0x80) != 0;
-        int paletteReg = (highestPrioritySprite.attributes & 0x10) != 0 ? obp1 : obp0;
-
-        int tileIndex = highestPrioritySprite.tileIndex;
+        
+        int oamAddr = bestIndex * 4;
+        int spriteY = (oam[oamAddr] & 0xFF) - 16;
+        int attributes = oam[oamAddr + 3] & 0xFF;
+        boolean yFlip = (attributes & 0x40) != 0;
+        boolean xFlip = (attributes & 0x20) != 0;
+        boolean bgPriority = (attributes & 0x80) != 0;
+        int paletteReg = (attributes & 0x10) != 0 ? obp1 : obp0;
+        
+        int tileIndex = oam[oamAddr + 2] & 0xFF;
         if (tallSprites) {
             tileIndex &= 0xFE;
         }
-
-        int yInSpriteTile = y - highestPrioritySprite.spriteY;
+        
+        int yInSpriteTile = y - spriteY;
         if (yFlip) {
             yInSpriteTile = (spriteHeight - 1) - yInSpriteTile;
         }
-
+        
         if (tallSprites && yInSpriteTile >= 8) {
             tileIndex |= 0x01;
             yInSpriteTile -= 8;
         }
-
+        
         int tileAddress = 0x8000 + (tileIndex * 16);
         int tileRowDataAddress = tileAddress + (yInSpriteTile * 2);
-
+        
         if (tileRowDataAddress < 0x8000 || tileRowDataAddress + 1 >= 0xA000) {
-            return null;
+            return -1;
         }
-
-        int lsb = vram[tileRowDataAddress - 0x8000] & 0xFF;
-        int msb = vram[tileRowDataAddress + 1 - 0x8000] & 0xFF;
-
-        int px = x - highestPrioritySprite.spriteX;
+        
+        int px = x - bestX;
         int xInTilePixel = xFlip ? (7 - px) : px;
-
-        int bitPosition = 7 - xInTilePixel;
-        int colorBit0 = (lsb >> bitPosition) & 1;
-        int colorBit1 = (msb >> bitPosition) & 1;
-        int colorIndex = (colorBit1 << 1) | colorBit0;
-
-        if (colorIndex == 0) return null; 
-
-        return new PixelInfo(colorIndex, true, bgPriority, paletteReg);
+        int colorIndex = decodedTiles[decodedTileRow(tileRowDataAddress) + xInTilePixel];
+        
+        if (colorIndex == 0) return -1; 
+        
+        return (paletteReg << 8) | (bgPriority ? SPRITE_PIXEL_BG_PRIORITY : 0) | colorIndex;
     }
     
     private void transferScanlineToScreen() {
+        if (renderingSuppressed) return;
         int baseIndex = ly * SCREEN_WIDTH;
         for (int x = 0; x < SCREEN_WIDTH; x++) {
             if (baseIndex + x < screenBuffer.length) {
-                PixelInfo pixel = currentScanlineBuffer[x];
-                screenBuffer[baseIndex + x] = getColorFromPalette(pixel.colorIndex, pixel.paletteRegister);
+                screenBuffer[baseIndex + x] = getColorFromPalette(fifoColorIndex[x], fifoPalette[x] & 0xFF);
             }
         }
     }
@@ -597,37 +650,43 @@ public class PPU {
     }
 
 
-    private void renderScanline() {
+    // Visível no pacote para os benchmarks JMH
+    void renderScanline() {
         if (!isLcdEnabled()) return;
 
-        PixelInfo[] scanlinePixelInfo = new PixelInfo[SCREEN_WIDTH]; 
-        
-        for (int x = 0; x < SCREEN_WIDTH; x++) {
-            scanlinePixelInfo[x] = new PixelInfo(0, false, false, bgp);
+        if (renderingSuppressed) {
+            // O contador de linhas da janela é estado do PPU, não da imagem: avança como em renderWindowScanline
+            if (isWindowDisplayEnabled() && isBgWindowDisplayEnabled() && ly >= wy && wx - 7 < SCREEN_WIDTH) {
+                windowLineCounter++;
+            }
+            return;
         }
 
+        Arrays.fill(lineColorIndex, (byte) 0);
+        Arrays.fill(linePalette, (byte) bgp);
+        Arrays.fill(lineFlags, (byte) 0);
+
         if (isBgWindowDisplayEnabled()) { 
-            renderBackgroundScanlineWithInfo(scanlinePixelInfo);
+            renderBackgroundScanline();
         }
 
         if (isWindowDisplayEnabled() && isBgWindowDisplayEnabled()) {
-            renderWindowScanlineWithInfo(scanlinePixelInfo);
+            renderWindowScanline();
         }
 
         if (isSpriteDisplayEnabled()) { // Bit 1 do LCDC
-            renderSpritesScanlineWithInfo(scanlinePixelInfo);
+            renderSpritesScanline();
         }
 
         int baseIndex = ly * SCREEN_WIDTH;
         for (int x = 0; x < SCREEN_WIDTH; x++) {
             if (baseIndex + x < screenBuffer.length) { 
-                PixelInfo pixel = scanlinePixelInfo[x];
-                screenBuffer[baseIndex + x] = getColorFromPalette(pixel.colorIndex, pixel.paletteRegister);
+                screenBuffer[baseIndex + x] = getColorFromPalette(lineColorIndex[x], linePalette[x] & 0xFF);
             }
         }
     }
 
-    private void renderBackgroundScanlineWithInfo(PixelInfo[] scanlinePixelInfo) {
+    private void renderBackgroundScanline() {
         int tileDataArea = (lcdc & 0x10) != 0 ? 0x8000 : 0x8800;
         boolean signedAddressing = (tileDataArea == 0x8800);
         int tileMapArea = (lcdc & 0x08) != 0 ? 0x9C00 : 0x9800;
@@ -636,18 +695,21 @@ public class PPU {
         int tileRowInMap = yInBgMap / 8;  
         int yInTile = yInBgMap % 8;       
 
-        for (int x = 0; x < SCREEN_WIDTH; x++) {
+        // Copia sequências de até 8 pixels da mesma linha de tile
+        int x = 0;
+        while (x < SCREEN_WIDTH) {
             int xInBgMap = (x + scx) & 0xFF; 
             int tileColInMap = xInBgMap / 8;  
             int xInTile = xInBgMap % 8;       
+            int run = Math.min(8 - xInTile, SCREEN_WIDTH - x);
 
             int tileMapOffset = tileRowInMap * 32 + tileColInMap;
             int tileIndexAddress = tileMapArea + tileMapOffset;
-            
+
             if (tileIndexAddress >= 0xA000) {
                 tileIndexAddress = tileMapArea + (tileMapOffset & 0x3FF); 
             }
-            
+
             int tileIndex = vram[tileIndexAddress - 0x8000] & 0xFF;
 
             int tileAddress;
@@ -658,25 +720,17 @@ public class PPU {
             }
 
             int tileRowDataAddress = tileAddress + (yInTile * 2);
-            
+
             if (tileRowDataAddress < 0x8000 || tileRowDataAddress + 1 >= 0xA000) {
-                scanlinePixelInfo[x] = new PixelInfo(0, false, false, bgp);
-                continue;
+                Arrays.fill(lineColorIndex, x, x + run, (byte) 0);
+            } else {
+                System.arraycopy(decodedTiles, decodedTileRow(tileRowDataAddress) + xInTile, lineColorIndex, x, run);
             }
-
-            int lsb = vram[tileRowDataAddress - 0x8000] & 0xFF;
-            int msb = vram[tileRowDataAddress + 1 - 0x8000] & 0xFF;
-
-            int bitPosition = 7 - xInTile;
-            int colorBit0 = (lsb >> bitPosition) & 1;
-            int colorBit1 = (msb >> bitPosition) & 1;
-            int colorIndex = (colorBit1 << 1) | colorBit0;
-
-            scanlinePixelInfo[x] = new PixelInfo(colorIndex, false, false, bgp);
+            x += run;
         }
     }
 
-    private void renderWindowScanlineWithInfo(PixelInfo[] scanlinePixelInfo) {
+    private void renderWindowScanline() {
         if (ly < wy) return;
 
         int tileDataArea = (lcdc & 0x10) != 0 ? 0x8000 : 0x8800;
@@ -684,21 +738,21 @@ public class PPU {
         int tileMapArea = (lcdc & 0x40) != 0 ? 0x9C00 : 0x9800;
 
         int actualWX = wx - 7;
-
-        boolean windowRenderedThisLine = false;
+        if (actualWX >= SCREEN_WIDTH) return;
 
         int yInWindow = windowLineCounter;
         int tileRowInMap = yInWindow / 8;
         int yInTile = yInWindow % 8;
 
-        for (int x = 0; x < SCREEN_WIDTH; x++) {
-            if (x < actualWX) continue;
-
-            windowRenderedThisLine = true; 
-
+        int x = Math.max(0, actualWX);
+        while (x < SCREEN_WIDTH) {
             int xInWindow = x - actualWX; 
             int tileColInMap = xInWindow / 8;
             int xInTile = xInWindow % 8;
+            int run = Math.min(8 - xInTile, SCREEN_WIDTH - x);
+
+            int startX = x;
+            x += run;
 
             if (tileColInMap >= 32) continue;
 
@@ -718,65 +772,51 @@ public class PPU {
             int tileRowDataAddress = tileAddress + (yInTile * 2);
             if (tileRowDataAddress < 0x8000 || tileRowDataAddress +1 >= 0xA000) continue;
 
-            int lsb = vram[tileRowDataAddress - 0x8000] & 0xFF;
-            int msb = vram[tileRowDataAddress + 1 - 0x8000] & 0xFF;
-
-            int bitPosition = 7 - xInTile;
-            int colorBit0 = (lsb >> bitPosition) & 1;
-            int colorBit1 = (msb >> bitPosition) & 1;
-            int colorIndex = (colorBit1 << 1) | colorBit0;
-
-            scanlinePixelInfo[x] = new PixelInfo(colorIndex, false, false, bgp); 
+            System.arraycopy(decodedTiles, decodedTileRow(tileRowDataAddress) + xInTile, lineColorIndex, startX, run);
         }
 
-        if (windowRenderedThisLine) {
-            windowLineCounter++;
-        }
+        windowLineCounter++;
     }
 
-    private void renderSpritesScanlineWithInfo(PixelInfo[] scanlinePixelInfo) {
+    private void renderSpritesScanline() {
         if (!isSpriteDisplayEnabled()) return; 
-        
+
         boolean tallSprites = (lcdc & 0x04) != 0;
         int spriteHeight = tallSprites ? 16 : 8;
 
-        List<VisibleSprite> visibleSprites = new ArrayList<>();
-
-        for (int i = 0; i < 40; i++) {
-            int oamAddr = i * 4; 
-
-            int spriteY = (oam[oamAddr] & 0xFF) - 16; 
-            int spriteX = (oam[oamAddr + 1] & 0xFF) - 8; 
-            int tileIndex = oam[oamAddr + 2] & 0xFF;
-            int attributes = oam[oamAddr + 3] & 0xFF;
-
+        int spriteCount = 0;
+        for (int i = 0; i < 40 && spriteCount < MAX_SPRITES_PER_LINE; i++) {
+            int spriteY = (oam[i * 4] & 0xFF) - 16; 
             if (ly >= spriteY && ly < (spriteY + spriteHeight)) {
-                visibleSprites.add(new VisibleSprite(i, spriteX, spriteY, tileIndex, attributes));
-                
-                if (visibleSprites.size() >= 10) break;
+                int spriteX = (oam[i * 4 + 1] & 0xFF) - 8;
+                // Ordem de desenho: X decrescente, depois índice OAM decrescente (chave = (x + 8) << 8 | índice)
+                int key = ((spriteX + 8) << 8) | i;
+                int pos = spriteCount++;
+                while (pos > 0 && lineSprites[pos - 1] < key) {
+                    lineSprites[pos] = lineSprites[pos - 1];
+                    pos--;
+                }
+                lineSprites[pos] = key;
             }
         }
 
-       
-        visibleSprites.sort((a, b) -> {
-            if (a.spriteX != b.spriteX) {
-                return Integer.compare(b.spriteX, a.spriteX); 
-            }
-            return Integer.compare(b.spriteIndex, a.spriteIndex); 
-        });
+        for (int s = 0; s < spriteCount; s++) {
+            int oamAddr = (lineSprites[s] & 0xFF) * 4;
+            int spriteY = (oam[oamAddr] & 0xFF) - 16;
+            int spriteX = (oam[oamAddr + 1] & 0xFF) - 8;
+            int attributes = oam[oamAddr + 3] & 0xFF;
 
-        for (VisibleSprite sprite : visibleSprites) {
-            boolean yFlip = (sprite.attributes & 0x40) != 0;
-            boolean xFlip = (sprite.attributes & 0x20) != 0;
-            boolean bgPriority = (sprite.attributes & 0x80) != 0; 
-            int paletteReg = (sprite.attributes & 0x10) != 0 ? obp1 : obp0;
+            boolean yFlip = (attributes & 0x40) != 0;
+            boolean xFlip = (attributes & 0x20) != 0;
+            boolean bgPriority = (attributes & 0x80) != 0; 
+            int paletteReg = (attributes & 0x10) != 0 ? obp1 : obp0;
 
-            int tileIndex = sprite.tileIndex;
+            int tileIndex = oam[oamAddr + 2] & 0xFF;
             if (tallSprites) {
                 tileIndex &= 0xFE; 
             }
 
-            int yInSpriteTile = ly - sprite.spriteY;
+            int yInSpriteTile = ly - spriteY;
             if (yFlip) {
                 yInSpriteTile = (spriteHeight - 1) - yInSpriteTile;
             }
@@ -791,42 +831,66 @@ public class PPU {
 
             if (tileRowDataAddress < 0x8000 || tileRowDataAddress + 1 >= 0xA000) continue;
 
-            int lsb = vram[tileRowDataAddress - 0x8000] & 0xFF;
-            int msb = vram[tileRowDataAddress + 1 - 0x8000] & 0xFF;
+            int rowOffset = decodedTileRow(tileRowDataAddress);
 
             for (int px = 0; px < 8; px++) {
-                int screenX = sprite.spriteX + px;
+                int screenX = spriteX + px;
                 if (screenX >= 0 && screenX < SCREEN_WIDTH) { 
                     int xInTilePixel = xFlip ? (7 - px) : px;
-
-                    int bitPosition = 7 - xInTilePixel;
-                    int colorBit0 = (lsb >> bitPosition) & 1;
-                    int colorBit1 = (msb >> bitPosition) & 1;
-                    int colorIndex = (colorBit1 << 1) | colorBit0;
+                    int colorIndex = decodedTiles[rowOffset + xInTilePixel];
 
                     if (colorIndex == 0) continue; 
 
-                    PixelInfo currentPixel = scanlinePixelInfo[screenX];
-                    boolean shouldDraw = true;
-                    
-                    if (currentPixel.fromSprite) {
-                        shouldDraw = false;
-                    }
-                    
-                    if (!currentPixel.fromSprite && bgPriority && isBgWindowDisplayEnabled()) {
-                        if (currentPixel.colorIndex != 0) {
-                            shouldDraw = false; 
-                        }
-                    }
-                    
-                    if (shouldDraw) {
-                        scanlinePixelInfo[screenX] = new PixelInfo(colorIndex, true, bgPriority, paletteReg);
-                    }
+                    // O primeiro sprite desenhado no pixel vence; prioridade de fundo esconde atrás de cor != 0
+                    if ((lineFlags[screenX] & LINE_FROM_SPRITE) != 0) continue;
+                    if (bgPriority && isBgWindowDisplayEnabled() && lineColorIndex[screenX] != 0) continue;
+
+                    lineColorIndex[screenX] = (byte) colorIndex;
+                    linePalette[screenX] = (byte) paletteReg;
+                    lineFlags[screenX] = (byte) LINE_FROM_SPRITE;
                 }
             }
         }
     }
 
+    /**
+     * Posição em decodedTiles da linha de tile que começa em tileRowDataAddress (0x8000-0x97FF).
+     * Com o cache desligado a linha é decodificada a cada chamada.
+     */
+    private int decodedTileRow(int tileRowDataAddress) {
+        int tile = (tileRowDataAddress - 0x8000) >> 4;
+        int rowOffset = tile * 64 + ((tileRowDataAddress >> 1) & 0x07) * 8;
+
+        if (tileCacheEnabled) {
+            if (decodedTileValid[tile]) {
+                tileCacheHits++;
+                return rowOffset;
+            }
+            tileCacheMisses++;
+            decodeTile(tile);
+        } else {
+            decodeTileRow(rowOffset, tileRowDataAddress - 0x8000);
+        }
+        return rowOffset;
+    }
+
+    private void decodeTile(int tile) {
+        int vramOffset = tile * 16;
+        for (int row = 0; row < 8; row++) {
+            decodeTileRow(tile * 64 + row * 8, vramOffset + row * 2);
+        }
+        decodedTileValid[tile] = true;
+    }
+
+    private void decodeTileRow(int rowOffset, int vramOffset) {
+        int lsb = vram[vramOffset] & 0xFF;
+        int msb = vram[vramOffset + 1] & 0xFF;
+        for (int px = 0; px < 8; px++) {
+            int bitPosition = 7 - px;
+            decodedTiles[rowOffset + px] = (byte) ((((msb >> bitPosition) & 1) << 1) | ((lsb >> bitPosition) & 1));
+        }
+    }
+
     private int getColorFromPalette(int colorIndex, int paletteRegister) {
         int shift = colorIndex * 2;
         int paletteColorIndex = (paletteRegister >> shift) & 0x03;
@@ -974,6 +1038,15 @@ public class PPU {
         }
         if (address >= 0 && address < vram.length) {
             vram[address] = value;
+            invalidateTile(address);
+        }
+    }
+
+    private void invalidateTile(int vramAddress) {
+        int tile = vramAddress >> 4;
+        if (tile < TILE_COUNT && decodedTileValid[tile]) {
+            decodedTileValid[tile] = false;
+            tileCacheInvalidations++;
         }
     }
 
@@ -1000,6 +1073,18 @@ public class PPU {
         return screenBuffer;
     }
 
+    /**
+     * Passa a desenhar direto em outro array (ex.: o DataBufferInt de uma BufferedImage),
+     * evitando a cópia por quadro na apresentação. O conteúdo atual é copiado para ele.
+     */
+    public void setScreenBuffer(int[] buffer) {
+        if (buffer == null || buffer.length != SCREEN_WIDTH * SCREEN_HEIGHT) {
+            throw new IllegalArgumentException("Buffer de tela deve ter " + (SCREEN_WIDTH * SCREEN_HEIGHT) + " pixels");
+        }
+        System.arraycopy(screenBuffer, 0, buffer, 0, buffer.length);
+        screenBuffer = buffer;
+    }
+
     public boolean isFrameCompleted() {
         if (frameCompleted) {
             frameCompleted = false; 
@@ -1030,6 +1115,54 @@ public class PPU {
         return enablePixelFifo;
     }
 
+    /**
+     * No modo catch-up, update() pula em lote os trechos sem eventos em vez de simular
+     * ciclo a ciclo. Combinado com o agendador de eventos do GameBoy, o PPU só é avançado
+     * quando a CPU acessa registradores LCD, VRAM ou OAM, ou quando uma interrupção vence.
+     */
+    public void setCatchUpEnabled(boolean enable) {
+        this.catchUpEnabled = enable;
+        System.out.println("Catch-up do PPU " + (enable ? "habilitado" : "desabilitado"));
+    }
+
+    public boolean isCatchUpEnabled() {
+        return catchUpEnabled;
+    }
+
+    public void setTileCacheEnabled(boolean enable) {
+        this.tileCacheEnabled = enable;
+        Arrays.fill(decodedTileValid, false);
+        System.out.println("Cache de tiles " + (enable ? "habilitado" : "desabilitado"));
+    }
+
+    public boolean isTileCacheEnabled() {
+        return tileCacheEnabled;
+    }
+
+    public void resetTileCacheStatistics() {
+        tileCacheHits = 0;
+        tileCacheMisses = 0;
+        tileCacheInvalidations = 0;
+    }
+
+    /**
+     * Emula sem escrever no screenBuffer (quadros escondidos do run-ahead).
+     */
+    public void setRenderingSuppressed(boolean suppressed) {
+        this.renderingSuppressed = suppressed;
+    }
+
+    public boolean isRenderingSuppressed() {
+        return renderingSuppressed;
+    }
+
+    public String getTileCacheStatistics() {
+        long lookups = tileCacheHits + tileCacheMisses;
+        double hitRate = lookups > 0 ? 100.0 * tileCacheHits / lookups : 0.0;
+        return String.format("TileCache: %d acertos, %d faltas (%.1f%% de acerto), %d invalidações",
+                tileCacheHits, tileCacheMisses, hitRate, tileCacheInvalidations);
+    }
+
     public void saveState(java.io.DataOutputStream dos) throws java.io.IOException {
         for (int i = 0; i < vram.length; i++) {
             dos.writeByte(vram[i]);
@@ -1062,35 +1195,95 @@ public class PPU {
         dos.writeInt(windowLineCounter);
     }
 
+    /**
+     * Bloco PPU do save state v3. A paleta de exibição é preferência do usuário e fica fora; o estado
+     * do FIFO entra para restaurar no meio do modo 3.
+     */
+    public void saveState(ByteBuffer buffer) {
+        buffer.put(vram);
+        buffer.put(oam);
+        buffer.put((byte) lcdc);
+        buffer.put((byte) stat);
+        buffer.put((byte) scy);
+        buffer.put((byte) scx);
+        buffer.put((byte) ly);
+        buffer.put((byte) lyc);
+        buffer.put((byte) bgp);
+        buffer.put((byte) obp0);
+        buffer.put((byte) obp1);
+        buffer.put((byte) wy);
+        buffer.put((byte) wx);
+        buffer.putInt(ppuMode);
+        buffer.putInt(cyclesCounter);
+        SaveStateFormat.putBoolean(buffer, frameCompleted);
+        buffer.putInt(scanlineCycles);
+        SaveStateFormat.putBoolean(buffer, statInterruptLine);
+        buffer.putInt(mode3Duration);
+        buffer.putInt(windowLineCounter);
+        buffer.putInt(pixelX);
+        SaveStateFormat.putBoolean(buffer, previousLycEqualsLy);
+        SaveStateFormat.putBoolean(buffer, lycComparisonThisCycle);
+        buffer.put(fifoColorIndex);
+        buffer.put(fifoPalette);
+    }
+
+    public void loadState(ByteBuffer buffer, int version) {
+        buffer.get(vram);
+        Arrays.fill(decodedTileValid, false);
+        buffer.get(oam);
+        lcdc = buffer.get() & 0xFF;
+        stat = buffer.get() & 0xFF;
+        scy = buffer.get() & 0xFF;
+        scx = buffer.get() & 0xFF;
+        ly = buffer.get() & 0xFF;
+        lyc = buffer.get() & 0xFF;
+        bgp = buffer.get() & 0xFF;
+        obp0 = buffer.get() & 0xFF;
+        obp1 = buffer.get() & 0xFF;
+        wy = buffer.get() & 0xFF;
+        wx = buffer.get() & 0xFF;
+        ppuMode = buffer.getInt();
+        cyclesCounter = buffer.getInt();
+        frameCompleted = SaveStateFormat.getBoolean(buffer);
+        scanlineCycles = buffer.getInt();
+        statInterruptLine = SaveStateFormat.getBoolean(buffer);
+        mode3Duration = buffer.getInt();
+        windowLineCounter = buffer.getInt();
+        pixelX = buffer.getInt();
+        previousLycEqualsLy = SaveStateFormat.getBoolean(buffer);
+        lycComparisonThisCycle = SaveStateFormat.getBoolean(buffer);
+        buffer.get(fifoColorIndex);
+        buffer.get(fifoPalette);
+    }
+
     public void loadState(java.io.DataInputStream dis) throws java.io.IOException {
         for (int i = 0; i < vram.length; i++) {
             vram[i] = dis.readByte();
         }
+        Arrays.fill(decodedTileValid, false);
         for (int i = 0; i < oam.length; i++) {
             oam[i] = dis.readByte();
         }
-        lcdc = dis.readByte();
-        stat = dis.readByte();
-        scy = dis.readByte();
-        scx = dis.readByte();
-        ly = dis.readByte();
-        lyc = dis.readByte();
-        bgp = dis.readByte();
-        obp0 = dis.readByte();
-        obp1 = dis.readByte();
-        wy = dis.readByte();
-        wx = dis.readByte();
+        lcdc = dis.readUnsignedByte();
+        stat = dis.readUnsignedByte();
+        scy = dis.readUnsignedByte();
+        scx = dis.readUnsignedByte();
+        ly = dis.readUnsignedByte();
+        lyc = dis.readUnsignedByte();
+        bgp = dis.readUnsignedByte();
+        obp0 = dis.readUnsignedByte();
+        obp1 = dis.readUnsignedByte();
+        wy = dis.readUnsignedByte();
+        wx = dis.readUnsignedByte();
         ppuMode = dis.readInt();
         cyclesCounter = dis.readInt();
         frameCompleted = dis.readBoolean();
         
         try {
-            String paletteName = dis.readUTF();
-            currentPalette = ColorPalette.valueOf(ColorPalette.class, paletteName);
+            // Nome da paleta dos states antigos: lido e descartado, a paleta é preferência do usuário
+            dis.readUTF();
         } catch (java.io.EOFException e) {
-            currentPalette = ColorPalette.DMG_GREEN;
-        } catch (IllegalArgumentException e) {
-            currentPalette = ColorPalette.DMG_GREEN;
+            // States v1 não têm paleta
         }
         
         try {
@@ -0,0 +1,200 @@
+package com.meutcc.gbemulator;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Amplia o quadro 160x144 na CPU com Scale2x/3x ou xBRZ.
+ * As linhas de saída são divididas em faixas processadas num ForkJoinPool pequeno; as tarefas,
+ * os buffers intermediários e a imagem de saída são alocados uma vez, então um quadro não aloca nada.
+ */
+public class PixelArtScaler {
+
+    private static final int WIDTH = PPU.SCREEN_WIDTH;
+    private static final int HEIGHT = PPU.SCREEN_HEIGHT;
+    // Faixas por thread, para compensar linhas mais caras (bordas) sem custo de coordenação alto
+    private static final int STRIPES_PER_THREAD = 3;
+
+    private final ForkJoinPool pool;
+    private final Stripe[] stripes;
+    private final FrameTask frameTask = new FrameTask();
+
+    private final XbrzScaler xbrz = new XbrzScaler(WIDTH, HEIGHT);
+
+    private BufferedImage output;
+    private int[] outputPixels;
+
+    // Parâmetros do quadro em andamento, lidos pelas faixas
+    private ScalingFilter filter;
+    private int[] source;
+    private int phase;
+
+    /**
+     * @param threads número de threads (0 = automático, até 4)
+     */
+    public PixelArtScaler(int threads) {
+        if (threads <= 0) {
+            threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        }
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+
+        int count = threads * STRIPES_PER_THREAD;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(HEIGHT * i / count, HEIGHT * (i + 1) / count);
+        }
+    }
+
+    /**
+     * Amplia {@code pixels} (160x144) pelo fator do filtro. A imagem retornada é reutilizada no próximo quadro.
+     */
+    public BufferedImage scale(int[] pixels, ScalingFilter filter) {
+        int factor = filter.getScaleFactor();
+        if (output == null || output.getWidth() != WIDTH * factor) {
+            output = new BufferedImage(WIDTH * factor, HEIGHT * factor, BufferedImage.TYPE_INT_RGB);
+            outputPixels = ((DataBufferInt) output.getRaster().getDataBuffer()).getData();
+        }
+
+        this.filter = filter;
+        this.source = pixels;
+        int phases = filter.getEngine() == ScalingFilter.Engine.XBRZ ? 2 : 1;
+        for (phase = 0; phase < phases; phase++) {
+            if (pool == null) {
+                for (Stripe stripe : stripes) {
+                    stripe.compute();
+                }
+            } else {
+                frameTask.reinitialize();
+                pool.invoke(frameTask);
+            }
+        }
+        this.source = null;
+        return output;
+    }
+
+    public int getThreadCount() {
+        return pool != null ? pool.getParallelism() : 1;
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private void scaleRows(int firstRow, int lastRow) {
+        int factor = filter.getScaleFactor();
+        switch (filter.getEngine()) {
+            case SCALE_NX:
+                if (factor == 2) {
+                    scale2x(source, outputPixels, firstRow, lastRow);
+                } else {
+                    scale3x(source, outputPixels, firstRow, lastRow);
+                }
+                break;
+            case XBRZ:
+                if (phase == 0) {
+                    xbrz.analyzeRows(source, firstRow, lastRow);
+                } else {
+                    xbrz.blendRows(source, outputPixels, factor, firstRow, lastRow);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private final class FrameTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            for (Stripe stripe : stripes) {
+                stripe.reinitialize();
+            }
+            ForkJoinTask.invokeAll(stripes);
+        }
+    }
+
+    private final class Stripe extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int firstRow;
+        private final int lastRow;
+
+        Stripe(int firstRow, int lastRow) {
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+        }
+
+        @Override
+        protected void compute() {
+            scaleRows(firstRow, lastRow);
+        }
+    }
+
+    static void scale2x(int[] src, int[] dst, int firstRow, int lastRow) {
+        int dstWidth = WIDTH * 2;
+        for (int y = firstRow; y < lastRow; y++) {
+            int up = Math.max(y - 1, 0) * WIDTH;
+            int row = y * WIDTH;
+            int down = Math.min(y + 1, HEIGHT - 1) * WIDTH;
+            int out = y * 2 * dstWidth;
+            for (int x = 0; x < WIDTH; x++) {
+                int left = Math.max(x - 1, 0);
+                int right = Math.min(x + 1, WIDTH - 1);
+                int b = src[up + x], d = src[row + left], e = src[row + x], f = src[row + right], h = src[down + x];
+                int o = out + x * 2;
+                if (b != h && d != f) {
+                    dst[o] = d == b ? d : e;
+                    dst[o + 1] = b == f ? f : e;
+                    dst[o + dstWidth] = d == h ? d : e;
+                    dst[o + dstWidth + 1] = h == f ? f : e;
+                } else {
+                    dst[o] = e;
+                    dst[o + 1] = e;
+                    dst[o + dstWidth] = e;
+                    dst[o + dstWidth + 1] = e;
+                }
+            }
+        }
+    }
+
+    static void scale3x(int[] src, int[] dst, int firstRow, int lastRow) {
+        int dstWidth = WIDTH * 3;
+        for (int y = firstRow; y < lastRow; y++) {
+            int up = Math.max(y - 1, 0) * WIDTH;
+            int row = y * WIDTH;
+            int down = Math.min(y + 1, HEIGHT - 1) * WIDTH;
+            int out = y * 3 * dstWidth;
+            for (int x = 0; x < WIDTH; x++) {
+                int left = Math.max(x - 1, 0);
+                int right = Math.min(x + 1, WIDTH - 1);
+                int a = src[up + left], b = src[up + x], c = src[up + right];
+                int d = src[row + left], e = src[row + x], f = src[row + right];
+                int g = src[down + left], h = src[down + x], i = src[down + right];
+                int o0 = out + x * 3;
+                int o1 = o0 + dstWidth;
+                int o2 = o1 + dstWidth;
+                if (b != h && d != f) {
+                    dst[o0] = d == b ? d : e;
+                    dst[o0 + 1] = (d == b && e != c) || (b == f && e != a) ? b : e;
+                    dst[o0 + 2] = b == f ? f : e;
+                    dst[o1] = (d == b && e != g) || (d == h && e != a) ? d : e;
+                    dst[o1 + 1] = e;
+                    dst[o1 + 2] = (b == f && e != i) || (h == f && e != c) ? f : e;
+                    dst[o2] = d == h ? d : e;
+                    dst[o2 + 1] = (d == h && e != i) || (h == f && e != g) ? h : e;
+                    dst[o2 + 2] = h == f ? f : e;
+                } else {
+                    dst[o0] = e; dst[o0 + 1] = e; dst[o0 + 2] = e;
+                    dst[o1] = e; dst[o1 + 1] = e; dst[o1 + 2] = e;
+                    dst[o2] = e; dst[o2 + 1] = e; dst[o2 + 2] = e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.meutcc.gbemulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Rewind em memória: a cada N quadros o estado completo é capturado e guardado num anel
+ * off-heap de tamanho fixo como delta XOR em relação ao snapshot anterior, comprimido com
+ * RLE de zeros. Só o snapshot mais recente fica inteiro; voltar no tempo aplica os deltas
+ * do mais novo para o mais antigo. Quando o anel enche, os deltas mais antigos são descartados.
+ *
+ * Formato de cada entrada no anel: [int tamanho][int tamanho do estado anterior][dados][int tamanho].
+ * O tamanho repetido no fim permite percorrer o anel de trás para frente.
+ */
+public class RewindBuffer {
+
+    private static final int ENTRY_OVERHEAD = 12;
+
+    private final GameBoy gameBoy;
+    private final ByteBuffer ring;
+    private final int framesPerSnapshot;
+
+    // Posições absolutas no anel; o índice real é a posição % capacidade
+    private long head = 0;
+    private long tail = 0;
+    private int snapshotCount = 0;
+    private int framesSinceSnapshot = 0;
+
+    // Estado mais recente, inteiro, e buffers de trabalho reaproveitados entre capturas
+    private byte[] latest = new byte[0];
+    private int latestLength = 0;
+    private byte[] entry = new byte[0];
+    private ByteBuffer latestView = ByteBuffer.wrap(latest);
+    private byte[] current = new byte[0];
+    private ByteBuffer currentView = ByteBuffer.wrap(current);
+    private final byte[] lengthScratch = new byte[4];
+
+    private long captures = 0;
+    private long captureNanos = 0;
+    private long maxCaptureNanos = 0;
+    private long encodedBytes = 0;
+
+    /**
+     * @param capacityBytes tamanho do anel off-heap
+     * @param framesPerSnapshot intervalo de captura em quadros
+     */
+    public RewindBuffer(GameBoy gameBoy, int capacityBytes, int framesPerSnapshot) {
+        this.gameBoy = gameBoy;
+        this.ring = ByteBuffer.allocateDirect(capacityBytes);
+        this.framesPerSnapshot = Math.max(1, framesPerSnapshot);
+    }
+
+    /**
+     * Chamado uma vez por quadro emulado; captura um snapshot a cada framesPerSnapshot quadros.
+     */
+    public void onFrame() throws IOException {
+        if (++framesSinceSnapshot >= framesPerSnapshot) {
+            capture();
+        }
+    }
+
+    public void capture() throws IOException {
+        long start = System.nanoTime();
+        framesSinceSnapshot = 0;
+
+        int bound = gameBoy.getStateSizeBound();
+        if (current.length < bound) {
+            current = new byte[bound];
+            currentView = ByteBuffer.wrap(current);
+        }
+        currentView.clear();
+        gameBoy.saveState(currentView);
+        int currentLength = currentView.position();
+
+        if (latestLength > 0) {
+            int maxLength = Math.max(currentLength, latestLength);
+            ensureEntryCapacity(ENTRY_OVERHEAD + maxLength + maxLength / 64 + 16);
+            int dataLength = encodeXorDelta(current, currentLength, latest, latestLength, entry, 8);
+            int entryLength = dataLength + ENTRY_OVERHEAD;
+            writeInt(entry, 0, dataLength);
+            writeInt(entry, 4, latestLength);
+            writeInt(entry, 8 + dataLength, dataLength);
+            if (entryLength <= ring.capacity()) {
+                while (ring.capacity() - (head - tail) < entryLength) {
+                    dropOldest();
+                }
+                putRing(head, entry, 0, entryLength);
+                head += entryLength;
+                snapshotCount++;
+                encodedBytes += entryLength;
+            } else {
+                // Delta maior que o anel: o histórico anterior não é mais alcançável
+                head = 0;
+                tail = 0;
+                snapshotCount = 0;
+            }
+        }
+
+        // O estado recém-capturado vira o mais recente; o antigo é reaproveitado na próxima captura
+        byte[] swap = latest;
+        latest = current;
+        current = swap;
+        ByteBuffer swapView = latestView;
+        latestView = currentView;
+        currentView = swapView;
+        latestLength = currentLength;
+
+        long elapsed = System.nanoTime() - start;
+        captures++;
+        captureNanos += elapsed;
+        maxCaptureNanos = Math.max(maxCaptureNanos, elapsed);
+    }
+
+    /**
+     * Volta um snapshot e o carrega no GameBoy.
+     *
+     * @return false se não há mais histórico
+     */
+    public boolean rewind() throws IOException {
+        if (snapshotCount == 0) {
+            return false;
+        }
+        getRing(head - 4, lengthScratch, 0, 4);
+        int dataLength = readInt(lengthScratch, 0);
+        int entryLength = dataLength + ENTRY_OVERHEAD;
+        ensureEntryCapacity(entryLength);
+        getRing(head - entryLength, entry, 0, entryLength);
+        head -= entryLength;
+        snapshotCount--;
+
+        int previousLength = readInt(entry, 4);
+        if (latest.length < previousLength) {
+            byte[] grown = new byte[previousLength];
+            System.arraycopy(latest, 0, grown, 0, latestLength);
+            latest = grown;
+            latestView = ByteBuffer.wrap(latest);
+        } else if (previousLength > latestLength) {
+            // O delta assume zeros além do fim do estado mais recente
+            Arrays.fill(latest, latestLength, previousLength, (byte) 0);
+        }
+        applyXorDelta(entry, 8, dataLength, latest);
+        latestLength = previousLength;
+        framesSinceSnapshot = 0;
+
+        latestView.clear();
+        latestView.limit(latestLength);
+        gameBoy.loadState(latestView);
+        return true;
+    }
+
+    public void clear() {
+        head = 0;
+        tail = 0;
+        snapshotCount = 0;
+        framesSinceSnapshot = 0;
+        latestLength = 0;
+    }
+
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    public String getStatistics() {
+        double averageMicros = captures > 0 ? captureNanos / 1000.0 / captures : 0.0;
+        long averageEntry = captures > 1 ? encodedBytes / (captures - 1) : 0;
+        return String.format("Rewind: %d snapshots (%.1f s), %d/%d KB usados, %d bytes/delta (estado %d bytes), captura %.1f us (máx %.1f us)",
+                snapshotCount, snapshotCount * framesPerSnapshot / 59.73, (head - tail) / 1024, ring.capacity() / 1024,
+                averageEntry, latestLength, averageMicros, maxCaptureNanos / 1000.0);
+    }
+
+    private void dropOldest() {
+        getRing(tail, lengthScratch, 0, 4);
+        tail += readInt(lengthScratch, 0) + ENTRY_OVERHEAD;
+        snapshotCount--;
+    }
+
+    private void ensureEntryCapacity(int size) {
+        if (entry.length < size) {
+            entry = new byte[size];
+        }
+    }
+
+    /**
+     * XOR de current com previous (o mais curto completado com zeros) codificado como
+     * sequências [varint zeros][varint literais][literais].
+     *
+     * @return bytes escritos em out a partir de offset
+     */
+    static int encodeXorDelta(byte[] current, int currentLength, byte[] previous, int previousLength,
+                              byte[] out, int offset) {
+        int length = Math.max(currentLength, previousLength);
+        int pos = offset;
+        int i = 0;
+        while (i < length) {
+            int zeroStart = i;
+            while (i < length && xorAt(current, currentLength, previous, previousLength, i) == 0) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int literalStart = i;
+            // Zeros isolados continuam no literal: abrir nova sequência custaria mais
+            while (i < length && (xorAt(current, currentLength, previous, previousLength, i) != 0
+                    || (i + 1 < length && xorAt(current, currentLength, previous, previousLength, i + 1) != 0))) {
+                i++;
+            }
+            pos = writeVarInt(out, pos, literalStart - zeroStart);
+            pos = writeVarInt(out, pos, i - literalStart);
+            for (int j = literalStart; j < i; j++) {
+                out[pos++] = xorAt(current, currentLength, previous, previousLength, j);
+            }
+        }
+        return pos - offset;
+    }
+
+    static void applyXorDelta(byte[] data, int offset, int length, byte[] target) {
+        int pos = offset;
+        int end = offset + length;
+        int index = 0;
+        while (pos < end) {
+            int zeros = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = data[pos++];
+                zeros |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            int literals = 0;
+            shift = 0;
+            do {
+                b = data[pos++];
+                literals |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            index += zeros;
+            for (int j = 0; j < literals; j++) {
+                target[index++] ^= data[pos++];
+            }
+        }
+    }
+
+    private static byte xorAt(byte[] current, int currentLength, byte[] previous, int previousLength, int i) {
+        byte a = i < currentLength ? current[i] : 0;
+        byte b = i < previousLength ? previous[i] : 0;
+        return (byte) (a ^ b);
+    }
+
+    private static int writeVarInt(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static void writeInt(byte[] out, int pos, int value) {
+        out[pos] = (byte) (value >>> 24);
+        out[pos + 1] = (byte) (value >>> 16);
+        out[pos + 2] = (byte) (value >>> 8);
+        out[pos + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] in, int pos) {
+        return ((in[pos] & 0xFF) << 24) | ((in[pos + 1] & 0xFF) << 16) | ((in[pos + 2] & 0xFF) << 8) | (in[pos + 3] & 0xFF);
+    }
+
+    private void putRing(long position, byte[] src, int offset, int length) {
+        int index = (int) (position % ring.capacity());
+        int first = Math.min(length, ring.capacity() - index);
+        ring.put(index, src, offset, first);
+        ring.put(0, src, offset + first, length - first);
+    }
+
+    private void getRing(long position, byte[] dst, int offset, int length) {
+        int index = (int) (position % ring.capacity());
+        int first = Math.min(length, ring.capacity() - index);
+        ring.get(index, dst, offset, first);
+        ring.get(0, dst, offset + first, length - first);
+    }
+}
@@ -0,0 +1,133 @@
+package com.meutcc.gbemulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Run-ahead: esconde o atraso de entrada do próprio jogo. A cada quadro do host, o quadro real é
+ * emulado com áudio, o estado é salvo, mais N quadros são emulados com a entrada atual (sem áudio)
+ * e o estado salvo é restaurado. A tela mostra N quadros no futuro, enquanto som, rewind e save
+ * states seguem a linha do tempo real.
+ * <p>
+ * As fatias de 70224 ciclos não começam no VBlank, então o quadro exibido começa na penúltima
+ * fatia: só as duas últimas fatias (a real e a adiantada, com N = 1) são desenhadas, e o
+ * screenBuffer fica igual ao da emulação sem run-ahead no mesmo ponto.
+ */
+public class RunAhead {
+
+    private final GameBoy gameBoy;
+    private final int frames;
+    private ByteBuffer state = ByteBuffer.allocate(0);
+    private boolean frameReady = false;
+
+    private long hostFrames = 0;
+    private long overheadNanos = 0;
+    private long maxOverheadNanos = 0;
+    private long saveNanos = 0;
+    private long loadNanos = 0;
+
+    /**
+     * @param frames quadros emulados à frente a cada quadro do host (1 a 4)
+     */
+    public RunAhead(GameBoy gameBoy, int frames) {
+        this.gameBoy = gameBoy;
+        this.frames = Math.max(1, Math.min(4, frames));
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * Emula um quadro do host.
+     *
+     * @return false se a CPU parou com erro fatal
+     */
+    public boolean runFrame(int cyclesPerFrame) throws IOException {
+        PPU ppu = gameBoy.getPpu();
+        APU apu = gameBoy.getApu();
+        MMU mmu = gameBoy.getMmu();
+        frameReady = false;
+
+        ppu.setRenderingSuppressed(frames > 1);
+        try {
+            if (!emulate(cyclesPerFrame)) {
+                return false;
+            }
+            ppu.isFrameCompleted();
+
+            long start = System.nanoTime();
+            int bound = gameBoy.getStateSizeBound();
+            if (state.capacity() < bound) {
+                state = ByteBuffer.allocate(bound);
+            }
+            state.clear();
+            gameBoy.saveState(state);
+            state.flip();
+            long saved = System.nanoTime();
+
+            apu.setOutputSuppressed(true);
+            for (int i = 0; i < frames; i++) {
+                ppu.setRenderingSuppressed(i < frames - 2);
+                if (!emulate(cyclesPerFrame)) {
+                    return false;
+                }
+                frameReady = ppu.isFrameCompleted();
+            }
+
+            long loadStart = System.nanoTime();
+            // Botões pressionados durante os quadros adiantados não podem ser desfeitos pelo estado salvo.
+            // Eles são reaplicados na linha do tempo real pelo caminho normal, que pede a interrupção de joypad
+            int joypad = mmu.getJoypadState();
+            gameBoy.loadState(state);
+            mmu.applyJoypadState(joypad);
+            long end = System.nanoTime();
+
+            long overhead = end - start;
+            hostFrames++;
+            overheadNanos += overhead;
+            maxOverheadNanos = Math.max(maxOverheadNanos, overhead);
+            saveNanos += saved - start;
+            loadNanos += end - loadStart;
+            return true;
+        } finally {
+            ppu.setRenderingSuppressed(false);
+            apu.setOutputSuppressed(false);
+        }
+    }
+
+    /**
+     * Se o último quadro adiantado terminou um VBlank, o screenBuffer do PPU tem a imagem a exibir.
+     */
+    public boolean isFrameReady() {
+        return frameReady;
+    }
+
+    public String getStatistics() {
+        double average = hostFrames > 0 ? overheadNanos / 1000.0 / hostFrames : 0.0;
+        double save = hostFrames > 0 ? saveNanos / 1000.0 / hostFrames : 0.0;
+        double load = hostFrames > 0 ? loadNanos / 1000.0 / hostFrames : 0.0;
+        return String.format("Run-ahead (%d quadros): custo extra %.1f us/quadro (máx %.1f us), save %.1f us, load %.1f us",
+                frames, average, maxOverheadNanos / 1000.0, save, load);
+    }
+
+    public void resetStatistics() {
+        hostFrames = 0;
+        overheadNanos = 0;
+        maxOverheadNanos = 0;
+        saveNanos = 0;
+        loadNanos = 0;
+    }
+
+    private boolean emulate(int cycles) {
+        int cyclesThisFrame = 0;
+        while (cyclesThisFrame < cycles) {
+            int stepCycles = gameBoy.step();
+            if (stepCycles == -1) {
+                return false;
+            }
+            cyclesThisFrame += stepCycles;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+package com.meutcc.gbemulator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout do save state versão 3: cabeçalho [magic "GBSS"][versão], seguido de blocos
+ * [int tag][int versão do bloco][int tamanho][dados] e terminado pelo bloco END.
+ * Blocos desconhecidos são pulados pelo tamanho, e cada componente lê os próprios dados
+ * conforme a versão do bloco, então campos novos não quebram states antigos.
+ */
+final class SaveStateFormat {
+
+    static final int MAGIC = 0x47425353; // "GBSS"
+    static final int VERSION = 3;
+
+    static final int TAG_CPU = tag("CPU ");
+    static final int TAG_MMU = tag("MMU ");
+    static final int TAG_PPU = tag("PPU ");
+    static final int TAG_APU = tag("APU ");
+    static final int TAG_MBC = tag("MBC ");
+    static final int TAG_SERIAL = tag("SERL");
+    static final int TAG_END = tag("END ");
+
+    static final int CHUNK_HEADER_SIZE = 12;
+
+    private SaveStateFormat() {
+    }
+
+    private static int tag(String name) {
+        return (name.charAt(0) << 24) | (name.charAt(1) << 16) | (name.charAt(2) << 8) | name.charAt(3);
+    }
+
+    /**
+     * Escreve o cabeçalho do bloco; o tamanho é preenchido por endChunk.
+     *
+     * @return posição do campo de tamanho
+     */
+    static int beginChunk(ByteBuffer buffer, int tag, int version) {
+        buffer.putInt(tag);
+        buffer.putInt(version);
+        int lengthPosition = buffer.position();
+        buffer.putInt(0);
+        return lengthPosition;
+    }
+
+    static void endChunk(ByteBuffer buffer, int lengthPosition) {
+        buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+    }
+
+    static void putBoolean(ByteBuffer buffer, boolean value) {
+        buffer.put((byte) (value ? 1 : 0));
+    }
+
+    static boolean getBoolean(ByteBuffer buffer) {
+        return buffer.get() != 0;
+    }
+}
@@ -13,14 +13,40 @@ public enum ScalingFilter {
     
     
     BICUBIC("Bicubic (High Quality)", 
-        RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        RenderingHints.VALUE_INTERPOLATION_BICUBIC),
+
+    // Escaladores de pixel art na CPU (PixelArtScaler); o restante da ampliação usa o hint
+    SCALE2X("Scale2x", Engine.SCALE_NX, 2),
+
+    SCALE3X("Scale3x", Engine.SCALE_NX, 3),
+
+    XBRZ_2X("xBRZ 2x", Engine.XBRZ, 2),
+
+    XBRZ_3X("xBRZ 3x", Engine.XBRZ, 3),
+
+    XBRZ_4X("xBRZ 4x", Engine.XBRZ, 4);
+
+    public enum Engine {
+        JAVA2D, SCALE_NX, XBRZ
+    }
     
     private final String displayName;
     private final Object renderingHintValue;
+    private final Engine engine;
+    private final int scaleFactor;
     
     ScalingFilter(String displayName, Object renderingHintValue) {
         this.displayName = displayName;
         this.renderingHintValue = renderingHintValue;
+        this.engine = Engine.JAVA2D;
+        this.scaleFactor = 1;
+    }
+
+    ScalingFilter(String displayName, Engine engine, int scaleFactor) {
+        this.displayName = displayName;
+        this.renderingHintValue = RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+        this.engine = engine;
+        this.scaleFactor = scaleFactor;
     }
     
    
@@ -32,6 +58,21 @@ public enum ScalingFilter {
     public Object getRenderingHintValue() {
         return renderingHintValue;
     }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Fator aplicado na CPU antes do drawImage (1 para os filtros do Java2D).
+     */
+    public int getScaleFactor() {
+        return scaleFactor;
+    }
+
+    public boolean isPixelArtScaler() {
+        return engine != Engine.JAVA2D;
+    }
     
     @Override
     public String toString() {
@@ -0,0 +1,150 @@
+package com.meutcc.gbemulator;
+
+/**
+ * Agenda central de eventos em T-cycles absolutos.
+ * Heap mínimo indexado com no máximo um prazo por tipo de evento: reagendar ou
+ * cancelar um tipo custa O(log n) e o próximo prazo é consultado em O(1).
+ */
+public final class Scheduler {
+
+    public enum EventType {
+        PPU_MODE,
+        TIMER_OVERFLOW,
+        SERIAL_TRANSFER,
+        APU_FRAME_SEQUENCER,
+        DMA_END
+    }
+
+    public static final long NEVER = Long.MAX_VALUE;
+
+    private static final EventType[] TYPES = EventType.values();
+
+    private final int[] heap = new int[TYPES.length];
+    private final int[] heapPositions = new int[TYPES.length];
+    private final long[] deadlines = new long[TYPES.length];
+    private int size;
+
+    private long now;
+
+    public Scheduler() {
+        reset();
+    }
+
+    public void reset() {
+        now = 0;
+        size = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            heapPositions[i] = -1;
+            deadlines[i] = NEVER;
+        }
+    }
+
+    public long getNow() {
+        return now;
+    }
+
+    public void advance(int cycles) {
+        now += cycles;
+    }
+
+    /**
+     * Agenda (ou reagenda) o evento para o timestamp absoluto informado; NEVER cancela.
+     */
+    public void schedule(EventType type, long when) {
+        if (when == NEVER) {
+            cancel(type);
+            return;
+        }
+
+        int id = type.ordinal();
+        long previous = deadlines[id];
+        deadlines[id] = when;
+
+        int pos = heapPositions[id];
+        if (pos < 0) {
+            pos = size++;
+            heap[pos] = id;
+            heapPositions[id] = pos;
+            siftUp(pos);
+        } else if (when < previous) {
+            siftUp(pos);
+        } else {
+            siftDown(pos);
+        }
+    }
+
+    public void cancel(EventType type) {
+        int id = type.ordinal();
+        int pos = heapPositions[id];
+        deadlines[id] = NEVER;
+        if (pos < 0) {
+            return;
+        }
+
+        heapPositions[id] = -1;
+        size--;
+        if (pos == size) {
+            return;
+        }
+
+        int last = heap[size];
+        heap[pos] = last;
+        heapPositions[last] = pos;
+        siftUp(pos);
+        siftDown(heapPositions[last]);
+    }
+
+    public long getDeadline(EventType type) {
+        return deadlines[type.ordinal()];
+    }
+
+    public long nextEventTime() {
+        return size > 0 ? deadlines[heap[0]] : NEVER;
+    }
+
+    public EventType nextEventType() {
+        return size > 0 ? TYPES[heap[0]] : null;
+    }
+
+    public boolean isEventDue() {
+        return size > 0 && deadlines[heap[0]] <= now;
+    }
+
+    private void siftUp(int pos) {
+        int id = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            int parentId = heap[parent];
+            if (deadlines[parentId] <= deadlines[id]) {
+                break;
+            }
+            heap[pos] = parentId;
+            heapPositions[parentId] = pos;
+            pos = parent;
+        }
+        heap[pos] = id;
+        heapPositions[id] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int id = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && deadlines[heap[child + 1]] < deadlines[heap[child]]) {
+                child++;
+            }
+            int childId = heap[child];
+            if (deadlines[id] <= deadlines[childId]) {
+                break;
+            }
+            heap[pos] = childId;
+            heapPositions[childId] = pos;
+            pos = child;
+        }
+        heap[pos] = id;
+        heapPositions[id] = pos;
+    }
+}
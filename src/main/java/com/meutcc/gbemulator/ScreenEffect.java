@@ -2,12 +2,22 @@ package com.meutcc.gbemulator;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
 public class ScreenEffect {
 
     private boolean ghostingEnabled = false;
     private float ghostingIntensity = 0.3f;
-    private BufferedImage previousFrame = null;
+    // Quadros até a imagem antiga cair para ghostingIntensity
+    private int ghostingFrames = 3;
+    // Fração da imagem anterior mantida a cada quadro, em 1/256
+    private int ghostingFeedback;
+
+    // Resposta do LCD: o array da imagem exibida guarda o último quadro mostrado e é misturado no lugar
+    private BufferedImage ghostFrame;
+    private int[] ghostPixels;
+    private int[] sourcePixels;
+    private boolean ghostValid = false;
 
     private boolean gridEnabled = false;
     private float gridIntensity = 0.15f;
@@ -15,71 +25,70 @@ public class ScreenEffect {
     private boolean scanlinesEnabled = false;
     private float scanlineIntensity = 0.2f;
 
-    public BufferedImage applyEffects(BufferedImage currentFrame, int scaledWidth, int scaledHeight) {
-        BufferedImage result = currentFrame;
-
-        if (ghostingEnabled && previousFrame != null) {
-            result = applyGhosting(currentFrame);
-        }
-
-        if (ghostingEnabled) {
-            storePreviousFrame(currentFrame);
-        }
-
-        return result;
+    public ScreenEffect() {
+        updateGhostingFeedback();
     }
 
-    private BufferedImage applyGhosting(BufferedImage currentFrame) {
-        if (previousFrame == null)
+    public BufferedImage applyEffects(BufferedImage currentFrame, int scaledWidth, int scaledHeight) {
+        if (!ghostingEnabled) {
             return currentFrame;
-
+        }
         int width = currentFrame.getWidth();
         int height = currentFrame.getHeight();
-
-        BufferedImage ghostedFrame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int currentColor = currentFrame.getRGB(x, y);
-                int previousColor = previousFrame.getRGB(x, y);
-
-                int currR = (currentColor >> 16) & 0xFF;
-                int currG = (currentColor >> 8) & 0xFF;
-                int currB = currentColor & 0xFF;
-
-                int prevR = (previousColor >> 16) & 0xFF;
-                int prevG = (previousColor >> 8) & 0xFF;
-                int prevB = previousColor & 0xFF;
-
-                int r = (int) (currR * (1.0f - ghostingIntensity) + prevR * ghostingIntensity);
-                int g = (int) (currG * (1.0f - ghostingIntensity) + prevG * ghostingIntensity);
-                int b = (int) (currB * (1.0f - ghostingIntensity) + prevB * ghostingIntensity);
-
-                r = Math.min(255, Math.max(0, r));
-                g = Math.min(255, Math.max(0, g));
-                b = Math.min(255, Math.max(0, b));
-
-                int blendedColor = 0xFF000000 | (r << 16) | (g << 8) | b;
-                ghostedFrame.setRGB(x, y, blendedColor);
+        int[] pixels;
+        if (currentFrame.getType() == BufferedImage.TYPE_INT_RGB || currentFrame.getType() == BufferedImage.TYPE_INT_ARGB) {
+            pixels = ((DataBufferInt) currentFrame.getRaster().getDataBuffer()).getData();
+        } else {
+            if (sourcePixels == null || sourcePixels.length != width * height) {
+                sourcePixels = new int[width * height];
             }
+            pixels = currentFrame.getRGB(0, 0, width, height, sourcePixels, 0, width);
+        }
+        return applyGhosting(pixels, width, height);
+    }
+
+    /**
+     * Aplica o ghosting a um quadro ARGB. Cada pixel exibido se aproxima do atual com uma
+     * fração fixa por quadro (ponto fixo 8.8), então uma mudança leva vários quadros para
+     * assentar, como no LCD do DMG. A imagem retornada é reutilizada no próximo quadro.
+     */
+    public BufferedImage applyGhosting(int[] currentFrame, int width, int height) {
+        if (ghostFrame == null || ghostFrame.getWidth() != width || ghostFrame.getHeight() != height) {
+            ghostFrame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            ghostPixels = ((DataBufferInt) ghostFrame.getRaster().getDataBuffer()).getData();
+            ghostValid = false;
         }
 
-        return ghostedFrame;
-    }
+        int[] shown = ghostPixels;
+        int count = width * height;
+        if (!ghostValid) {
+            System.arraycopy(currentFrame, 0, shown, 0, count);
+            ghostValid = true;
+            return ghostFrame;
+        }
 
-    private void storePreviousFrame(BufferedImage currentFrame) {
-        if (previousFrame == null ||
-                previousFrame.getWidth() != currentFrame.getWidth() ||
-                previousFrame.getHeight() != currentFrame.getHeight()) {
-            previousFrame = new BufferedImage(
-                    currentFrame.getWidth(),
-                    currentFrame.getHeight(),
-                    BufferedImage.TYPE_INT_RGB);
+        int keep = ghostingFeedback;
+        int take = 256 - keep;
+        for (int i = 0; i < count; i++) {
+            int current = currentFrame[i];
+            int previous = shown[i];
+            if (previous == current) {
+                continue;
+            }
+            // R e B juntos em lanes de 16 bits, G separado
+            int rb = (((previous & 0xFF00FF) * keep + (current & 0xFF00FF) * take) >>> 8) & 0xFF00FF;
+            int g = (((previous & 0x00FF00) * keep + (current & 0x00FF00) * take) >>> 8) & 0x00FF00;
+            int blended = 0xFF000000 | rb | g;
+            // Sem progresso por arredondamento: assenta no quadro atual
+            shown[i] = blended == (previous | 0xFF000000) ? current : blended;
         }
+        return ghostFrame;
+    }
 
-        Graphics2D g = previousFrame.createGraphics();
-        g.drawImage(currentFrame, 0, 0, null);
-        g.dispose();
+    private void updateGhostingFeedback() {
+        // feedback^frames = intensity: após ghostingFrames quadros resta ghostingIntensity da imagem antiga
+        double feedback = ghostingIntensity <= 0.0f ? 0.0 : Math.pow(ghostingIntensity, 1.0 / ghostingFrames);
+        ghostingFeedback = (int) Math.round(Math.min(feedback, 0.97) * 256);
     }
 
     public void drawGridLines(Graphics2D g2d, int x, int y, int scaledWidth, int scaledHeight,
@@ -123,7 +132,7 @@ public class ScreenEffect {
     public void setGhostingEnabled(boolean enabled) {
         this.ghostingEnabled = enabled;
         if (!enabled) {
-            previousFrame = null;
+            ghostValid = false;
         }
     }
 
@@ -133,6 +142,19 @@ public class ScreenEffect {
 
     public void setGhostingIntensity(float intensity) {
         this.ghostingIntensity = Math.max(0.0f, Math.min(1.0f, intensity));
+        updateGhostingFeedback();
+    }
+
+    public int getGhostingFrames() {
+        return ghostingFrames;
+    }
+
+    /**
+     * Por quantos quadros o rastro persiste (1 = só o quadro anterior).
+     */
+    public void setGhostingFrames(int frames) {
+        this.ghostingFrames = Math.max(1, Math.min(8, frames));
+        updateGhostingFeedback();
     }
 
     public boolean isGridEnabled() {
@@ -168,6 +190,6 @@ public class ScreenEffect {
     }
 
     public void reset() {
-        previousFrame = null;
+        ghostValid = false;
     }
 }
@@ -1,5 +1,6 @@
 package com.meutcc.gbemulator;
 
+import java.nio.ByteBuffer;
 
 public class Serial {
     
@@ -120,6 +121,16 @@ public class Serial {
     public boolean isTransferInProgress() {
         return transferInProgress;
     }
+
+    /**
+     * Ciclos até update() concluir a transferência atual, ou Integer.MAX_VALUE sem transferência.
+     */
+    public int cyclesUntilTransferComplete() {
+        if (!transferInProgress) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(1, transferCyclesRemaining);
+    }
     
   
     public void connectDevice(SerialDevice device) {
@@ -165,6 +176,28 @@ public class Serial {
     }
     
  
+    public void saveState(ByteBuffer buffer) {
+        buffer.putInt(sb);
+        buffer.putInt(sc);
+        SaveStateFormat.putBoolean(buffer, transferInProgress);
+        buffer.putInt(transferCyclesRemaining);
+        buffer.putInt(shiftRegister);
+        buffer.putInt(bitsTransferred);
+        SaveStateFormat.putBoolean(buffer, externalClockMode);
+        buffer.putInt(externalClockBitPosition);
+    }
+
+    public void loadState(ByteBuffer buffer, int version) {
+        sb = buffer.getInt();
+        sc = buffer.getInt();
+        transferInProgress = SaveStateFormat.getBoolean(buffer);
+        transferCyclesRemaining = buffer.getInt();
+        shiftRegister = buffer.getInt();
+        bitsTransferred = buffer.getInt();
+        externalClockMode = SaveStateFormat.getBoolean(buffer);
+        externalClockBitPosition = buffer.getInt();
+    }
+
     public void loadState(java.io.DataInputStream dis) throws java.io.IOException {
         sb = dis.readInt();
         sc = dis.readInt();
@@ -196,4 +229,30 @@ public class Serial {
             return 0xFF;
         }
     }
+
+    /**
+     * Sem parceiro no cabo (responde 0xFF), mas guarda os bytes enviados pelo jogo.
+     * Usado para capturar a saída de ROMs de teste que escrevem texto pela serial.
+     */
+    public static class RecordingDevice implements SerialDevice {
+        private final java.io.ByteArrayOutputStream sent = new java.io.ByteArrayOutputStream();
+
+        @Override
+        public int exchangeByte(int dataSent) {
+            sent.write(dataSent & 0xFF);
+            return 0xFF;
+        }
+
+        public byte[] getBytes() {
+            return sent.toByteArray();
+        }
+
+        public String getText() {
+            return new String(sent.toByteArray(), java.nio.charset.StandardCharsets.ISO_8859_1);
+        }
+
+        public void clear() {
+            sent.reset();
+        }
+    }
 }
@@ -0,0 +1,323 @@
+package com.meutcc.gbemulator;
+
+/**
+ * Porte do xBRZ (Zenju) para 2x, 3x e 4x. Roda em duas fases sobre faixas de linhas:
+ * {@link #analyzeRows} classifica os cantos de cada bloco 2x2 e {@link #blendRows}
+ * desenha cada pixel e suaviza as bordas nas quatro rotações. A segunda fase só começa
+ * depois que todas as faixas terminaram a primeira.
+ */
+class XbrzScaler {
+
+    private static final int BLEND_NONE = 0;
+    private static final int BLEND_NORMAL = 1;
+    private static final int BLEND_DOMINANT = 2;
+
+    private static final float EQUAL_COLOR_TOLERANCE = 30f;
+    private static final float DOMINANT_DIRECTION_THRESHOLD = 3.6f;
+    private static final float STEEP_DIRECTION_THRESHOLD = 2.2f;
+
+    private final int width;
+    private final int height;
+    // Cantos de cada bloco 2x2 com f em (bx, by), bx e by de -1 a tamanho-1: f nos bits 0-1, g 2-3, j 4-5, k 6-7
+    private final byte[] blockInfo;
+    // Deslocamento na saída de ref(i, j) em cada rotação, por fator
+    private final int[][][] outputOffsets = new int[5][][];
+
+    XbrzScaler(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.blockInfo = new byte[(width + 1) * (height + 1)];
+        for (int factor = 2; factor <= 4; factor++) {
+            int dstWidth = width * factor;
+            outputOffsets[factor] = new int[4][factor * factor];
+            for (int rot = 0; rot < 4; rot++) {
+                for (int i = 0; i < factor; i++) {
+                    for (int j = 0; j < factor; j++) {
+                        int oi = i, oj = j;
+                        for (int r = 0; r < rot; r++) {
+                            int t = oi;
+                            oi = factor - 1 - oj;
+                            oj = t;
+                        }
+                        outputOffsets[factor][rot][i * factor + j] = oi * dstWidth + oj;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Fase 1: classifica os blocos cujas linhas de f estão na faixa (a primeira faixa inclui a linha -1). */
+    void analyzeRows(int[] src, int firstRow, int lastRow) {
+        for (int by = firstRow == 0 ? -1 : firstRow; by < lastRow; by++) {
+            for (int bx = -1; bx < width; bx++) {
+                blockInfo[(by + 1) * (width + 1) + bx + 1] = (byte) preProcessCorners(src, bx, by);
+            }
+        }
+    }
+
+    /** Fase 2: escreve os pixels ampliados das linhas da faixa. */
+    void blendRows(int[] src, int[] dst, int factor, int firstRow, int lastRow) {
+        int dstWidth = width * factor;
+        int stride = width + 1;
+        for (int y = firstRow; y < lastRow; y++) {
+            for (int x = 0; x < width; x++) {
+                int e = src[y * width + x];
+                int base = y * factor * dstWidth + x * factor;
+                for (int sy = 0; sy < factor; sy++) {
+                    int o = base + sy * dstWidth;
+                    for (int sx = 0; sx < factor; sx++) {
+                        dst[o + sx] = e;
+                    }
+                }
+
+                int topLeft = blockInfo[y * stride + x];
+                int topRight = blockInfo[y * stride + x + 1];
+                int bottomLeft = blockInfo[(y + 1) * stride + x];
+                int bottomRight = blockInfo[(y + 1) * stride + x + 1];
+                int blend = ((topLeft >> 6) & 3)
+                        | (((topRight >> 4) & 3) << 2)
+                        | ((bottomRight & 3) << 4)
+                        | (((bottomLeft >> 2) & 3) << 6);
+                if (blend == 0) {
+                    continue;
+                }
+                for (int rot = 0; rot < 4; rot++) {
+                    blendPixel(src, dst, x, y, base, factor, blend, rot);
+                }
+            }
+        }
+    }
+
+    private int preProcessCorners(int[] src, int bx, int by) {
+        int b = pixel(src, bx, by - 1), c = pixel(src, bx + 1, by - 1);
+        int e = pixel(src, bx - 1, by), f = pixel(src, bx, by), g = pixel(src, bx + 1, by), h = pixel(src, bx + 2, by);
+        int i = pixel(src, bx - 1, by + 1), j = pixel(src, bx, by + 1), k = pixel(src, bx + 1, by + 1), l = pixel(src, bx + 2, by + 1);
+        int n = pixel(src, bx, by + 2), o = pixel(src, bx + 1, by + 2);
+
+        if ((f == g && j == k) || (f == j && g == k)) {
+            return 0;
+        }
+        float jg = dist(i, f) + dist(f, c) + dist(n, k) + dist(k, h) + 4 * dist(j, g);
+        float fk = dist(e, j) + dist(j, o) + dist(b, g) + dist(g, l) + 4 * dist(f, k);
+
+        int result = 0;
+        if (jg < fk) {
+            int type = DOMINANT_DIRECTION_THRESHOLD * jg < fk ? BLEND_DOMINANT : BLEND_NORMAL;
+            if (f != g && f != j) {
+                result |= type;
+            }
+            if (k != j && k != g) {
+                result |= type << 6;
+            }
+        } else if (fk < jg) {
+            int type = DOMINANT_DIRECTION_THRESHOLD * fk < jg ? BLEND_DOMINANT : BLEND_NORMAL;
+            if (j != f && j != k) {
+                result |= type << 4;
+            }
+            if (g != f && g != k) {
+                result |= type << 2;
+            }
+        }
+        return result;
+    }
+
+    private void blendPixel(int[] src, int[] dst, int x, int y, int base, int factor, int blendInfo, int rot) {
+        int blend = ((blendInfo << (2 * rot)) | (blendInfo >> (8 - 2 * rot))) & 0xFF;
+        int bottomR = (blend >> 4) & 3;
+        if (bottomR < BLEND_NORMAL) {
+            return;
+        }
+        int b = rotated(src, x, y, rot, 0, 1), c = rotated(src, x, y, rot, 0, 2);
+        int d = rotated(src, x, y, rot, 1, 0), e = rotated(src, x, y, rot, 1, 1), f = rotated(src, x, y, rot, 1, 2);
+        int g = rotated(src, x, y, rot, 2, 0), h = rotated(src, x, y, rot, 2, 1), i = rotated(src, x, y, rot, 2, 2);
+
+        boolean doLineBlend;
+        if (bottomR >= BLEND_DOMINANT) {
+            doLineBlend = true;
+        } else if (((blend >> 2) & 3) != BLEND_NONE && !eq(e, g)) {
+            // Canto já suavizado pela rotação vizinha
+            doLineBlend = false;
+        } else if (((blend >> 6) & 3) != BLEND_NONE && !eq(e, c)) {
+            doLineBlend = false;
+        } else {
+            // Sem suavização completa em formas de L
+            doLineBlend = eq(e, i) || !eq(g, h) || !eq(h, i) || !eq(i, f) || !eq(f, c);
+        }
+
+        int col = dist(e, f) <= dist(e, h) ? f : h;
+        int[] out = outputOffsets[factor][rot];
+        if (!doLineBlend) {
+            blendCorner(dst, base, out, factor, col);
+            return;
+        }
+
+        float fg = dist(f, g);
+        float hc = dist(h, c);
+        boolean shallow = STEEP_DIRECTION_THRESHOLD * fg <= hc && e != g && d != g;
+        boolean steep = STEEP_DIRECTION_THRESHOLD * hc <= fg && e != c && b != c;
+        if (shallow && steep) {
+            blendLineSteepAndShallow(dst, base, out, factor, col);
+        } else if (shallow) {
+            blendLineShallow(dst, base, out, factor, col);
+        } else if (steep) {
+            blendLineSteep(dst, base, out, factor, col);
+        } else {
+            blendLineDiagonal(dst, base, out, factor, col);
+        }
+    }
+
+    private static void blendLineShallow(int[] dst, int base, int[] out, int n, int col) {
+        switch (n) {
+            case 2:
+                alphaGrad(dst, base + out[1 * n], col, 1, 4);
+                alphaGrad(dst, base + out[1 * n + 1], col, 3, 4);
+                break;
+            case 3:
+                alphaGrad(dst, base + out[2 * n], col, 1, 4);
+                alphaGrad(dst, base + out[1 * n + 2], col, 1, 4);
+                alphaGrad(dst, base + out[2 * n + 1], col, 3, 4);
+                dst[base + out[2 * n + 2]] = col;
+                break;
+            default:
+                alphaGrad(dst, base + out[3 * n], col, 1, 4);
+                alphaGrad(dst, base + out[2 * n + 2], col, 1, 4);
+                alphaGrad(dst, base + out[3 * n + 1], col, 3, 4);
+                alphaGrad(dst, base + out[2 * n + 3], col, 3, 4);
+                dst[base + out[3 * n + 2]] = col;
+                dst[base + out[3 * n + 3]] = col;
+                break;
+        }
+    }
+
+    private static void blendLineSteep(int[] dst, int base, int[] out, int n, int col) {
+        switch (n) {
+            case 2:
+                alphaGrad(dst, base + out[1], col, 1, 4);
+                alphaGrad(dst, base + out[1 * n + 1], col, 3, 4);
+                break;
+            case 3:
+                alphaGrad(dst, base + out[2], col, 1, 4);
+                alphaGrad(dst, base + out[2 * n + 1], col, 1, 4);
+                alphaGrad(dst, base + out[1 * n + 2], col, 3, 4);
+                dst[base + out[2 * n + 2]] = col;
+                break;
+            default:
+                alphaGrad(dst, base + out[3], col, 1, 4);
+                alphaGrad(dst, base + out[2 * n + 2], col, 1, 4);
+                alphaGrad(dst, base + out[1 * n + 3], col, 3, 4);
+                alphaGrad(dst, base + out[3 * n + 2], col, 3, 4);
+                dst[base + out[2 * n + 3]] = col;
+                dst[base + out[3 * n + 3]] = col;
+                break;
+        }
+    }
+
+    private static void blendLineSteepAndShallow(int[] dst, int base, int[] out, int n, int col) {
+        switch (n) {
+            case 2:
+                alphaGrad(dst, base + out[1 * n], col, 1, 4);
+                alphaGrad(dst, base + out[1], col, 1, 4);
+                alphaGrad(dst, base + out[1 * n + 1], col, 5, 6);
+                break;
+            case 3:
+                alphaGrad(dst, base + out[2 * n], col, 1, 4);
+                alphaGrad(dst, base + out[2], col, 1, 4);
+                alphaGrad(dst, base + out[2 * n + 1], col, 3, 4);
+                alphaGrad(dst, base + out[1 * n + 2], col, 3, 4);
+                dst[base + out[2 * n + 2]] = col;
+                break;
+            default:
+                alphaGrad(dst, base + out[3 * n + 1], col, 3, 4);
+                alphaGrad(dst, base + out[1 * n + 3], col, 3, 4);
+                alphaGrad(dst, base + out[3 * n], col, 1, 4);
+                alphaGrad(dst, base + out[3], col, 1, 4);
+                alphaGrad(dst, base + out[2 * n + 2], col, 1, 3);
+                dst[base + out[3 * n + 3]] = col;
+                dst[base + out[3 * n + 2]] = col;
+                dst[base + out[2 * n + 3]] = col;
+                break;
+        }
+    }
+
+    private static void blendLineDiagonal(int[] dst, int base, int[] out, int n, int col) {
+        switch (n) {
+            case 2:
+                alphaGrad(dst, base + out[1 * n + 1], col, 1, 2);
+                break;
+            case 3:
+                alphaGrad(dst, base + out[1 * n + 2], col, 1, 8);
+                alphaGrad(dst, base + out[2 * n + 1], col, 1, 8);
+                alphaGrad(dst, base + out[2 * n + 2], col, 7, 8);
+                break;
+            default:
+                alphaGrad(dst, base + out[3 * n + 2], col, 1, 2);
+                alphaGrad(dst, base + out[2 * n + 3], col, 1, 2);
+                dst[base + out[3 * n + 3]] = col;
+                break;
+        }
+    }
+
+    private static void blendCorner(int[] dst, int base, int[] out, int n, int col) {
+        switch (n) {
+            case 2:
+                alphaGrad(dst, base + out[1 * n + 1], col, 21, 100);
+                break;
+            case 3:
+                alphaGrad(dst, base + out[2 * n + 2], col, 45, 100);
+                break;
+            default:
+                alphaGrad(dst, base + out[3 * n + 3], col, 68, 100);
+                alphaGrad(dst, base + out[3 * n + 2], col, 9, 100);
+                alphaGrad(dst, base + out[2 * n + 3], col, 9, 100);
+                break;
+        }
+    }
+
+    /** Mistura {@code col} no pixel de destino com peso M/N. */
+    private static void alphaGrad(int[] dst, int index, int col, int m, int n) {
+        int back = dst[index];
+        int r = (((col >> 16) & 0xFF) * m + ((back >> 16) & 0xFF) * (n - m)) / n;
+        int g = (((col >> 8) & 0xFF) * m + ((back >> 8) & 0xFF) * (n - m)) / n;
+        int b = ((col & 0xFF) * m + (back & 0xFF) * (n - m)) / n;
+        dst[index] = 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    /** Elemento (r, c) do kernel 3x3 em volta de (x, y), girado {@code rot} vezes 90 graus. */
+    private int rotated(int[] src, int x, int y, int rot, int r, int c) {
+        int or, oc;
+        switch (rot) {
+            case 0: or = r; oc = c; break;
+            case 1: or = 2 - c; oc = r; break;
+            case 2: or = 2 - r; oc = 2 - c; break;
+            default: or = c; oc = 2 - r; break;
+        }
+        return pixel(src, x + oc - 1, y + or - 1);
+    }
+
+    private int pixel(int[] src, int x, int y) {
+        x = x < 0 ? 0 : (x >= width ? width - 1 : x);
+        y = y < 0 ? 0 : (y >= height ? height - 1 : y);
+        return src[y * width + x];
+    }
+
+    private static boolean eq(int a, int b) {
+        return dist(a, b) < EQUAL_COLOR_TOLERANCE;
+    }
+
+    /** Distância em YCbCr (coeficientes BT.2020), como no xBRZ. */
+    private static float dist(int a, int b) {
+        if (a == b) {
+            return 0f;
+        }
+        int dr = ((a >> 16) & 0xFF) - ((b >> 16) & 0xFF);
+        int dg = ((a >> 8) & 0xFF) - ((b >> 8) & 0xFF);
+        int db = (a & 0xFF) - (b & 0xFF);
+        final float kB = 0.0593f;
+        final float kR = 0.2627f;
+        final float kG = 1 - kB - kR;
+        float y = kR * dr + kG * dg + kB * db;
+        float cb = 0.5f / (1 - kB) * (db - y);
+        float cr = 0.5f / (1 - kR) * (dr - y);
+        return (float) Math.sqrt(y * y + cb * cb + cr * cr);
+    }
+}
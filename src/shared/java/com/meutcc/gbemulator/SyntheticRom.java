@@ -0,0 +1,291 @@
+package com.meutcc.gbemulator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Monta ROMs sintéticas para os benchmarks e os testes: laços com misturas de instruções para a
+ * CPU, uma pequena demo homebrew (tiles, sprites, os 4 canais de som, timer e VBlank) e uma ROM
+ * que exercita todas as interrupções.
+ */
+final class SyntheticRom {
+
+    enum InstructionMix {
+        /** ADD/SUB/AND/XOR/INC/DEC entre registradores. */
+        ALU,
+        /** LD entre registradores, LD (HL+)/(HL-) e LDH na WRAM/HRAM. */
+        LOAD_STORE,
+        /** JR/JP condicionais, CALL e RET. */
+        BRANCH,
+        /** Instruções com prefixo CB (BIT, SET, RES, SWAP, rotações). */
+        CB_PREFIX
+    }
+
+    private final byte[] rom = new byte[0x8000];
+    private int pc;
+
+    private SyntheticRom() {
+        org(0x0100);
+        emit(0x00, 0xC3, 0x50, 0x01); // NOP ; JP 0150h
+    }
+
+    private SyntheticRom org(int address) {
+        pc = address;
+        return this;
+    }
+
+    private SyntheticRom emit(int... bytes) {
+        for (int b : bytes) {
+            rom[pc++] = (byte) b;
+        }
+        return this;
+    }
+
+    // JR/JR cc para um endereço anterior
+    private SyntheticRom jrBack(int opcode, int target) {
+        int offset = target - (pc + 2);
+        if (offset < -128) {
+            throw new IllegalStateException("JR fora de alcance: " + offset);
+        }
+        return emit(opcode, offset & 0xFF);
+    }
+
+    private SyntheticRom ldh(int register, int value) {
+        return emit(0x3E, value, 0xE0, register & 0xFF); // LD A,n ; LDH (n),A
+    }
+
+    private SyntheticRom jp(int target) {
+        return emit(0xC3, target & 0xFF, target >> 8);
+    }
+
+    // LD A,(nn) ; INC A ; LD (nn),A
+    private SyntheticRom incrementWram(int address) {
+        return emit(0xFA, address & 0xFF, address >> 8, 0x3C, 0xEA, address & 0xFF, address >> 8);
+    }
+
+    byte[] toBytes() {
+        return rom.clone();
+    }
+
+    static Path writeTemp(byte[] rom) throws IOException {
+        Path file = Files.createTempFile("gbemulator-rom", ".gb");
+        file.toFile().deleteOnExit();
+        Files.write(file, rom);
+        return file;
+    }
+
+    /**
+     * Laço infinito com a mistura pedida. Interrupções desligadas, dados na WRAM.
+     */
+    static byte[] instructionLoop(InstructionMix mix) {
+        SyntheticRom asm = new SyntheticRom();
+        asm.org(0x0150);
+        asm.emit(0xF3);                   // DI
+        asm.emit(0x31, 0xFE, 0xFF);       // LD SP,FFFEh
+        asm.emit(0x21, 0x00, 0xC0);       // LD HL,C000h
+        asm.emit(0x01, 0x34, 0x12);       // LD BC,1234h
+        asm.emit(0x11, 0x00, 0xC1);       // LD DE,C100h
+        int loop = asm.pc;
+
+        switch (mix) {
+            case ALU:
+                for (int i = 0; i < 4; i++) {
+                    asm.emit(0x80, 0x91, 0xA2, 0xAB, 0x3C, 0x0D, 0xB3, 0x2F, 0xC6, 0x11, 0xFE, 0x42);
+                }
+                break;
+            case LOAD_STORE:
+                asm.emit(0x21, 0x00, 0xC0);   // LD HL,C000h
+                for (int i = 0; i < 4; i++) {
+                    asm.emit(0x78, 0x22, 0x41, 0x2A, 0x57, 0x32, 0x7E, 0xE0, 0x80, 0xF0, 0x81, 0x12, 0x1A);
+                }
+                break;
+            case BRANCH: {
+                int subroutine = 0x1000;
+                for (int i = 0; i < 4; i++) {
+                    asm.emit(0xAF);                               // XOR A (Z=1)
+                    asm.emit(0x20, 0x00);                         // JR NZ,+0 (não desvia)
+                    asm.emit(0x28, 0x00);                         // JR Z,+0 (desvia)
+                    asm.emit(0xCD, subroutine & 0xFF, subroutine >> 8); // CALL sub
+                    int next = asm.pc + 3;
+                    asm.emit(0xC3, next & 0xFF, next >> 8);       // JP próxima
+                }
+                asm.jrBack(0x18, loop);
+                asm.org(subroutine).emit(0x3C, 0xC9);            // INC A ; RET
+                return asm.toBytes();
+            }
+            case CB_PREFIX:
+                for (int i = 0; i < 4; i++) {
+                    asm.emit(0xCB, 0x47, 0xCB, 0xC8, 0xCB, 0x91, 0xCB, 0x37, 0xCB, 0x12, 0xCB, 0x1B,
+                             0xCB, 0x7C, 0xCB, 0x26);
+                }
+                break;
+        }
+        asm.jrBack(0x18, loop);
+        return asm.toBytes();
+    }
+
+    /**
+     * Demo homebrew: desenha tiles e 40 sprites, toca os 4 canais, roda o timer e, a cada
+     * VBlank, rola o fundo e move um sprite. Entre quadros faz um trecho de cálculo e HALT.
+     */
+    static byte[] homebrewDemo() {
+        SyntheticRom asm = new SyntheticRom();
+
+        int vblankHandler = 0x1000;
+        asm.org(0x0040).emit(0xC3, vblankHandler & 0xFF, vblankHandler >> 8); // vetor VBlank
+        asm.org(0x0050).emit(0xD9);                      // vetor timer: RETI
+
+        asm.org(0x0150);
+        asm.emit(0xF3, 0x31, 0xFE, 0xFF);                // DI ; LD SP,FFFEh
+        int waitVBlank = asm.pc;
+        asm.emit(0xF0, 0x44, 0xFE, 0x90);                // LDH A,(LY) ; CP 144
+        asm.jrBack(0x20, waitVBlank);
+        asm.ldh(0x40, 0x00);                             // LCD desligado
+
+        // Tiles 8000h-8FFFh
+        asm.emit(0x21, 0x00, 0x80, 0x01, 0x00, 0x10);    // LD HL,8000h ; LD BC,1000h
+        int fillTiles = asm.pc;
+        asm.emit(0x7D, 0x0F, 0x22, 0x0B, 0x78, 0xB1);    // LD A,L ; RRCA ; LD (HL+),A ; DEC BC ; LD A,B ; OR C
+        asm.jrBack(0x20, fillTiles);
+
+        // Mapa 9800h-9BFFh
+        asm.emit(0x21, 0x00, 0x98, 0x01, 0x00, 0x04);    // LD HL,9800h ; LD BC,0400h
+        int fillMap = asm.pc;
+        asm.emit(0x7D, 0x22, 0x0B, 0x78, 0xB1);          // LD A,L ; LD (HL+),A ; DEC BC ; LD A,B ; OR C
+        asm.jrBack(0x20, fillMap);
+
+        // 40 sprites em diagonal (Y = 16 + 2i, X = 8 + 2i, tile i)
+        asm.emit(0x21, 0x00, 0xFE, 0x06, 0x28, 0x16, 0x00); // LD HL,FE00h ; LD B,40 ; LD D,0
+        int fillOam = asm.pc;
+        asm.emit(0x7A, 0xC6, 0x10, 0x22);                // Y
+        asm.emit(0x7A, 0xC6, 0x08, 0x22);                // X
+        asm.emit(0x7A, 0x22, 0xAF, 0x22);                // tile ; atributos
+        asm.emit(0x14, 0x14, 0x05);                      // INC D ; INC D ; DEC B
+        asm.jrBack(0x20, fillOam);
+
+        // Som: todos os canais tocando sem contador de duração
+        asm.ldh(0x26, 0x80).ldh(0x24, 0x77).ldh(0x25, 0xFF);
+        asm.ldh(0x10, 0x00).ldh(0x11, 0x80).ldh(0x12, 0xF0).ldh(0x13, 0x83).ldh(0x14, 0x87);
+        asm.ldh(0x16, 0x40).ldh(0x17, 0xF0).ldh(0x18, 0xC1).ldh(0x19, 0x87);
+        asm.emit(0x21, 0x30, 0xFF, 0x06, 0x10);          // LD HL,FF30h ; LD B,16
+        int fillWave = asm.pc;
+        asm.emit(0x7D, 0x07, 0x07, 0x22, 0x05);          // LD A,L ; RLCA ; RLCA ; LD (HL+),A ; DEC B
+        asm.jrBack(0x20, fillWave);
+        asm.ldh(0x1A, 0x80).ldh(0x1B, 0x00).ldh(0x1C, 0x20).ldh(0x1D, 0xD6).ldh(0x1E, 0x86);
+        asm.ldh(0x20, 0x00).ldh(0x21, 0xF0).ldh(0x22, 0x51).ldh(0x23, 0x80);
+
+        // Timer, LCD (BG + sprites) e interrupções
+        asm.ldh(0x06, 0x00).ldh(0x07, 0x05);
+        asm.ldh(0x40, 0x93);
+        asm.ldh(0xFF, 0x05);                             // IE = VBlank + timer
+        asm.emit(0xFB);                                  // EI
+
+        int mainLoop = asm.pc;
+        asm.emit(0x06, 0xC8);                            // LD B,200
+        int work = asm.pc;
+        asm.emit(0x80, 0xA9, 0x4F, 0x05);                // ADD A,B ; XOR C ; LD C,A ; DEC B
+        asm.jrBack(0x20, work);
+        asm.emit(0x76, 0x00);                            // HALT ; NOP
+        asm.jrBack(0x18, mainLoop);
+
+        // Tratador de VBlank: rola o fundo, move o sprite 0 e reinicia o canal 1 a cada 64 quadros
+        asm.org(vblankHandler);
+        asm.emit(0xF5);                                  // PUSH AF
+        asm.emit(0xF0, 0x43, 0x3C, 0xE0, 0x43);          // SCX++
+        asm.emit(0xFA, 0x01, 0xFE, 0x3C, 0xEA, 0x01, 0xFE); // OAM[1]++ (X do sprite 0)
+        asm.emit(0xF0, 0x43, 0xE6, 0x3F, 0x20, 0x04);    // se (SCX & 3Fh) == 0
+        asm.ldh(0x14, 0x87);                             //   reinicia canal 1
+        asm.emit(0xF1, 0xD9);                            // POP AF ; RETI
+        return asm.toBytes();
+    }
+
+    /**
+     * Liga todas as interrupções (VBlank, STAT por LYC, timer e joypad), faz OAM DMA a partir da
+     * HRAM no VBlank e no timer e fica num laço EI ; HALT, cobrindo os pontos em que um save state
+     * precisa guardar estado interno da CPU e da MMU.
+     */
+    static byte[] interruptStress() {
+        SyntheticRom asm = new SyntheticRom();
+        int vblank = 0x1000, stat = 0x1100, timer = 0x1200, joypad = 0x1300, dmaRoutine = 0x1400;
+        asm.org(0x0040).jp(vblank);
+        asm.org(0x0048).jp(stat);
+        asm.org(0x0050).jp(timer);
+        asm.org(0x0060).jp(joypad);
+
+        asm.org(0x0150);
+        asm.emit(0xF3, 0x31, 0xFE, 0xFF);                // DI ; LD SP,FFFEh
+        int waitVBlank = asm.pc;
+        asm.emit(0xF0, 0x44, 0xFE, 0x90);                // LDH A,(LY) ; CP 144
+        asm.jrBack(0x20, waitVBlank);
+        asm.ldh(0x40, 0x00);                             // LCD desligado
+
+        asm.emit(0x21, 0x00, 0x80, 0x01, 0x00, 0x10);    // LD HL,8000h ; LD BC,1000h
+        int fillTiles = asm.pc;
+        asm.emit(0x7D, 0x0F, 0x22, 0x0B, 0x78, 0xB1);    // LD A,L ; RRCA ; LD (HL+),A ; DEC BC ; LD A,B ; OR C
+        asm.jrBack(0x20, fillTiles);
+
+        asm.emit(0x21, 0x00, 0x98, 0x01, 0x00, 0x04);    // LD HL,9800h ; LD BC,0400h
+        int fillMap = asm.pc;
+        asm.emit(0x7D, 0x22, 0x0B, 0x78, 0xB1);          // LD A,L ; LD (HL+),A ; DEC BC ; LD A,B ; OR C
+        asm.jrBack(0x20, fillMap);
+
+        // Dados dos sprites em C000h, copiados para a OAM por DMA
+        asm.emit(0x21, 0x00, 0xC0, 0x06, 0xA0);          // LD HL,C000h ; LD B,160
+        int fillSprites = asm.pc;
+        asm.emit(0x7D, 0x22, 0x05);                      // LD A,L ; LD (HL+),A ; DEC B
+        asm.jrBack(0x20, fillSprites);
+
+        // Rotina de DMA copiada para FF80h
+        asm.emit(0x21, 0x80, 0xFF, 0x11, dmaRoutine & 0xFF, dmaRoutine >> 8, 0x06, 0x08);
+        int copyDma = asm.pc;
+        asm.emit(0x1A, 0x22, 0x13, 0x05);                // LD A,(DE) ; LD (HL+),A ; INC DE ; DEC B
+        asm.jrBack(0x20, copyDma);
+
+        asm.ldh(0x41, 0x40).ldh(0x45, 0x28);             // STAT: interrupção por LYC ; LYC = 40
+        asm.ldh(0x06, 0xC0).ldh(0x07, 0x05);             // TMA ; TAC (262144 Hz)
+        asm.ldh(0x00, 0x00);                             // P1: botões e direcional selecionados
+        asm.ldh(0x40, 0x93);
+        asm.ldh(0xFF, 0x1F);                             // IE: todas
+        asm.emit(0xFB);                                  // EI
+
+        int mainLoop = asm.pc;
+        asm.emit(0x06, 0x64);                            // LD B,100
+        int work = asm.pc;
+        asm.emit(0x80, 0xA9, 0x4F, 0x05);                // ADD A,B ; XOR C ; LD C,A ; DEC B
+        asm.jrBack(0x20, work);
+        asm.emit(0xFB, 0x76, 0x00);                      // EI ; HALT ; NOP
+        asm.jrBack(0x18, mainLoop);
+
+        // VBlank: DMA, lê o joypad e conta quadros; o fundo rola com os botões e com a contagem
+        asm.org(vblank);
+        asm.emit(0xF5, 0x3E, 0xC0, 0xCD, 0x80, 0xFF);    // PUSH AF ; LD A,C0h ; CALL FF80h
+        asm.emit(0xF0, 0x00, 0xEA, 0x00, 0xC1);          // LDH A,(P1) ; LD (C100h),A
+        asm.emit(0xE0, 0x43);                            // LDH (SCX),A
+        asm.incrementWram(0xC101);
+        asm.emit(0xE0, 0x42, 0xF1, 0xD9);                // LDH (SCY),A ; POP AF ; RETI
+
+        // STAT: move o LYC pela tela
+        asm.org(stat);
+        asm.emit(0xF5, 0xF0, 0x45, 0xC6, 0x17, 0xE6, 0x7F, 0xE0, 0x45, 0xF1, 0xD9);
+
+        // Timer: acumula em C104h um hash dos endereços de retorno (onde a interrupção foi
+        // atendida), conta e, a cada 8 estouros, faz um DMA no meio do quadro
+        asm.org(timer);
+        asm.emit(0xF5, 0xE5, 0xF8, 0x04, 0x7E);          // PUSH AF ; PUSH HL ; LD HL,SP+4 ; LD A,(HL)
+        asm.emit(0x21, 0x04, 0xC1, 0xAE, 0x07, 0x77);    // LD HL,C104h ; XOR (HL) ; RLCA ; LD (HL),A
+        asm.incrementWram(0xC102);
+        asm.emit(0xE6, 0x07, 0x20, 0x05);                // AND 7 ; JR NZ,fim
+        asm.emit(0x3E, 0xC0, 0xCD, 0x80, 0xFF);          // LD A,C0h ; CALL FF80h
+        asm.emit(0xE1, 0xF1, 0xD9);                      // fim: POP HL ; POP AF ; RETI
+
+        asm.org(joypad);
+        asm.emit(0xF5);
+        asm.incrementWram(0xC103);
+        asm.emit(0xF1, 0xD9);
+
+        // LDH (46h),A ; LD A,40 ; espera: DEC A ; JR NZ,espera ; RET
+        asm.org(dmaRoutine).emit(0xE0, 0x46, 0x3E, 0x28, 0x3D, 0x20, 0xFD, 0xC9);
+        return asm.toBytes();
+    }
+}
@@ -0,0 +1,48 @@
+package com.meutcc.gbemulator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Confere o modo com tabelas contra os helpers flag a flag em todo o domínio de cada operação:
+ * as tabelas vêm dos helpers, mas o índice e a máscara de F de cada consulta são código à parte.
+ */
+public class AluTablesTest {
+
+    private static void assertSameAsHelpers(AluTables.Operation operation, int aCount, int operandCount) {
+        CPU helpers = new CPU(null);
+        CPU tables = new CPU(null);
+        tables.setFlagTableAluEnabled(true);
+        for (int a = 0; a < aCount; a++) {
+            for (int f = 0x00; f <= 0xF0; f += 0x10) {
+                for (int operand = 0; operand < operandCount; operand++) {
+                    int expected = helpers.alu(operation, a, f, operand);
+                    int actual = tables.alu(operation, a, f, operand);
+                    if (expected != actual) {
+                        fail(String.format("%s A=%02X F=%02X operando=%02X: helpers %04X, tabela %04X",
+                                operation, a, f, operand, expected, actual));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void everyEntryMatchesTheHelpers() {
+        for (AluTables.Operation operation : AluTables.Operation.values()) {
+            switch (operation) {
+                case INC:
+                case DEC:
+                    assertSameAsHelpers(operation, 1, 0x100);
+                    break;
+                case DAA:
+                    assertSameAsHelpers(operation, 0x100, 1);
+                    break;
+                default:
+                    assertSameAsHelpers(operation, 0x100, 0x100);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.meutcc.gbemulator;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Executa cada opcode (e cada opcode CB) uma vez nos dois modos de despacho, para todos os valores
+ * de F e registradores sorteados, e compara o estado completo da máquina e os ciclos retornados.
+ */
+public class CpuDispatchTest {
+
+    private static final int CODE = 0xC000;
+    // Ponteiros (BC, DE, HL, nn) caem aqui; a pilha fica acima, tudo em WRAM
+    private static final int POINTER_BASE = 0xC100;
+    private static final int POINTER_RANGE = 0x0700;
+    private static final int STACK_BASE = 0xC900;
+    private static final int STACK_RANGE = 0x06FE;
+    private static final int SEEDS = 4;
+
+    private static Path rom;
+
+    @BeforeClass
+    public static void createRom() throws Exception {
+        rom = SyntheticRom.writeTemp(SyntheticRom.interruptStress());
+    }
+
+    private static GameBoy machine(CPU.DispatchMode mode) {
+        GameBoy gameBoy = TestRom.newGameBoy(rom, mode);
+        Random random = new Random(42);
+        for (int address = 0xC000; address < 0xE000; address++) {
+            gameBoy.getMmu().writeByte(address, random.nextInt(256));
+        }
+        for (int address = 0xFF80; address < 0xFFFF; address++) {
+            gameBoy.getMmu().writeByte(address, random.nextInt(256));
+        }
+        return gameBoy;
+    }
+
+    /** Registradores, flags e a instrução em C000h, iguais nas duas máquinas. */
+    private static void prepare(GameBoy gameBoy, int[] code, int flags, long seed) {
+        Random random = new Random(seed);
+        CPU cpu = gameBoy.getCpu();
+        MMU mmu = gameBoy.getMmu();
+        mmu.writeByte(0xFFFF, 0x00);
+        mmu.writeByte(0xFF0F, 0x00);
+        for (int i = 0; i < code.length; i++) {
+            mmu.writeByte(CODE + i, code[i]);
+        }
+
+        cpu.setA(random.nextInt(256));
+        cpu.setF(flags);
+        int bc = POINTER_BASE + random.nextInt(POINTER_RANGE);
+        int de = POINTER_BASE + random.nextInt(POINTER_RANGE);
+        int hl = POINTER_BASE + random.nextInt(POINTER_RANGE);
+        cpu.setB(bc >> 8);
+        cpu.setC(bc);
+        cpu.setD(de >> 8);
+        cpu.setE(de);
+        cpu.setH(hl >> 8);
+        cpu.setL(hl);
+        if (code[0] == 0xE2 || code[0] == 0xF2) {
+            // LD (FF00+C),A / LD A,(FF00+C): só HRAM
+            cpu.setC(0x80 + random.nextInt(0x7F));
+        }
+        cpu.setSP(STACK_BASE + random.nextInt(STACK_RANGE));
+        cpu.setPC(CODE);
+        cpu.setIME(random.nextBoolean());
+        cpu.setHalted(false);
+        cpu.setStopped(false);
+        cpu.setEiDelayed(false);
+        cpu.setHaltBugTriggered(false);
+    }
+
+    private static int[] instruction(int opcode, boolean cbPrefix, long seed) {
+        if (cbPrefix) {
+            return new int[] {0xCB, opcode};
+        }
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        int low = random.nextInt(256);
+        int high = random.nextInt(256);
+        switch (opcode) {
+            case 0xE0: case 0xF0:
+                // LDH (n),A / LDH A,(n): só HRAM
+                low = 0x80 + random.nextInt(0x7F);
+                break;
+            case 0x08: case 0xEA: case 0xFA: {
+                int address = POINTER_BASE + random.nextInt(POINTER_RANGE);
+                low = address & 0xFF;
+                high = address >> 8;
+                break;
+            }
+            default:
+                break;
+        }
+        return new int[] {opcode, low, high};
+    }
+
+    private static void assertSameStep(GameBoy switchMachine, GameBoy tableMachine, int opcode, boolean cbPrefix) {
+        for (int flags = 0x00; flags <= 0xF0; flags += 0x10) {
+            for (int s = 0; s < SEEDS; s++) {
+                long seed = (opcode << 16) | (flags << 4) | s | (cbPrefix ? 1L << 32 : 0);
+                int[] code = instruction(opcode, cbPrefix, seed);
+                prepare(switchMachine, code, flags, seed);
+                prepare(tableMachine, code, flags, seed);
+
+                int switchCycles = switchMachine.getCpu().step();
+                int tableCycles = tableMachine.getCpu().step();
+
+                String name = String.format("%s%02X com F=%02X, semente %d", cbPrefix ? "CB " : "", opcode, flags, s);
+                assertEquals("ciclos de " + name, switchCycles, tableCycles);
+                assertEquals("PC depois de " + name, switchMachine.getCpu().getPC(), tableMachine.getCpu().getPC());
+                assertArrayEquals("estado depois de " + name, TestRom.state(switchMachine), TestRom.state(tableMachine));
+            }
+        }
+    }
+
+    @Test
+    public void everyOpcodeMatchesAcrossDispatchModes() {
+        GameBoy switchMachine = machine(CPU.DispatchMode.SWITCH);
+        GameBoy tableMachine = machine(CPU.DispatchMode.TABLE);
+        for (int opcode = 0; opcode < 256; opcode++) {
+            if (opcode != 0xCB) {
+                assertSameStep(switchMachine, tableMachine, opcode, false);
+            }
+        }
+    }
+
+    @Test
+    public void everyCbOpcodeMatchesAcrossDispatchModes() {
+        GameBoy switchMachine = machine(CPU.DispatchMode.SWITCH);
+        GameBoy tableMachine = machine(CPU.DispatchMode.TABLE);
+        for (int opcode = 0; opcode < 256; opcode++) {
+            assertSameStep(switchMachine, tableMachine, opcode, true);
+        }
+    }
+}
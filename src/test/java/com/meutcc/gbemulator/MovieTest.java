@@ -0,0 +1,96 @@
+package com.meutcc.gbemulator;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MovieTest {
+
+    private static final int FRAMES = 90;
+
+    private static Path rom;
+
+    @BeforeClass
+    public static void createRom() throws Exception {
+        rom = SyntheticRom.writeTemp(SyntheticRom.interruptStress());
+    }
+
+    /** Botões físicos do quadro: chegam por buttonPressed/buttonReleased, como vindos da thread do AWT. */
+    private static void pressButtons(MMU mmu, int frame) {
+        MMU.Button button = (frame / 6) % 2 == 0 ? MMU.Button.GAMEBOY_A : MMU.Button.GAMEBOY_RIGHT;
+        if (frame % 3 == 0) {
+            mmu.buttonPressed(button);
+        } else {
+            mmu.buttonReleased(button);
+        }
+    }
+
+    /** Estado logo depois de começar a gravar, seguido do estado ao fim de cada quadro. */
+    private static List<byte[]> record(GameBoy gameBoy, Path file, boolean powerOn) throws Exception {
+        List<byte[]> states = new ArrayList<>();
+        try (Movie movie = Movie.record(gameBoy, file, powerOn)) {
+            states.add(TestRom.state(gameBoy));
+            for (int frame = 0; frame < FRAMES; frame++) {
+                pressButtons(gameBoy.getMmu(), frame);
+                assertTrue(movie.runFrame() > 0);
+                states.add(TestRom.state(gameBoy));
+            }
+        }
+        return states;
+    }
+
+    private static void assertPlaysBack(Path file, List<byte[]> recorded) throws Exception {
+        // Máquina em outro ponto da sessão, para o estado inicial do movie ter de sobrescrever tudo
+        GameBoy gameBoy = TestRom.newGameBoy(rom, CPU.DispatchMode.TABLE);
+        TestRom.runFrames(gameBoy, 7);
+        gameBoy.getMmu().buttonPressed(MMU.Button.GAMEBOY_START);
+
+        try (Movie movie = Movie.play(gameBoy, file)) {
+            assertArrayEquals("estado inicial", recorded.get(0), TestRom.state(gameBoy));
+            for (int frame = 1; frame < recorded.size(); frame++) {
+                assertTrue(movie.runFrame() > 0);
+                assertArrayEquals("quadro " + frame, recorded.get(frame), TestRom.state(gameBoy));
+            }
+            assertEquals(0, movie.runFrame());
+            assertTrue(movie.isFinished());
+        }
+    }
+
+    @Test
+    public void powerOnRecordingPlaysBackIdentically() throws Exception {
+        Path file = Files.createTempFile("gbemulator-test", ".gbm");
+        file.toFile().deleteOnExit();
+
+        GameBoy gameBoy = TestRom.newGameBoy(rom, CPU.DispatchMode.SWITCH);
+        TestRom.runFrames(gameBoy, 5);
+        assertPlaysBack(file, record(gameBoy, file, true));
+    }
+
+    /**
+     * Gravação no meio da sessão, começando logo depois de um EI e com um OAM DMA em andamento:
+     * depende do save state guardar o atraso do EI, o DMA e a borda do joypad.
+     */
+    @Test
+    public void midSessionRecordingAfterEiDuringDmaPlaysBackIdentically() throws Exception {
+        Path file = Files.createTempFile("gbemulator-test", ".gbm");
+        file.toFile().deleteOnExit();
+
+        GameBoy gameBoy = TestRom.newGameBoy(rom, CPU.DispatchMode.SWITCH);
+        TestRom.runFrames(gameBoy, 20);
+        int guard = 0;
+        while (!gameBoy.getCpu().isEiDelayed()) {
+            gameBoy.step();
+            assertTrue("EI não encontrado", ++guard < 1_000_000);
+        }
+        gameBoy.getMmu().writeByte(0xFF46, 0xC0);
+        assertTrue(gameBoy.getMmu().isDmaActive());
+
+        assertPlaysBack(file, record(gameBoy, file, false));
+    }
+}
@@ -0,0 +1,76 @@
+package com.meutcc.gbemulator;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class RewindBufferTest {
+
+    private static Path rom;
+
+    @BeforeClass
+    public static void createRom() throws Exception {
+        rom = SyntheticRom.writeTemp(SyntheticRom.interruptStress());
+    }
+
+    /** Avança instrução a instrução até logo depois de um EI e dispara um OAM DMA. */
+    private static GameBoy machineAfterEiDuringDma() {
+        GameBoy gameBoy = TestRom.newGameBoy(rom, CPU.DispatchMode.SWITCH);
+        TestRom.runFrames(gameBoy, 20);
+        int guard = 0;
+        while (!gameBoy.getCpu().isEiDelayed()) {
+            gameBoy.step();
+            assertTrue("EI não encontrado", ++guard < 1_000_000);
+        }
+        gameBoy.getMmu().writeByte(0xFF46, 0xC0);
+        assertTrue(gameBoy.getMmu().isDmaActive());
+        return gameBoy;
+    }
+
+    @Test
+    public void saveLoadSaveIsByteIdenticalWithCpuFlagsAndDma() throws Exception {
+        GameBoy source = machineAfterEiDuringDma();
+        source.getCpu().setHaltBugTriggered(true);
+        byte[] saved = TestRom.state(source);
+
+        GameBoy restored = TestRom.newGameBoy(rom, CPU.DispatchMode.SWITCH);
+        TestRom.runFrames(restored, 3);
+        TestRom.load(restored, saved);
+
+        assertTrue(restored.getCpu().isEiDelayed());
+        assertTrue(restored.getCpu().isHaltBugTriggered());
+        assertTrue(restored.getMmu().isDmaActive());
+        assertTrue(restored.getMmu().isDmaMemoryBlocked());
+        assertEquals(source.getMmu().getDmaCyclesRemaining(), restored.getMmu().getDmaCyclesRemaining());
+        assertArrayEquals(saved, TestRom.state(restored));
+    }
+
+    @Test
+    public void rewindResumesTheSameMachine() throws Exception {
+        GameBoy gameBoy = machineAfterEiDuringDma();
+        RewindBuffer rewind = new RewindBuffer(gameBoy, 4 << 20, 1);
+        rewind.capture();
+        byte[] snapshot = TestRom.state(gameBoy);
+
+        // Linha do tempo de referência: continua direto do snapshot
+        TestRom.runFrames(gameBoy, 30);
+        byte[] expected = TestRom.state(gameBoy);
+
+        for (int i = 0; i < 10; i++) {
+            rewind.onFrame();
+            TestRom.runFrames(gameBoy, 1);
+        }
+        while (rewind.rewind()) {
+            // volta até o primeiro snapshot
+        }
+        assertArrayEquals(snapshot, TestRom.state(gameBoy));
+        assertTrue(gameBoy.getCpu().isEiDelayed());
+        assertTrue(gameBoy.getMmu().isDmaActive());
+
+        TestRom.runFrames(gameBoy, 30);
+        assertArrayEquals(expected, TestRom.state(gameBoy));
+    }
+}
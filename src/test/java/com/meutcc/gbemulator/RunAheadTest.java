@@ -0,0 +1,132 @@
+package com.meutcc.gbemulator;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class RunAheadTest {
+
+    private static final int RELEASED = 0xFF;
+
+    private static Path rom;
+
+    @BeforeClass
+    public static void createRom() throws Exception {
+        rom = SyntheticRom.writeTemp(SyntheticRom.interruptStress());
+    }
+
+    /** Entrada roteirizada: troca de botões a cada poucos quadros, inclusive dois ao mesmo tempo. */
+    private static int input(int frame) {
+        switch ((frame / 7) % 5) {
+            case 1: return RELEASED & ~(1 << MMU.Button.GAMEBOY_A.bit);
+            case 2: return RELEASED & ~(1 << MMU.Button.GAMEBOY_RIGHT.bit) & ~(1 << MMU.Button.GAMEBOY_B.bit);
+            case 3: return RELEASED & ~(1 << MMU.Button.GAMEBOY_START.bit);
+            default: return RELEASED;
+        }
+    }
+
+    /** Quadro sem run-ahead, consumindo o fim de quadro como o laço da janela. */
+    private static void plainFrame(GameBoy gameBoy) {
+        TestRom.runFrames(gameBoy, 1);
+        gameBoy.getPpu().isFrameCompleted();
+    }
+
+    @Test
+    public void realTimelineMatchesPlainEmulationUnderTheSameInput() throws Exception {
+        for (int aheadFrames = 1; aheadFrames <= 4; aheadFrames++) {
+            GameBoy plain = TestRom.newGameBoy(rom, CPU.DispatchMode.SWITCH);
+            GameBoy ahead = TestRom.newGameBoy(rom, CPU.DispatchMode.SWITCH);
+            RunAhead runAhead = new RunAhead(ahead, aheadFrames);
+
+            for (int frame = 0; frame < 120; frame++) {
+                plain.getMmu().applyJoypadState(input(frame));
+                ahead.getMmu().applyJoypadState(input(frame));
+
+                plainFrame(plain);
+                assertTrue(runAhead.runFrame(TestRom.CYCLES_PER_FRAME));
+
+                assertArrayEquals("run-ahead " + aheadFrames + ", quadro " + frame,
+                        TestRom.state(plain), TestRom.state(ahead));
+            }
+        }
+    }
+
+    /**
+     * A tela exibida tem de ser a da emulação sem run-ahead N quadros à frente, com a mesma entrada:
+     * um quadro começa numa fatia e termina na seguinte, e linhas velhas ou rasgadas aparecem aqui.
+     */
+    @Test
+    public void presentedFrameMatchesPlainEmulationAhead() throws Exception {
+        for (int aheadFrames = 1; aheadFrames <= 4; aheadFrames++) {
+            GameBoy ahead = TestRom.newGameBoy(rom, CPU.DispatchMode.SWITCH);
+            GameBoy future = TestRom.newGameBoy(rom, CPU.DispatchMode.SWITCH);
+            RunAhead runAhead = new RunAhead(ahead, aheadFrames);
+
+            for (int frame = 0; frame < 120; frame++) {
+                byte[] real = TestRom.state(ahead);
+                ahead.getMmu().applyJoypadState(input(frame));
+                assertTrue(runAhead.runFrame(TestRom.CYCLES_PER_FRAME));
+
+                TestRom.load(future, real);
+                future.getMmu().applyJoypadState(input(frame));
+                TestRom.runFrames(future, 1 + aheadFrames);
+
+                assertArrayEquals("run-ahead " + aheadFrames + ", quadro " + frame,
+                        future.getPpu().getScreenBuffer(), ahead.getPpu().getScreenBuffer());
+            }
+        }
+    }
+
+    @Test
+    public void pressDuringAheadFramesRaisesJoypadInterruptAfterRestore() throws Exception {
+        GameBoy reference = TestRom.newGameBoy(rom, CPU.DispatchMode.SWITCH);
+        PressingGameBoy ahead = new PressingGameBoy();
+        assertTrue(ahead.loadROM(rom.toString()));
+        ahead.reset();
+        RunAhead runAhead = new RunAhead(ahead, 2);
+
+        for (int frame = 0; frame < 10; frame++) {
+            plainFrame(reference);
+            assertTrue(runAhead.runFrame(TestRom.CYCLES_PER_FRAME));
+        }
+        assertArrayEquals(TestRom.state(reference), TestRom.state(ahead));
+
+        // O botão chega enquanto os quadros adiantados rodam; na referência, logo depois do quadro real
+        ahead.pressWhileAhead = true;
+        plainFrame(reference);
+        assertTrue(runAhead.runFrame(TestRom.CYCLES_PER_FRAME));
+        assertFalse("o botão não foi pressionado durante os quadros adiantados", ahead.pressWhileAhead);
+        reference.getMmu().buttonPressed(MMU.Button.GAMEBOY_A);
+
+        assertEquals(0x10, ahead.getMmu().readByte(MMU.REG_IF) & 0x10);
+        assertArrayEquals(TestRom.state(reference), TestRom.state(ahead));
+
+        for (int frame = 0; frame < 30; frame++) {
+            plainFrame(reference);
+            assertTrue(runAhead.runFrame(TestRom.CYCLES_PER_FRAME));
+            assertArrayEquals("quadro " + frame + " após o botão", TestRom.state(reference), TestRom.state(ahead));
+        }
+    }
+
+    /** Simula o botão vindo da thread de entrada no meio dos quadros adiantados. */
+    private static final class PressingGameBoy extends GameBoy {
+
+        boolean pressWhileAhead;
+
+        PressingGameBoy() {
+            super(CPU.DispatchMode.SWITCH, false);
+        }
+
+        @Override
+        public int step() {
+            if (pressWhileAhead && getApu().isOutputSuppressed()) {
+                pressWhileAhead = false;
+                getMmu().buttonPressed(MMU.Button.GAMEBOY_A);
+            }
+            return super.step();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.meutcc.gbemulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Utilitários dos testes para rodar as ROMs de {@link SyntheticRom} e comparar estados.
+ */
+final class TestRom {
+
+    static final int CYCLES_PER_FRAME = 70224;
+
+    static GameBoy newGameBoy(Path rom, CPU.DispatchMode dispatchMode) {
+        GameBoy gameBoy = new GameBoy(dispatchMode, false);
+        if (!gameBoy.loadROM(rom.toString())) {
+            throw new IllegalStateException("ROM de teste não carregada");
+        }
+        gameBoy.reset();
+        return gameBoy;
+    }
+
+    static void runFrames(GameBoy gameBoy, int frames) {
+        for (int i = 0; i < frames; i++) {
+            runCycles(gameBoy, CYCLES_PER_FRAME);
+        }
+    }
+
+    static void runCycles(GameBoy gameBoy, int cycles) {
+        int elapsed = 0;
+        while (elapsed < cycles) {
+            int stepCycles = gameBoy.step();
+            if (stepCycles < 0) {
+                throw new IllegalStateException("CPU parou");
+            }
+            elapsed += stepCycles;
+        }
+    }
+
+    static byte[] state(GameBoy gameBoy) {
+        ByteBuffer buffer = ByteBuffer.allocate(gameBoy.getStateSizeBound());
+        gameBoy.saveState(buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    static void load(GameBoy gameBoy, byte[] state) throws IOException {
+        gameBoy.loadState(ByteBuffer.wrap(state));
+    }
+}